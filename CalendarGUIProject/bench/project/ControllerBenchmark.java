@@ -0,0 +1,320 @@
+package project;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+
+/**
+ * This class is creates the JMH benchmarks for the Controller and Event hot paths
+ *
+ * The views, addEvent and readFile run at every Calendar size from 1K to 10M Events, with Events and
+ * schedule files from ScheduleGenerator. Each benchmark runs in its own forked JVM with its own warmup, and
+ * what it returns goes to JMH's blackhole so the JIT cannot drop the work. addEvent and readFile time filling
+ * a new Controller as single shots, its setup is not timed. The views and checkConflict are timed per call.
+ * The views cycle through a fixed set of dates, so after the warmup they mostly time the lookup in the Controller's
+ * ViewCache. Each view also has an Uncached benchmark that empties the cache before every call, which times the
+ * range lookup in the store behind it.
+ * main runs the benchmarks through the JMH Runner, it can write the scores as CSV and check them against an
+ * earlier CSV so a change that slows a path down by more than the tolerance fails with exit code 1.
+ *
+ * Build and run from the CalendarGUIProject folder:
+ *
+ *   mvn -B -Pbench test -Dbench.args="-p size=1000,1000000 --output after.csv --baseline before.csv"
+ *
+ * Options: --output, --baseline and --tolerance, anything else is passed to JMH, such as -p size=..., -f,
+ * -wi, -i or a regular expression of the benchmarks to run
+ *
+ * @author Kyle Cook
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class ControllerBenchmark {
+
+    private static final int FIRST_DAY = 7305;
+    private static final int EVENTS_PER_DAY = 12;
+    private static final int QUERY_DATES = 1024;
+    private static final int CONFLICT_EVENTS = 1 << 20;
+
+    /**
+     * This class is creates the Controller the view benchmarks query, filled once for each size
+     */
+    @State(Scope.Benchmark)
+    public static class Populated {
+        @Param({"1000", "10000", "100000", "1000000", "10000000"})
+        public int size;
+
+        Controller controller;
+        Calendar[] starts;
+        Calendar[] ends;
+
+        @Setup(Level.Trial)
+        public void fill() {
+            ScheduleGenerator generator = new ScheduleGenerator(42);
+            controller = new Controller();
+            for(Event e: generator.events(size, FIRST_DAY, days(size))) {
+                controller.addEvent(e);
+            }
+            starts = new Calendar[QUERY_DATES];
+            ends = new Calendar[QUERY_DATES];
+            for(int i = 0; i < QUERY_DATES; i++) {
+                int day = generator.day(FIRST_DAY, days(size));
+                starts[i] = new Event(null, day, 0, 0).getCal();
+                ends[i] = new Event(null, day + 30, 0, 0).getCal();
+            }
+        }
+    }
+
+    /**
+     * This class is creates the Events addEvent adds, a new Controller and new copies for every shot
+     */
+    @State(Scope.Benchmark)
+    public static class Fill {
+        @Param({"1000", "10000", "100000", "1000000", "10000000"})
+        public int size;
+
+        Event[] template;
+        Event[] copies;
+        Controller controller;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            template = new ScheduleGenerator(42).events(size, FIRST_DAY, days(size));
+        }
+
+        @Setup(Level.Invocation)
+        public void fresh() {
+            controller = new Controller();
+            copies = new Event[template.length];
+            for(int i = 0; i < template.length; i++) {
+                Event e = template[i];
+                copies[i] = Event.ofMinutes(e.getName(), e.getDayKey(), e.getStartMinute(), e.getEndMinute());
+            }
+        }
+    }
+
+    /**
+     * This class is creates the schedule file readFile imports, of about size occurrences
+     */
+    @State(Scope.Benchmark)
+    public static class ScheduleFile {
+        @Param({"1000", "10000", "100000", "1000000", "10000000"})
+        public int size;
+
+        File file;
+        Controller controller;
+
+        @Setup(Level.Trial)
+        public void write() throws IOException {
+            file = File.createTempFile("schedule", ".txt");
+            file.deleteOnExit();
+            new ScheduleGenerator(42).writeFile(file, size);
+        }
+
+        @Setup(Level.Invocation)
+        public void fresh() {
+            controller = new Controller();
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    /**
+     * This class is creates random Events that often share a day, for checkConflict
+     */
+    @State(Scope.Benchmark)
+    public static class Pairs {
+        Event[] events;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            events = new ScheduleGenerator(42).events(CONFLICT_EVENTS, FIRST_DAY, 7);
+        }
+    }
+
+    /**
+     * This class is creates the position of one benchmark thread in the query dates and Events
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long addEvent(Fill fill) {
+        long added = 0;
+        for(Event e: fill.copies) {
+            if(fill.controller.addEvent(e)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ImportResult readFile(ScheduleFile schedule) throws IOException {
+        return schedule.controller.importFile(schedule.file);
+    }
+
+    @Benchmark
+    public ArrayList<Event> getDayEvents(Populated populated, Cursor cursor) {
+        return populated.controller.getDayEvents(populated.starts[cursor.next++ & (QUERY_DATES - 1)]);
+    }
+
+    @Benchmark
+    public ArrayList<Event> getWeekEvents(Populated populated, Cursor cursor) {
+        return populated.controller.getWeekEvents(populated.starts[cursor.next++ & (QUERY_DATES - 1)]);
+    }
+
+    @Benchmark
+    public ArrayList<Event> getMonthEvents(Populated populated, Cursor cursor) {
+        return populated.controller.getMonthEvents(populated.starts[cursor.next++ & (QUERY_DATES - 1)]);
+    }
+
+    @Benchmark
+    public ArrayList<Event> getIntervalEvents(Populated populated, Cursor cursor) {
+        int i = cursor.next++ & (QUERY_DATES - 1);
+        return populated.controller.getIntervalEvents(populated.starts[i], populated.ends[i]);
+    }
+
+    @Benchmark
+    public ArrayList<Event> getDayEventsUncached(Populated populated, Cursor cursor) {
+        populated.controller.getViewCache().clear();
+        return populated.controller.getDayEvents(populated.starts[cursor.next++ & (QUERY_DATES - 1)]);
+    }
+
+    @Benchmark
+    public ArrayList<Event> getWeekEventsUncached(Populated populated, Cursor cursor) {
+        populated.controller.getViewCache().clear();
+        return populated.controller.getWeekEvents(populated.starts[cursor.next++ & (QUERY_DATES - 1)]);
+    }
+
+    @Benchmark
+    public ArrayList<Event> getMonthEventsUncached(Populated populated, Cursor cursor) {
+        populated.controller.getViewCache().clear();
+        return populated.controller.getMonthEvents(populated.starts[cursor.next++ & (QUERY_DATES - 1)]);
+    }
+
+    @Benchmark
+    public ArrayList<Event> getIntervalEventsUncached(Populated populated, Cursor cursor) {
+        populated.controller.getViewCache().clear();
+        int i = cursor.next++ & (QUERY_DATES - 1);
+        return populated.controller.getIntervalEvents(populated.starts[i], populated.ends[i]);
+    }
+
+    @Benchmark
+    public boolean checkConflict(Pairs pairs, Cursor cursor) {
+        int index = cursor.next++;
+        Event first = pairs.events[index & (CONFLICT_EVENTS - 1)];
+        Event second = pairs.events[(index * 31 + 7) & (CONFLICT_EVENTS - 1)];
+        return first.checkConflict(second);
+    }
+
+    /**
+     * This method runs the benchmarks
+     *
+     * @param args the options described above
+     * @throws IOException if a result file could not be written or a baseline read
+     * @throws RunnerException if JMH could not run a benchmark
+     * @throws CommandLineOptionException if a JMH option is not valid
+     */
+    public static void main(String[] args) throws IOException, RunnerException, CommandLineOptionException {
+        File output = null;
+        File baseline = null;
+        double tolerance = 0.15;
+        List<String> jmhArgs = new ArrayList<>();
+
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "--output":
+                    output = new File(args[++i]);
+                    break;
+                case "--baseline":
+                    baseline = new File(args[++i]);
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    jmhArgs.add(args[i]);
+            }
+        }
+
+        LinkedHashMap<String, String> results = new LinkedHashMap<>();
+        for(RunResult run: new Runner(new CommandLineOptions(jmhArgs.toArray(new String[0]))).run()) {
+            String benchmark = run.getParams().getBenchmark();
+            String size = run.getParams().getParam("size");
+            results.put(benchmark.substring(benchmark.lastIndexOf('.') + 1) + "," + (size == null ? "-" : size),
+                    run.getPrimaryResult().getScore() + "," + run.getPrimaryResult().getScoreUnit());
+        }
+
+        if(output != null) {
+            try(PrintWriter out = new PrintWriter(Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8))) {
+                out.println("benchmark,size,score,unit");
+                for(Map.Entry<String, String> result: results.entrySet()) {
+                    out.println(result.getKey() + "," + result.getValue());
+                }
+            }
+        }
+        if(baseline != null && !compare(results, baseline, tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * This method returns how many days to spread size Events over so most of them fit without conflicts
+     */
+    private static int days(long size) {
+        return (int) Math.max(365, size / EVENTS_PER_DAY);
+    }
+
+    /**
+     * This method checks results against an earlier run and prints every path that got slower than allowed
+     * Every score is a time, so a higher score is slower, scores in different units are not compared
+     *
+     * @return Boolean the value of whether every result was within the tolerance(true) or not(false)
+     */
+    private static boolean compare(Map<String, String> results, File baseline, double tolerance) throws IOException {
+        boolean passed = true;
+        for(String line: Files.readAllLines(baseline.toPath(), StandardCharsets.UTF_8)) {
+            String[] fields = line.split(",");
+            if(fields.length != 4 || fields[0].equals("benchmark")) {
+                continue;
+            }
+            String result = results.get(fields[0] + "," + fields[1]);
+            if(result == null || !result.endsWith("," + fields[3])) {
+                continue;
+            }
+            double now = Double.parseDouble(result.substring(0, result.indexOf(',')));
+            double before = Double.parseDouble(fields[2]);
+            if(now > before * (1 + tolerance)) {
+                System.out.printf("REGRESSION %s at %s events: %.1f %s, baseline %.1f %s (+%.0f%%)%n",
+                        fields[0], fields[1], now, fields[3], before, fields[3], (now / before - 1) * 100);
+                passed = false;
+            }
+        }
+        if(passed) {
+            System.out.println("All results within " + Math.round(tolerance * 100) + "% of " + baseline);
+        }
+        return passed;
+    }
+}
@@ -0,0 +1,87 @@
+package project;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * This class is creates synthetic schedule files and Events for the benchmarks
+ *
+ * Files use the same name;year;monthStart;monthEnd;days;hourStart;hourEnd format readFile reads.
+ * Every line is a one hour class on a few week days over a few months, spread over rooms and years
+ * so that most occurrences are accepted and some collide.
+ *
+ * @author Kyle Cook
+ */
+
+public class ScheduleGenerator {
+
+    private static final String[] DAY_PATTERNS = {"MWF", "TH", "MTWHF", "SA", "W", "MW", "HF"};
+
+    private final Random random;
+
+    /**
+     * This method constructs a ScheduleGenerator with a fixed seed, so runs can be compared
+     *
+     * @param seed the seed for the random numbers
+     */
+    public ScheduleGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * This method writes a schedule file that expands to about the given number of occurrences
+     *
+     * @param file the file to write
+     * @param occurrences the number of occurrences wanted
+     * @return lines the number of lines written
+     * @throws IOException if the file could not be written
+     */
+    public long writeFile(File file, long occurrences) throws IOException {
+        long lines = 0;
+        long written = 0;
+        try(Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            while(written < occurrences) {
+                String days = DAY_PATTERNS[random.nextInt(DAY_PATTERNS.length)];
+                int monthStart = 1 + random.nextInt(9);
+                int months = 1 + random.nextInt(3);
+                int hour = random.nextInt(23);
+                int year = 1990 + (int) (lines % 60);
+                out.write("Room " + (lines % 500) + " class;" + year + ";" + monthStart + ";" + (monthStart + months) +
+                        ";" + days + ";" + hour + ";" + (hour + 1) + "\n");
+                written += Math.max(1, months * 30L * days.length() / 7);
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * This method makes random one to three hour Events spread over a number of days
+     *
+     * @param count the number of Events to make
+     * @param firstDay the first epoch day to use
+     * @param dayCount the number of days to spread the Events over
+     * @return events the new Events
+     */
+    public Event[] events(int count, int firstDay, int dayCount) {
+        Event[] events = new Event[count];
+        for(int i = 0; i < count; i++) {
+            int start = random.nextInt(22);
+            events[i] = new Event("Event " + (i % 1000), firstDay + random.nextInt(dayCount),
+                    start, start + 1 + random.nextInt(2));
+        }
+        return events;
+    }
+
+    /**
+     * This method picks a random day for a query
+     *
+     * @param firstDay the first epoch day to pick from
+     * @param dayCount the number of days to pick from
+     * @return the picked epoch day
+     */
+    public int day(int firstDay, int dayCount) {
+        return firstDay + random.nextInt(dayCount);
+    }
+}
@@ -0,0 +1,223 @@
+package project;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class is creates a load test for the CalendarServer
+ *
+ * Client threads send a mix of view queries and Event adds for a set time, then the throughput,
+ * the latency percentiles and the count of each response status are printed. Without --url a server
+ * is started on a free localhost port and filled with generated Events first.
+ *
+ * Build with Maven and run from the CalendarGUIProject folder:
+ *
+ *   mvn -B -Pbench test-compile
+ *   java -Xmx4g -cp target/classes:target/test-classes project.ServerLoadTest --clients 64 --seconds 30 --events 1000000 --writes 0.05
+ *
+ * Options: --url (a running server, such as http://localhost:8080), --clients, --seconds,
+ * --events (Events to fill a started server with), --writes (share of requests that add an Event)
+ *
+ * @author Kyle Cook
+ */
+
+public class ServerLoadTest {
+
+    private static final int FIRST_DAY = 7305;
+    private static final int EVENTS_PER_DAY = 12;
+    private static final String[] VIEWS = {"day", "week", "month"};
+
+    private String url;
+    private int clients = 32;
+    private int seconds = 20;
+    private int events = 100000;
+    private double writes = 0.05;
+    private int days;
+
+    /**
+     * This method runs the load test
+     *
+     * @param args the options described above
+     * @throws Exception if the server could not be started or a client thread was interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        ServerLoadTest test = new ServerLoadTest();
+        for(int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch(args[i]) {
+                case "--url":
+                    test.url = value;
+                    break;
+                case "--clients":
+                    test.clients = Integer.parseInt(value);
+                    break;
+                case "--seconds":
+                    test.seconds = Integer.parseInt(value);
+                    break;
+                case "--events":
+                    test.events = Integer.parseInt(value);
+                    break;
+                case "--writes":
+                    test.writes = Double.parseDouble(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        test.days = Math.max(365, test.events / EVENTS_PER_DAY);
+
+        CalendarServer server = null;
+        if(test.url == null) {
+            Controller controller = Controller.getInstance();
+            for(Event e: new ScheduleGenerator(42).events(test.events, FIRST_DAY, test.days)) {
+                controller.addEvent(e);
+            }
+            server = new CalendarServer(new InetSocketAddress("localhost", 0));
+            server.start();
+            test.url = "http://localhost:" + server.getPort();
+            System.out.println("Started a server at " + test.url + " holding " + test.events + " generated Events");
+        }
+        try {
+            test.run();
+        }
+        finally {
+            if(server != null) {
+                server.stop(0);
+            }
+        }
+    }
+
+    /**
+     * This method runs the client threads and prints what they measured
+     */
+    private void run() throws InterruptedException {
+        // a short warm up so the first timed requests do not pay for class loading and compiling
+        runClients(Math.min(clients, 4), 2000);
+        Client[] results = runClients(clients, seconds * 1000L);
+
+        long requests = 0;
+        long bytes = 0;
+        TreeMap<Integer, Long> statuses = new TreeMap<>();
+        int total = 0;
+        for(Client c: results) {
+            total += c.count;
+        }
+        long[] latencies = new long[total];
+        int at = 0;
+        for(Client c: results) {
+            System.arraycopy(c.latencies, 0, latencies, at, c.count);
+            at += c.count;
+            requests += c.count;
+            bytes += c.bytes;
+            for(Map.Entry<Integer, Long> status: c.statuses.entrySet()) {
+                statuses.merge(status.getKey(), status.getValue(), Long::sum);
+            }
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("clients %d, %d s, %.0f%% writes%n", clients, seconds, writes * 100);
+        System.out.printf("requests %d, %.0f req/s, %.1f MB/s read%n", requests, requests / (double) seconds,
+                bytes / 1e6 / seconds);
+        System.out.printf("latency ms  p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), percentile(latencies, 1.0));
+        System.out.println("statuses " + statuses);
+    }
+
+    /**
+     * This method runs client threads for a number of milliseconds and waits for them to finish
+     */
+    private Client[] runClients(int count, long millis) throws InterruptedException {
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        Client[] started = new Client[count];
+        Thread[] threads = new Thread[count];
+        for(int i = 0; i < count; i++) {
+            started[i] = new Client(deadline);
+            threads[i] = new Thread(started[i], "load-client-" + i);
+            threads[i].start();
+        }
+        for(Thread t: threads) {
+            t.join();
+        }
+        return started;
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if(sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * This class is one client thread, it keeps its own counts so the threads never share anything while timing
+     */
+    private class Client implements Runnable {
+        private final long deadline;
+        private long[] latencies = new long[1 << 16];
+        private int count;
+        private long bytes;
+        private HashMap<Integer, Long> statuses = new HashMap<>();
+
+        private Client(long deadline) {
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            byte[] buffer = new byte[64 * 1024];
+            while(System.nanoTime() < deadline) {
+                String date = LocalDate.ofEpochDay(FIRST_DAY + random.nextInt(days)).toString();
+                long start = System.nanoTime();
+                int status;
+                try {
+                    HttpURLConnection connection;
+                    if(random.nextDouble() < writes) {
+                        int hour = random.nextInt(23);
+                        connection = (HttpURLConnection) new URL(url + "/events").openConnection();
+                        connection.setRequestMethod("POST");
+                        connection.setDoOutput(true);
+                        connection.setRequestProperty("Content-Type", "application/json");
+                        byte[] body = ("{\"name\":\"load " + random.nextInt(1000) + "\",\"date\":\"" + date
+                                + "\",\"start\":" + hour + ",\"end\":" + (hour + 1) + "}").getBytes(StandardCharsets.UTF_8);
+                        try(OutputStream out = connection.getOutputStream()) {
+                            out.write(body);
+                        }
+                    }
+                    else {
+                        String view = VIEWS[random.nextInt(VIEWS.length)];
+                        connection = (HttpURLConnection) new URL(url + "/events/" + view + "?date=" + date).openConnection();
+                    }
+                    status = connection.getResponseCode();
+                    // read the whole body so the connection can be kept alive for the next request
+                    try(InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                        int read;
+                        while(in != null && (read = in.read(buffer)) > 0) {
+                            bytes += read;
+                        }
+                    }
+                }
+                catch(IOException e) {
+                    status = -1;
+                }
+                record(System.nanoTime() - start, status);
+            }
+        }
+
+        private void record(long nanos, int status) {
+            if(count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            statuses.merge(status, 1L, Long::sum);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package project;
+
+import java.util.*;
+
+/**
+ * This class is creates the result of adding a batch of Events, with what happened to each Event
+ * A batch is added all or nothing, if any Event could not be added none of them were
+ *
+ * @author Kyle Cook
+ */
+
+public class BatchResult {
+
+    /**
+     * This enum lists what happened to an Event of a batch
+     */
+    public enum Status {
+        ACCEPTED, CONFLICT, ALREADY_ADDED
+    }
+
+    private final List<Outcome> outcomes;
+    private final boolean committed;
+
+    /**
+     * This method constructs a BatchResult
+     *
+     * @param outcomes the outcome of each Event, in the order the Events were given
+     * @param committed whether the batch was added
+     */
+    BatchResult(List<Outcome> outcomes, boolean committed) {
+        this.outcomes = Collections.unmodifiableList(outcomes);
+        this.committed = committed;
+    }
+
+    /**
+     * This method returns whether the batch was added to the Calendar
+     *
+     * @return Boolean the value of whether every Event was added(true) or none were(false)
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    /**
+     * This method returns the outcome of each Event
+     *
+     * @return outcomes the outcomes in the order the Events were given
+     */
+    public List<Outcome> getOutcomes() {
+        return outcomes;
+    }
+
+    /**
+     * This method counts the Events that kept the batch from being added
+     *
+     * @return count the number of Events that were not accepted
+     */
+    public int getRejectedCount() {
+        int count = 0;
+        for(Outcome outcome: outcomes) {
+            if(outcome.status != Status.ACCEPTED) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return (committed ? "Added " : "Not added, ") + outcomes.size() + " events, " + getRejectedCount() + " rejected";
+    }
+
+    /**
+     * This class is creates the outcome of one Event of a batch
+     */
+    public static class Outcome {
+        private final Event event;
+        private final Status status;
+        private final Event conflict;
+        private final RecurringEvent rule;
+
+        Outcome(Event event, Status status, Event conflict, RecurringEvent rule) {
+            this.event = event;
+            this.status = status;
+            this.conflict = conflict;
+            this.rule = rule;
+        }
+
+        /**
+         * This method returns the Event this outcome is for
+         *
+         * @return event the Event from the batch
+         */
+        public Event getEvent() {
+            return event;
+        }
+
+        /**
+         * This method returns what happened to the Event
+         *
+         * @return status the status of the Event
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * This method returns the Event the batch Event has a time conflict with
+         * It is an Event in the Calendar, an earlier Event of the same batch or an occurrence of a recurring Event
+         *
+         * @return conflict the conflicting Event, or null if there is no conflict
+         */
+        public Event getConflict() {
+            return conflict;
+        }
+
+        /**
+         * This method returns the recurring Event the batch Event has a time conflict with
+         *
+         * @return rule the conflicting recurring Event, or null if the conflict is not with one
+         */
+        public RecurringEvent getRule() {
+            return rule;
+        }
+
+        @Override
+        public String toString() {
+            switch(status) {
+                case ACCEPTED:
+                    return "Accepted: " + event;
+                case ALREADY_ADDED:
+                    return "Already added: " + event;
+                default:
+                    return "Conflicting with " + (rule != null ? rule : conflict) + ": " + event;
+            }
+        }
+    }
+}
@@ -0,0 +1,805 @@
+package project;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This class is creates a headless server that exposes the Controllers of the named calendars over HTTP with JSON
+ *
+ * GET  /calendars                                        the names of the calendars
+ * GET  /events/day?date=2024-03-01&calendar=a,b          the Events of a day, also /events/week and /events/month
+ * GET  /events/interval?start=2024-03-01&end=2024-03-31  the Events of a time interval
+ * GET  /events/search?q=stand&start=2024-01-01&end=2024-03-31  the Events with a name matching the words
+ * POST /events    {"calendar":"a","name":"Standup","date":"2024-03-01","start":9,"end":"10:30"}
+ * GET, PUT or DELETE /events/42?calendar=a               one Event by its id, PUT takes the values to change
+ * POST /import?calendar=a                                a schedule file in the request body
+ * GET  /export?format=ics&start=2024-01-01&end=2024-12-31&calendar=a   the Events as iCalendar or CSV
+ *
+ * Times are sent as whole hours or as "H:MM", an end past 24 runs overnight. Events are returned with their
+ * start and end hours, rounded out to whole hours, and their exact startMinute and endMinute, single Events
+ * with their id and occurrences with the ruleId of their recurring Event.
+ * A query without a calendar reads the default calendar, several calendars are merged in date order.
+ * A calendar name that is not known is answered with 404, a request never makes a new calendar.
+ * Dates and times are read and written in the time zone named by a zone parameter, such as zone=Europe/Paris,
+ * in the query or in the body of a POST or PUT, and otherwise in the zone of the first calendar.
+ * Results are written to the client as they are formatted, so a large result is never held as one string.
+ * Requests run on virtual threads when the JVM has them and on a fixed pool of threads when it does not.
+ *
+ * @author Kyle Cook
+ */
+
+public class CalendarServer {
+
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int WRITE_BUFFER = 64 * 1024;
+
+    static {
+        // the JDK server writes headers and body separately, with Nagle on a small reply waits for a delayed ACK
+        if(System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * This method constructs a CalendarServer bound to an address, it does not take requests until it is started
+     *
+     * @param address the address and port to listen on, port 0 picks a free port
+     * @throws IOException if the address could not be bound
+     */
+    public CalendarServer(InetSocketAddress address) throws IOException {
+        Controller.getInstance();
+        server = HttpServer.create(address, 0);
+        executor = newExecutor();
+        server.setExecutor(executor);
+        server.createContext("/calendars", exchange -> handle(exchange, "GET", this::calendars));
+        server.createContext("/events", exchange -> handle(exchange, null, this::events));
+        server.createContext("/import", exchange -> handle(exchange, "POST", this::importSchedule));
+        server.createContext("/export", exchange -> handle(exchange, "GET", this::export));
+    }
+
+    /**
+     * This method starts taking requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * This method stops taking requests, waiting for the ones being handled to finish
+     *
+     * @param delaySeconds the most seconds to wait for requests being handled
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * This method returns the port the server is listening on
+     *
+     * @return port the local port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * This method makes the executor requests run on, a virtual thread for each request when the JVM has them
+     * The JVM is asked by name so the server still builds and runs on JVMs without virtual threads
+     *
+     * @return executor the executor to run requests on
+     */
+    static ExecutorService newExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        }
+        catch(ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            int threads = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+            return Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "calendar-http-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * This interface is one endpoint of the server
+     */
+    private interface Endpoint {
+        void serve(HttpExchange exchange, Map<String, String> query) throws IOException;
+    }
+
+    /**
+     * This method checks the method of a request, runs its endpoint and turns a bad request into an error response
+     * A request that fails once its response has started streaming cannot be given an error status, so its
+     * connection is dropped without ending the response, and the client sees it was cut short
+     */
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        RuntimeException cutShort = null;
+        try {
+            if(method != null && !method.equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Use " + method + " for " + exchange.getRequestURI().getPath());
+                return;
+            }
+            endpoint.serve(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+        }
+        catch(IllegalArgumentException | DateTimeException e) {
+            if(!fail(exchange, 400, e.getMessage())) {
+                cutShort = e;
+            }
+        }
+        catch(RuntimeException e) {
+            if(!fail(exchange, 500, e.toString())) {
+                cutShort = e;
+            }
+        }
+        finally {
+            if(cutShort == null) {
+                exchange.close();
+            }
+        }
+        if(cutShort != null) {
+            // the server closes the connection of a handler that throws, before the last chunk is sent
+            throw new IOException("Response cut short", cutShort);
+        }
+    }
+
+    /**
+     * This method sends the error response of a failed request, unless the response has already started
+     *
+     * @return Boolean the value for whether the error was sent (true) or the response had started (false)
+     */
+    private static boolean fail(HttpExchange exchange, int status, String message) throws IOException {
+        if(exchange.getResponseCode() != -1) {
+            return false;
+        }
+        sendError(exchange, status, message);
+        return true;
+    }
+
+    /**
+     * This method lists the calendar names
+     */
+    private void calendars(HttpExchange exchange, Map<String, String> query) throws IOException {
+        try(Writer out = startJson(exchange, 200)) {
+            out.write('[');
+            boolean first = true;
+            for(String name: Controller.getCalendarNames()) {
+                if(!first) {
+                    out.write(',');
+                }
+                quote(name, out);
+                first = false;
+            }
+            out.write(']');
+        }
+    }
+
+    /**
+     * This method serves the views on GET, adds an Event on POST and reads, changes or removes one Event by its id
+     */
+    private void events(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        if(path.equals("/events") || path.equals("/events/")) {
+            if(!method.equals("POST")) {
+                sendError(exchange, 405, "Use POST to add an Event");
+                return;
+            }
+            addEvent(exchange);
+            return;
+        }
+        long id = eventId(path);
+        if(id > 0) {
+            eventById(exchange, query, id);
+            return;
+        }
+        if(!method.equals("GET")) {
+            sendError(exchange, 405, "Use GET for " + path);
+            return;
+        }
+
+        List<Controller> calendars = new ArrayList<>();
+        for(String name: query.getOrDefault("calendar", "default").split(",")) {
+            Controller c = Controller.findInstance(name);
+            if(c == null) {
+                sendError(exchange, 404, "No calendar named " + name);
+                return;
+            }
+            calendars.add(c);
+        }
+
+        ZoneId zone = zone(query, calendars.get(0));
+        ArrayList<Event> events;
+        switch(path) {
+            case "/events/day":
+                events = Controller.getDayEvents(calendars, date(query, "date", zone));
+                break;
+            case "/events/week":
+                events = Controller.getWeekEvents(calendars, date(query, "date", zone));
+                break;
+            case "/events/month":
+                events = Controller.getMonthEvents(calendars, date(query, "date", zone));
+                break;
+            case "/events/interval":
+                events = Controller.getIntervalEvents(calendars, date(query, "start", zone),
+                        date(query, "end", zone));
+                break;
+            case "/events/search":
+                events = Controller.searchEvents(calendars, required(query, "q"), date(query, "start", zone),
+                        date(query, "end", zone));
+                break;
+            default:
+                sendError(exchange, 404, "No view at " + path);
+                return;
+        }
+        // not closed if writing fails, so a response cut short is not ended as if it were whole
+        Writer out = startJson(exchange, 200);
+        writeEvents(events, zone, out);
+        out.close();
+    }
+
+    /**
+     * This method adds the Event in the body of a request
+     */
+    private void addEvent(HttpExchange exchange) throws IOException {
+        Map<String, String> body = parseObject(readBody(exchange));
+        String name = body.get("name");
+        if(name == null) {
+            throw new IllegalArgumentException("Missing name");
+        }
+        String calendar = body.getOrDefault("calendar", "default");
+        Controller controller = Controller.findInstance(calendar);
+        if(controller == null) {
+            sendError(exchange, 404, "No calendar named " + calendar);
+            return;
+        }
+        Event event = Event.inZone(name, (int) LocalDate.parse(required(body, "date")).toEpochDay(),
+                time(body, "start"), time(body, "end"), zone(body, controller));
+        boolean added = controller.addEvent(event);
+        try(Writer out = startJson(exchange, added ? 201 : 409)) {
+            out.write(added ? "{\"added\":true,\"id\":" + event.getId() + "}"
+                    : "{\"added\":false,\"error\":\"Time conflict\"}");
+        }
+    }
+
+    /**
+     * This method reads the id from a path of the form /events/42
+     *
+     * @return id the id, or 0 if the path does not end in one
+     */
+    private static long eventId(String path) {
+        if(!path.startsWith("/events/") || path.length() == 8 || path.length() > 26) {
+            return 0;
+        }
+        for(int i = 8; i < path.length(); i++) {
+            if(path.charAt(i) < '0' || path.charAt(i) > '9') {
+                return 0;
+            }
+        }
+        return Long.parseLong(path.substring(8));
+    }
+
+    /**
+     * This method returns an Event on GET, changes it on PUT and removes it on DELETE
+     * A PUT body holds the values to change, in the same form as adding an Event, the others are kept
+     */
+    private void eventById(HttpExchange exchange, Map<String, String> query, long id) throws IOException {
+        String name = query.getOrDefault("calendar", "default");
+        Controller controller = Controller.findInstance(name);
+        Event event = controller == null ? null : controller.getEvent(id);
+        if(event == null) {
+            sendError(exchange, 404, "No Event with id " + id + " in calendar " + name);
+            return;
+        }
+        switch(exchange.getRequestMethod()) {
+            case "GET":
+                try(Writer out = startJson(exchange, 200)) {
+                    writeEvents(Collections.singletonList(event), zone(query, controller), out, false);
+                }
+                return;
+            case "PUT":
+                Map<String, String> body = parseObject(readBody(exchange));
+                ZoneDays local = ZoneDays.around(zone(body.containsKey("zone") ? body : query, controller), event,
+                        event);
+                String date = body.get("date");
+                int day = date == null ? local.dayOf(event) : (int) LocalDate.parse(date).toEpochDay();
+                int start = body.containsKey("start") ? time(body, "start") : local.startOf(event);
+                int end = body.containsKey("end") ? time(body, "end") : local.endOf(event);
+                Event changed = local.toEvent(null, day, start, end);
+                if(controller.updateEvent(event, body.getOrDefault("name", event.getName()), changed.getDayKey(),
+                        changed.getStartMinute(), changed.getEndMinute())) {
+                    try(Writer out = startJson(exchange, 200)) {
+                        out.write("{\"updated\":true,\"id\":" + id + "}");
+                    }
+                }
+                else if(controller.getEvent(id) != event) {
+                    sendError(exchange, 404, "No Event with id " + id + " in calendar " + name);
+                }
+                else {
+                    try(Writer out = startJson(exchange, 409)) {
+                        out.write("{\"updated\":false,\"error\":\"Time conflict\"}");
+                    }
+                }
+                return;
+            case "DELETE":
+                if(controller.removeEvent(event)) {
+                    try(Writer out = startJson(exchange, 200)) {
+                        out.write("{\"removed\":true,\"id\":" + id + "}");
+                    }
+                }
+                else {
+                    sendError(exchange, 404, "No Event with id " + id + " in calendar " + name);
+                }
+                return;
+            default:
+                sendError(exchange, 405, "Use GET, PUT or DELETE for " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    /**
+     * This method imports the schedule file in the body of a request, reading it as it arrives
+     */
+    private void importSchedule(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String name = query.getOrDefault("calendar", "default");
+        Controller controller = Controller.findInstance(name);
+        if(controller == null) {
+            sendError(exchange, 404, "No calendar named " + name);
+            return;
+        }
+        ImportResult result;
+        try(InputStream body = exchange.getRequestBody()) {
+            String length = exchange.getRequestHeaders().getFirst("Content-Length");
+            result = new ScheduleImporter(controller).importStream(body, length == null ? -1 : Long.parseLong(length));
+        }
+        try(Writer out = startJson(exchange, 200)) {
+            out.write("{\"linesRead\":" + result.getLinesRead() + ",\"eventsAdded\":" + result.getEventsAdded()
+                    + ",\"eventsRejected\":" + result.getEventsRejected() + ",\"errorCount\":" + result.getErrorCount()
+                    + ",\"errors\":[");
+            boolean first = true;
+            for(ImportResult.LineError error: result.getErrors()) {
+                out.write(first ? "{\"line\":" : ",{\"line\":");
+                out.write(Long.toString(error.getLineNumber()));
+                out.write(",\"message\":");
+                quote(error.getMessage(), out);
+                out.write('}');
+                first = false;
+            }
+            out.write("]}");
+        }
+    }
+
+    /**
+     * This method streams the Events of a calendar in a time interval as iCalendar or CSV
+     */
+    private void export(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String name = query.getOrDefault("calendar", "default");
+        Controller controller = Controller.findInstance(name);
+        if(controller == null) {
+            sendError(exchange, 404, "No calendar named " + name);
+            return;
+        }
+        String format = query.getOrDefault("format", "ics");
+        if(!format.equals("ics") && !format.equals("csv")) {
+            throw new IllegalArgumentException("Format must be ics or csv: " + format);
+        }
+        Calendar start = date(query, "start", controller.getZone());
+        Calendar end = date(query, "end", controller.getZone());
+        exchange.getResponseHeaders().set("Content-Type",
+                format.equals("ics") ? "text/calendar; charset=utf-8" : "text/csv; charset=utf-8");
+        EventExporter exporter = new EventExporter(controller);
+        // not closed if writing fails, so a response cut short is not ended as if it were whole
+        WritableByteChannel out = Channels.newChannel(new ResponseStream(exchange, 200));
+        if(format.equals("ics")) {
+            exporter.writeIcs(out, start, end);
+        }
+        else {
+            exporter.writeCsv(out, start, end);
+        }
+        out.close();
+    }
+
+    /**
+     * This method writes Events as a JSON array, each Event is formatted as it is written
+     * Events come in date order, so the date text is only made again when the day changes
+     */
+    static void writeEvents(List<Event> events, ZoneId zone, Writer out) throws IOException {
+        writeEvents(events, zone, out, true);
+    }
+
+    /**
+     * This method writes Events as JSON objects with their dates and times in a time zone, in an array or alone
+     */
+    private static void writeEvents(List<Event> events, ZoneId zone, Writer out, boolean array) throws IOException {
+        if(array) {
+            out.write('[');
+        }
+        ZoneDays local = events.isEmpty() ? null : ZoneDays.around(zone, events.get(0), events.get(events.size() - 1));
+        int lastDay = 0;
+        String date = null;
+        for(int i = 0; i < events.size(); i++) {
+            Event e = events.get(i);
+            int day = local.dayOf(e);
+            if(date == null || day != lastDay) {
+                lastDay = day;
+                date = LocalDate.ofEpochDay(lastDay).toString();
+            }
+            if(i > 0) {
+                out.write(',');
+            }
+            writeEvent(e, date, local.startOf(e), local.endOf(e), out);
+        }
+        if(array) {
+            out.write(']');
+        }
+    }
+
+    /**
+     * This method writes one Event as a JSON object, with its date already formatted and its local times
+     */
+    private static void writeEvent(Event e, String date, int start, int end, Writer out) throws IOException {
+        out.write("{\"name\":");
+        quote(e.getName(), out);
+        out.write(",\"date\":\"");
+        out.write(date);
+        out.write("\",\"start\":");
+        out.write(Integer.toString(Math.floorDiv(start, 60)));
+        out.write(",\"end\":");
+        out.write(Integer.toString(-Math.floorDiv(-end, 60)));
+        out.write(",\"startMinute\":");
+        out.write(Integer.toString(start));
+        out.write(",\"endMinute\":");
+        out.write(Integer.toString(end));
+        RecurringEvent rule = e.getRecurringEvent();
+        if(rule != null) {
+            out.write(",\"recurring\":true,\"ruleId\":");
+            out.write(Long.toString(rule.getId()));
+        }
+        else {
+            out.write(",\"recurring\":false,\"id\":");
+            out.write(Long.toString(e.getId()));
+        }
+        out.write('}');
+    }
+
+    /**
+     * This method starts a JSON response and returns a writer for its body
+     * A body that fits in the buffer is sent in one piece with its length, a larger one is sent in chunks
+     * as it is written so it is never held in memory
+     */
+    private static Writer startJson(HttpExchange exchange, int status) {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        return new OutputStreamWriter(new ResponseStream(exchange, status), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * This class is creates the stream a response body is written to, it holds the body back until it
+     * outgrows the buffer, so small responses are not split into chunks the client has to wait on
+     */
+    private static class ResponseStream extends OutputStream {
+        private final HttpExchange exchange;
+        private final int status;
+        private byte[] buffer = new byte[WRITE_BUFFER];
+        private int size;
+        private OutputStream body;
+
+        private ResponseStream(HttpExchange exchange, int status) {
+            this.exchange = exchange;
+            this.status = status;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if(body == null && size + length <= buffer.length) {
+                System.arraycopy(bytes, offset, buffer, size, length);
+                size += length;
+                return;
+            }
+            if(body == null) {
+                exchange.sendResponseHeaders(status, 0);
+                body = new BufferedOutputStream(exchange.getResponseBody(), WRITE_BUFFER);
+                body.write(buffer, 0, size);
+                buffer = null;
+            }
+            body.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if(body == null) {
+                exchange.sendResponseHeaders(status, size == 0 ? -1 : size);
+                body = exchange.getResponseBody();
+                body.write(buffer, 0, size);
+            }
+            body.close();
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        try(Writer out = startJson(exchange, status)) {
+            out.write("{\"error\":");
+            quote(message == null ? "" : message, out);
+            out.write('}');
+        }
+    }
+
+    /**
+     * This method writes a string as a quoted JSON string
+     */
+    static void quote(String text, Writer out) throws IOException {
+        out.write('"');
+        if(text != null) {
+            for(int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if(c == '"' || c == '\\') {
+                    out.write('\\');
+                    out.write(c);
+                }
+                else if(c < 0x20) {
+                    out.write(String.format("\\u%04x", (int) c));
+                }
+                else {
+                    out.write(c);
+                }
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * This method reads the time zone named by a zone parameter, or returns the zone of a calendar without one
+     */
+    private static ZoneId zone(Map<String, String> values, Controller controller) {
+        String zone = values.get("zone");
+        return zone == null ? controller.getZone() : ZoneId.of(zone);
+    }
+
+    /**
+     * This method reads a Calendar set to a date in a time zone from a query parameter in the form 2024-03-01
+     */
+    private static Calendar date(Map<String, String> query, String key, ZoneId zone) {
+        LocalDate date = LocalDate.parse(required(query, key));
+        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone(zone));
+        cal.clear();
+        cal.set(date.getYear(), date.getMonthValue() - 1, date.getDayOfMonth());
+        return cal;
+    }
+
+    private static String required(Map<String, String> values, String key) {
+        String value = values.get(key);
+        if(value == null) {
+            throw new IllegalArgumentException("Missing " + key);
+        }
+        return value;
+    }
+
+    /**
+     * This method reads a time of H or H:MM as minutes from the start of the day
+     */
+    private static int time(Map<String, String> values, String key) {
+        String value = required(values, key);
+        int colon = value.indexOf(':');
+        try {
+            if(colon < 0) {
+                return Event.checkMinute(Event.toMinute(Integer.parseInt(value)));
+            }
+            int hour = Integer.parseInt(value.substring(0, colon));
+            int minute = Integer.parseInt(value.substring(colon + 1));
+            if(value.length() - colon != 3 || minute < 0 || minute > 59) {
+                throw new IllegalArgumentException("Not a time: " + key);
+            }
+            return Event.checkMinute(Event.toMinute(hour) + (value.startsWith("-") ? -minute : minute));
+        }
+        catch(NumberFormatException e) {
+            throw new IllegalArgumentException("Not a time: " + key);
+        }
+    }
+
+    /**
+     * This method splits a query string into its decoded parameters
+     */
+    private static Map<String, String> parseQuery(String raw) throws UnsupportedEncodingException {
+        Map<String, String> query = new HashMap<>();
+        if(raw == null || raw.isEmpty()) {
+            return query;
+        }
+        for(String pair: raw.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+        return query;
+    }
+
+    /**
+     * This method reads the body of a small request as text
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = in.read(buffer)) > 0) {
+                bytes.write(buffer, 0, read);
+                if(bytes.size() > MAX_BODY_BYTES) {
+                    throw new IllegalArgumentException("Request body is over " + MAX_BODY_BYTES + " bytes");
+                }
+            }
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * This method parses a flat JSON object whose values are strings, numbers, booleans or null
+     * Every value is returned as its text, a null value is left out
+     *
+     * @param json the text of the object
+     * @return values the values by key
+     */
+    static Map<String, String> parseObject(String json) {
+        Map<String, String> values = new HashMap<>();
+        int[] at = {skipSpace(json, 0)};
+        expect(json, at, '{');
+        if(peek(json, at) == '}') {
+            at[0]++;
+        }
+        else {
+            while(true) {
+                String key = readString(json, at);
+                expect(json, at, ':');
+                String value;
+                if(peek(json, at) == '"') {
+                    value = readString(json, at);
+                }
+                else {
+                    int start = at[0];
+                    while(at[0] < json.length() && ",} \t\r\n".indexOf(json.charAt(at[0])) < 0) {
+                        at[0]++;
+                    }
+                    value = json.substring(start, at[0]);
+                    if(value.isEmpty() || value.charAt(0) == '{' || value.charAt(0) == '[') {
+                        throw new IllegalArgumentException("Only strings, numbers and booleans are allowed for " + key);
+                    }
+                    if(value.equals("null")) {
+                        value = null;
+                    }
+                }
+                if(value != null) {
+                    values.put(key, value);
+                }
+                if(peek(json, at) == ',') {
+                    at[0]++;
+                    continue;
+                }
+                expect(json, at, '}');
+                break;
+            }
+        }
+        if(skipSpace(json, at[0]) != json.length()) {
+            throw new IllegalArgumentException("Text after the JSON object");
+        }
+        return values;
+    }
+
+    private static String readString(String json, int[] at) {
+        expect(json, at, '"');
+        StringBuilder text = new StringBuilder();
+        while(at[0] < json.length()) {
+            char c = json.charAt(at[0]++);
+            if(c == '"') {
+                return text.toString();
+            }
+            if(c != '\\') {
+                text.append(c);
+                continue;
+            }
+            if(at[0] >= json.length()) {
+                break;
+            }
+            char escaped = json.charAt(at[0]++);
+            switch(escaped) {
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'u':
+                    if(at[0] + 4 > json.length()) {
+                        throw new IllegalArgumentException("Bad escape in JSON string");
+                    }
+                    text.append((char) Integer.parseInt(json.substring(at[0], at[0] + 4), 16));
+                    at[0] += 4;
+                    break;
+                default:
+                    text.append(escaped);
+            }
+        }
+        throw new IllegalArgumentException("Unterminated JSON string");
+    }
+
+    private static void expect(String json, int[] at, char c) {
+        if(peek(json, at) != c) {
+            throw new IllegalArgumentException("Expected '" + c + "' at " + at[0] + " in JSON body");
+        }
+        at[0]++;
+    }
+
+    /**
+     * This method skips white space and returns the next character, or 0 at the end of the text
+     */
+    private static char peek(String json, int[] at) {
+        at[0] = skipSpace(json, at[0]);
+        return at[0] < json.length() ? json.charAt(at[0]) : 0;
+    }
+
+    private static int skipSpace(String json, int at) {
+        while(at < json.length() && Character.isWhitespace(json.charAt(at))) {
+            at++;
+        }
+        return at;
+    }
+
+    /**
+     * This method runs the server until the JVM is stopped, loading and saving the default calendar and
+     * writing metrics the same way the GUI does
+     *
+     * @param args the port to listen on, 8080 if none is given
+     * @throws IOException if the port could not be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        Tester.openSavedEvents(Controller.getInstance());
+        Tester.startMetricsReporter();
+        CalendarServer server = new CalendarServer(new InetSocketAddress("localhost", port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(2);
+            Tester.saveEvents(Controller.getInstance());
+        }, "calendar-shutdown"));
+        server.start();
+        System.out.println("Calendar server listening on http://localhost:" + server.getPort());
+    }
+}
@@ -0,0 +1,150 @@
+package project;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is creates an index of Events by day used to find time conflicts
+ * without checking every Event in the Calendar.
+ * An Event is put in the tree of every day its times reach, so an Event that runs overnight is in
+ * its own day's tree and the next day's, with its times moved onto each day. A lookup reads the trees
+ * of the days the checked Event reaches, one for an Event inside a single day. Event limits how far its
+ * times reach, so an Event is never in more than a few trees.
+ * Different days can be changed from different threads, but each day's tree must only be
+ * used by one thread at a time, the Controller holds the locks of those days around every call.
+ *
+ * @author Kyle Cook
+ */
+
+public class ConflictIndex {
+
+    private ConcurrentHashMap<Integer, IntervalTree> days;
+
+    /**
+     * This method constructs an empty ConflictIndex
+     */
+    public ConflictIndex() {
+        days = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * This method returns the number of days that have a tree
+     *
+     * @return count the number of indexed days
+     */
+    public int dayCount() {
+        return days.size();
+    }
+
+    /**
+     * This method finds an indexed Event that has a time conflict with another Event
+     *
+     * @param checkEvent the Event to be checked for time conflicts
+     * @return the conflicting Event, or null if there is none
+     */
+    public Event findConflict(Event checkEvent) {
+        int day = checkEvent.getDayKey();
+        int start = checkEvent.getStartMinute();
+        int end = checkEvent.getEndMinute();
+        int low = Math.min(start, end);
+        int high = Math.max(start, end);
+        for(int offset = Event.firstDayOffset(start, end); offset <= Event.lastDayOffset(start, end); offset++) {
+            IntervalTree tree = days.get(day + offset);
+            if(tree != null) {
+                int shift = offset * Event.MINUTES_PER_DAY;
+                Event found = tree.findConflict(checkEvent, low - shift, high - shift);
+                if(found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * This method adds an Event to the index
+     *
+     * @param event the Event to add
+     */
+    public void add(Event event) {
+        int day = event.getDayKey();
+        int start = event.getStartMinute();
+        int end = event.getEndMinute();
+        for(int offset = Event.firstDayOffset(start, end); offset <= Event.lastDayOffset(start, end); offset++) {
+            IntervalTree tree = days.get(day + offset);
+            if(tree == null) {
+                tree = new IntervalTree();
+                days.put(day + offset, tree);
+            }
+            int shift = offset * Event.MINUTES_PER_DAY;
+            tree.insert(event, Math.min(start, end) - shift, Math.max(start, end) - shift);
+        }
+    }
+
+    /**
+     * This method removes an Event from the index
+     *
+     * @param event the Event to remove
+     * @param day the epoch day the Event was indexed under
+     * @param start the start in minutes the Event was indexed with
+     * @param end the end in minutes the Event was indexed with
+     */
+    public void remove(Event event, int day, int start, int end) {
+        for(int offset = Event.firstDayOffset(start, end); offset <= Event.lastDayOffset(start, end); offset++) {
+            IntervalTree tree = days.get(day + offset);
+            int shift = offset * Event.MINUTES_PER_DAY;
+            if(tree != null && tree.remove(event, start - shift, end - shift) && tree.size() == 0) {
+                days.remove(day + offset);
+            }
+        }
+    }
+
+    /**
+     * This method adds Events that are already in date order, building each new day's tree in one pass
+     * Events that reach other days are added one at a time after their day's tree is built
+     *
+     * @param events the Events to add, sorted by day
+     */
+    public void addSorted(Event[] events) {
+        int from = 0;
+        ArrayList<Event> reaching = new ArrayList<>();
+        while(from < events.length) {
+            int day = events[from].getDayKey();
+            int to = from + 1;
+            while(to < events.length && events[to].getDayKey() == day) {
+                to++;
+            }
+            Event[] run = new Event[to - from];
+            int count = 0;
+            for(int i = from; i < to; i++) {
+                if(reachesOtherDays(events[i])) {
+                    reaching.add(events[i]);
+                }
+                else {
+                    run[count++] = events[i];
+                }
+            }
+            IntervalTree tree = days.get(day);
+            if(tree == null) {
+                if(count > 0) {
+                    days.put(day, IntervalTree.build(Arrays.copyOf(run, count)));
+                }
+            }
+            else {
+                for(int i = 0; i < count; i++) {
+                    tree.insert(run[i]);
+                }
+            }
+            from = to;
+        }
+        for(Event e: reaching) {
+            add(e);
+        }
+    }
+
+    private static boolean reachesOtherDays(Event event) {
+        int start = event.getStartMinute();
+        int end = event.getEndMinute();
+        return Event.firstDayOffset(start, end) != 0 || Event.lastDayOffset(start, end) != 0;
+    }
+}
@@ -1,39 +1,201 @@
 package project;
 
 import java.io.*;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 /**
  * This class is creates a Controller object to manipulate our Calendar.
+ *
+ * Events can be added, changed and queried from any thread. Views read the store without locks.
+ * Writers lock the day they touch, picked from a fixed set of striped locks, and hold it across the
+ * conflict check and the insert, so two overlapping Events can never both be added. An Event that runs
+ * overnight locks every day it reaches, always in stripe order. Adding a recurring
+ * Event, saving, loading and opening the journal lock every stripe.
+ * The navigation Calendar returned by getCalendar belongs to the GUI thread, other threads should use
+ * the view methods that take the period to look at.
+ * View results are cached by the period they cover, a change drops only the results for the days it touched.
+ * Each named calendar has its own Controller, with its own store, conflict index, locks and cache, so
+ * conflicts are only checked within a calendar and the calendars never slow each other down.
+ * Every Event and recurring Event added is given an id, unique within its calendar and kept by snapshots
+ * and the journal, so sync jobs can find, change and remove Events by id with one hash lookup.
+ * Events are stored in UTC and each calendar has a time zone its recurring Events are local to. The views
+ * take their days in the time zone of the Calendar they are given, the viewer's, and still read the store
+ * as one range of days, each Event is placed on its local day from offsets looked up once per view.
  * 
  * @author Kyle Cook
  */
 
 public class Controller {
-	
-    private static Controller controller;
-    private ArrayList<Event> eventsArray;
+
+    private static final int LOCK_STRIPES = 64;
+    private static final int VIEW_CACHE_SIZE = 256;
+    private static final String DEFAULT_NAME = "default";
+    private static final ConcurrentHashMap<String, Controller> CALENDARS = new ConcurrentHashMap<>();
+
+    private final String name;
+
+    private EventStore eventStore;
+    private ConflictIndex conflictIndex;
+    private RuleStore ruleStore;
+    private ViewCache viewCache;
+    private NameIndex nameIndex;
+    private final ConcurrentHashMap<Long, Event> eventsById;
+    private final ConcurrentHashMap<Long, RecurringEvent> rulesById;
+    private final AtomicLong lastId;
+    private final Metrics metrics;
+    private ReentrantLock[] locks;
+    private ReentrantLock[][] stripeLocks;
+    private volatile EventJournal journal;
+    private volatile long generation;
+    private volatile ZoneId zone;
     private Calendar calendar;
 
     /**
      * This method constructs an EventController object that stores events into an array
      * and then uses that array within our Calendar
+     * The GUI uses the single instance from getInstance, tools in this package such as the
+     * benchmarks can build their own
+     */
+    Controller() {
+        this(DEFAULT_NAME);
+    }
+
+    /**
+     * This method constructs the Controller of a named calendar
+     *
+     * @param name the name of the calendar
      */
-    private Controller() {
-        eventsArray = new ArrayList<>();
+    Controller(String name) {
+        this.name = name;
+        eventStore = new EventStore();
+        conflictIndex = new ConflictIndex();
+        ruleStore = new RuleStore();
+        viewCache = new ViewCache(VIEW_CACHE_SIZE);
+        nameIndex = new NameIndex();
+        eventsById = new ConcurrentHashMap<>();
+        rulesById = new ConcurrentHashMap<>();
+        lastId = new AtomicLong();
+        metrics = new Metrics(this);
+        locks = new ReentrantLock[LOCK_STRIPES];
+        stripeLocks = new ReentrantLock[LOCK_STRIPES][];
+        for(int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+            stripeLocks[i] = new ReentrantLock[] {locks[i]};
+        }
+        zone = defaultZone();
+        eventStore.setZone(zone);
         calendar = Calendar.getInstance();
     }
 
+    /**
+     * This method returns the time zone new calendars are in, from the calendar.zone system property
+     * or else the zone of the machine
+     */
+    private static ZoneId defaultZone() {
+        String id = System.getProperty("calendar.zone");
+        if(id != null && !id.isEmpty()) {
+            try {
+                return ZoneId.of(id);
+            }
+            catch(DateTimeException e) {
+                System.err.println("Unknown calendar.zone " + id + ", using " + ZoneId.systemDefault());
+            }
+        }
+        return ZoneId.systemDefault();
+    }
+
     /**
      * This method creates a new controller used to update the Calendar
      * 
      * @return controller the new controller being used to update the Calendar
      */
     public static Controller getInstance() {
-        if(controller == null) {
-            controller = new Controller();
+        return getInstance(DEFAULT_NAME);
+    }
+
+    /**
+     * This method returns the Controller of a named calendar, the calendar is created the first time it is asked for
+     * and its Metrics are registered with JMX
+     *
+     * @param name the name of the calendar
+     * @return controller the Controller holding that calendar's Events
+     */
+    public static Controller getInstance(String name) {
+        Objects.requireNonNull(name, "Calendar name");
+        return CALENDARS.computeIfAbsent(name, n -> {
+            Controller controller = new Controller(n);
+            controller.metrics.register();
+            return controller;
+        });
+    }
+
+    /**
+     * This method returns the Controller of a named calendar only if the calendar has been created
+     *
+     * @param name the name of the calendar
+     * @return controller the Controller holding that calendar's Events, or null if there is none
+     */
+    public static Controller findInstance(String name) {
+        return CALENDARS.get(name);
+    }
+
+    /**
+     * This method returns the names of the calendars created so far
+     *
+     * @return names the calendar names in alphabetical order
+     */
+    public static SortedSet<String> getCalendarNames() {
+        return new TreeSet<>(CALENDARS.keySet());
+    }
+
+    /**
+     * This method returns the name of the calendar this Controller holds
+     *
+     * @return name the calendar name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * This method returns the time zone of the calendar, the zone its recurring Events are local to
+     *
+     * @return zone the time zone of the calendar
+     */
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * This method moves the calendar to another time zone
+     * Single Events are kept in UTC and do not move, recurring Events are local to the calendar's zone,
+     * so the zone can only be changed while the calendar has none
+     *
+     * @param newZone the new time zone of the calendar
+     * @throws IllegalStateException if the calendar holds recurring Events
+     */
+    public void setZone(ZoneId newZone) {
+        Objects.requireNonNull(newZone, "Time zone");
+        lockAll();
+        try {
+            if(ruleStore.size() > 0) {
+                throw new IllegalStateException("The time zone of a calendar with recurring Events cannot change");
+            }
+            zone = newZone;
+            eventStore.setZone(newZone);
+        }
+        finally {
+            unlockAll();
         }
-        return controller;
     }
 
     /**
@@ -87,13 +249,569 @@ public class Controller {
      * @return Boolean the value for whether the event was added (true) or not (false)
      */
     public boolean addEvent(Event eventToAdd) {
-        for(Event e: eventsArray) {
-            if(e.checkConflict(eventToAdd)) {
+        return addEvent(eventToAdd, 0);
+    }
+
+    /**
+     * This method adds an Event, keeping an id it was saved with if no other Event has it
+     */
+    private boolean addEvent(Event eventToAdd, long savedId) {
+        long started = metrics.start();
+        ReentrantLock[] held = locksFor(eventToAdd.getDayKey(), eventToAdd.getStartMinute(), eventToAdd.getEndMinute());
+        lock(held);
+        try {
+            if(eventToAdd.getOwner() != null || conflictIndex.findConflict(eventToAdd) != null
+                    || ruleStore.findConflict(eventToAdd) != null) {
+                metrics.count(Metrics.Counter.EVENTS_REJECTED, 1);
+                return false;
+            }
+            eventToAdd.setId(assignId(eventsById, eventToAdd, savedId));
+            this.eventStore.add(eventToAdd);
+            this.conflictIndex.add(eventToAdd);
+            this.nameIndex.add(eventToAdd);
+            eventToAdd.setOwner(this);
+            EventJournal current = journal;
+            if(current != null) {
+                current.logAdd(eventToAdd);
+            }
+            viewCache.invalidate(eventToAdd.getDayKey(), eventToAdd.getLastDayKey());
+            metrics.count(Metrics.Counter.EVENTS_ADDED, 1);
+            return true;
+        }
+        finally {
+            unlock(held);
+            metrics.record(Metrics.Operation.ADD_EVENT, started);
+        }
+    }
+
+    /**
+     * This method adds a batch of Events all or nothing, either every Event is added or none are
+     * The batch is sorted by day and checked in one pass, each Event against the Calendar and against
+     * the Events before it that reach the same days, while the locks of every day it touches are held
+     *
+     * @param events the Events to add
+     * @return result whether the batch was added and what happened to each Event, in the order they were given
+     */
+    public BatchResult addEvents(Collection<Event> events) {
+        long started = metrics.start();
+        Event[] batch = events.toArray(new Event[0]);
+        // each key holds the day above the position in the batch, so sorting them orders the batch by day
+        // and keeps the given order within a day, the same order single adds would store them in
+        long[] keys = new long[batch.length];
+        for(int i = 0; i < keys.length; i++) {
+            keys[i] = (long) batch[i].getDayKey() << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[batch.length];
+        for(int i = 0; i < order.length; i++) {
+            order[i] = (int) keys[i];
+        }
+
+        ReentrantLock[] held = locksFor(batch);
+        lock(held);
+        try {
+            BatchResult.Outcome[] outcomes = new BatchResult.Outcome[batch.length];
+            Set<Event> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            boolean accepted = true;
+            ConflictIndex accepting = new ConflictIndex();
+            for(int n = 0; n < order.length; n++) {
+                int i = order[n];
+                Event e = batch[i];
+                BatchResult.Outcome outcome;
+                Event conflict;
+                RecurringEvent rule;
+                if(e.getOwner() != null || !seen.add(e)) {
+                    outcome = new BatchResult.Outcome(e, BatchResult.Status.ALREADY_ADDED, null, null);
+                }
+                else if((conflict = conflictIndex.findConflict(e)) != null
+                        || (conflict = accepting.findConflict(e)) != null) {
+                    outcome = new BatchResult.Outcome(e, BatchResult.Status.CONFLICT, conflict, null);
+                }
+                else if((rule = ruleStore.findConflict(e)) != null) {
+                    outcome = new BatchResult.Outcome(e, BatchResult.Status.CONFLICT, rule.findConflict(e), rule);
+                }
+                else {
+                    outcome = new BatchResult.Outcome(e, BatchResult.Status.ACCEPTED, null, null);
+                    accepting.add(e);
+                }
+                accepted &= outcome.getStatus() == BatchResult.Status.ACCEPTED;
+                outcomes[i] = outcome;
+            }
+            if(!accepted) {
+                metrics.count(Metrics.Counter.EVENTS_REJECTED, batch.length);
+                return new BatchResult(Arrays.asList(outcomes), false);
+            }
+
+            Event[] sorted = new Event[batch.length];
+            for(int n = 0; n < order.length; n++) {
+                sorted[n] = batch[order[n]];
+            }
+            eventStore.addSorted(sorted);
+            conflictIndex.addSorted(sorted);
+            EventJournal current = journal;
+            int lastDay = Integer.MIN_VALUE;
+            for(int n = 0; n < sorted.length; n++) {
+                Event e = sorted[n];
+                e.setId(assignId(eventsById, e, 0));
+                nameIndex.add(e);
+                e.setOwner(this);
+                if(current != null) {
+                    current.logAdd(e);
+                }
+                lastDay = Math.max(lastDay, e.getLastDayKey());
+                if(n + 1 == sorted.length || sorted[n + 1].getDayKey() != e.getDayKey()) {
+                    viewCache.invalidate(e.getDayKey(), lastDay);
+                    lastDay = Integer.MIN_VALUE;
+                }
+            }
+            metrics.count(Metrics.Counter.EVENTS_ADDED, sorted.length);
+            return new BatchResult(Arrays.asList(outcomes), true);
+        }
+        finally {
+            unlock(held);
+            metrics.record(Metrics.Operation.ADD_EVENTS, started);
+        }
+    }
+
+    /**
+     * This method removes an Event from the Calendar
+     *
+     * @param eventToRemove the Event to remove
+     * @return Boolean the value for whether the event was removed (true) or was not in the Calendar (false)
+     */
+    public boolean removeEvent(Event eventToRemove) {
+        long started = metrics.start();
+        while(true) {
+            int day = eventToRemove.getDayKey();
+            int start = eventToRemove.getStartMinute();
+            int end = eventToRemove.getEndMinute();
+            ReentrantLock[] held = locksFor(day, start, end);
+            lock(held);
+            try {
+                if(eventToRemove.getOwner() != this) {
+                    metrics.record(Metrics.Operation.REMOVE_EVENT, started);
+                    return false;
+                }
+                if(eventToRemove.getDayKey() != day || eventToRemove.getStartMinute() != start
+                        || eventToRemove.getEndMinute() != end) {
+                    // moved while we waited, lock the days it reaches now instead
+                    continue;
+                }
+                eventStore.remove(eventToRemove, day);
+                conflictIndex.remove(eventToRemove, day, start, end);
+                nameIndex.remove(eventToRemove, eventToRemove.getName(), day);
+                eventsById.remove(eventToRemove.getId(), eventToRemove);
+                eventToRemove.setOwner(null);
+                EventJournal current = journal;
+                if(current != null) {
+                    current.logRemove(eventToRemove);
+                }
+                viewCache.invalidate(day, eventToRemove.getLastDayKey());
+                metrics.count(Metrics.Counter.EVENTS_REMOVED, 1);
+                metrics.record(Metrics.Operation.REMOVE_EVENT, started);
+                return true;
+            }
+            finally {
+                unlock(held);
+            }
+        }
+    }
+
+    /**
+     * This method removes an Event from the Calendar by its id
+     *
+     * @param id the id the Event was given when it was added
+     * @return Boolean the value for whether the event was removed (true) or no Event has that id (false)
+     */
+    public boolean removeEvent(long id) {
+        Event event = eventsById.get(id);
+        return event != null && removeEvent(event);
+    }
+
+    /**
+     * This method returns an Event in the Calendar by its id
+     *
+     * @param id the id the Event was given when it was added
+     * @return event the Event, or null if no Event in the Calendar has that id
+     */
+    public Event getEvent(long id) {
+        return eventsById.get(id);
+    }
+
+    /**
+     * This method returns a recurring Event in the Calendar by its id
+     *
+     * @param id the id the rule was given when it was added
+     * @return rule the recurring Event, or null if no rule in the Calendar has that id
+     */
+    public RecurringEvent getRecurringEvent(long id) {
+        return rulesById.get(id);
+    }
+
+    /**
+     * This method changes the name, date and times of an Event in one step
+     * The new times are checked for conflicts with every other Event and recurring Event in the Calendar,
+     * either all of the values change or none of them do
+     *
+     * @param event the Event to change
+     * @param name the new name of the Event
+     * @param date the new date of the Event, the times are local to its time zone
+     * @param startMinute the new start in minutes from midnight of that date
+     * @param endMinute the new end in minutes from midnight of that date, past 1440 to run overnight
+     * @return Boolean the value for whether the Event was changed (true) or was not in the Calendar or
+     *         had a time conflict (false)
+     */
+    public boolean updateEvent(Event event, String name, Calendar date, int startMinute, int endMinute) {
+        Event utc = Event.inZone(name, Event.dayKey(date), startMinute, endMinute, zoneOf(date));
+        return change(event, name, utc.getDayKey(), utc.getStartMinute(), utc.getEndMinute(), false);
+    }
+
+    /**
+     * This method changes the name, date and times of an Event found by its id in one step
+     *
+     * @param id the id the Event was given when it was added
+     * @param name the new name of the Event
+     * @param date the new date of the Event, the times are local to its time zone
+     * @param startMinute the new start in minutes from midnight of that date
+     * @param endMinute the new end in minutes from midnight of that date, past 1440 to run overnight
+     * @return Boolean the value for whether the Event was changed (true) or no Event has that id or
+     *         it had a time conflict (false)
+     */
+    public boolean updateEvent(long id, String name, Calendar date, int startMinute, int endMinute) {
+        Event event = eventsById.get(id);
+        return event != null && updateEvent(event, name, date, startMinute, endMinute);
+    }
+
+    /**
+     * This method changes an Event to a UTC epoch day and times, only if it is still in this Calendar
+     */
+    boolean updateEvent(Event event, String name, int day, int startMinute, int endMinute) {
+        Event.checkStored(startMinute);
+        Event.checkStored(endMinute);
+        return change(event, name, day, startMinute, endMinute, false);
+    }
+
+    /**
+     * This method deletes one occurrence of a recurring Event by leaving its day out of the rule
+     *
+     * @param occurrence an occurrence from a view or search of this Calendar
+     * @return Boolean the value for whether the occurrence was deleted (true) or it is not an occurrence of
+     *         a rule in this Calendar on that day (false)
+     */
+    public boolean removeOccurrence(Event occurrence) {
+        RecurringEvent rule = occurrence.getRecurringEvent();
+        if(rule == null) {
+            return false;
+        }
+        long started = metrics.start();
+        int day = rule.dayOf(occurrence);
+        // every stripe, so two deletes from the same rule cannot lose each other's exclusion
+        lockAll();
+        try {
+            if(rule.getOwner() != this || !rule.occursOn(day)) {
                 return false;
             }
+            rule.exclude(new int[] {day});
+            EventJournal current = journal;
+            if(current != null) {
+                current.logExclusion(rule, day);
+            }
+            invalidate(rule, day, day);
+            metrics.count(Metrics.Counter.EVENTS_REMOVED, 1);
+            return true;
+        }
+        finally {
+            unlockAll();
+            metrics.record(Metrics.Operation.REMOVE_EVENT, started);
+        }
+    }
+
+    /**
+     * This method drops the cached views that could show a rule's occurrences between two of its local days,
+     * the local days are never more than a day from the UTC days the cache is invalidated by
+     */
+    private void invalidate(RecurringEvent rule, int fromDay, int toDay) {
+        viewCache.invalidate(fromDay - 1, toDay + rule.getRunsAfter() + 1);
+    }
+
+    /**
+     * This method gives an Event or rule its id and makes it findable by it
+     * An id it was saved with is kept if nothing else has it, new ids always count up past every id kept
+     */
+    private <T> long assignId(ConcurrentHashMap<Long, T> byId, T value, long savedId) {
+        if(savedId > 0 && byId.putIfAbsent(savedId, value) == null) {
+            lastId.accumulateAndGet(savedId, Math::max);
+            return savedId;
+        }
+        long id;
+        do {
+            id = lastId.incrementAndGet();
+        }
+        while(byId.putIfAbsent(id, value) != null);
+        return id;
+    }
+
+    /**
+     * This method adds a recurring Event, only its rule is stored and its occurrences are made when a view asks
+     * An occurrence that has a time conflict with an Event or another rule already in the Calendar is left
+     * out of the rule, the same as a single Event with a conflict is not added
+     *
+     * @param rule the recurring Event to add
+     * @return added the number of occurrences that were added, or -1 if the rule was already added
+     */
+    public int addRecurringEvent(RecurringEvent rule) {
+        long started = metrics.start();
+        lockAll();
+        try {
+            return insertRule(rule, 0);
+        }
+        finally {
+            unlockAll();
+            metrics.record(Metrics.Operation.ADD_RECURRING, started);
+        }
+    }
+
+    /**
+     * This method returns the recurring Events whose days overlap a time interval
+     *
+     * @param start the start date of the time interval
+     * @param end the end date of the time interval
+     * @return rules the list of recurring Events that cover any day of the interval, in the calendar's zone
+     */
+    public List<RecurringEvent> getRecurringEvents(Calendar start, Calendar end) {
+        return ruleStore.getActive(Event.dayKey(start), Event.dayKey(end));
+    }
+
+    /**
+     * This method checks a rule against the Calendar and stores it, every lock must be held
+     * The rule takes the calendar's time zone. Other rules are checked rule against rule, first by their
+     * times and week days and only then, for the few whose times clash, on the days this rule happens.
+     * A rule left with no occurrences is not kept.
+     */
+    private int insertRule(RecurringEvent rule, long savedId) {
+        if(rule.getOwner() != null) {
+            return -1;
+        }
+        rule.setZone(zone);
+        int firstDay = rule.getFirstDay();
+        int lastDay = rule.getLastDay();
+        int start = rule.getStartMinute();
+        int end = rule.getEndMinute();
+        ArrayList<RecurringEvent> clashing = new ArrayList<>();
+        for(RecurringEvent other: ruleStore.getReaching(firstDay + Event.firstDayOffset(start, end),
+                lastDay + Event.lastDayOffset(start, end))) {
+            if(rule.hoursConflict(other)) {
+                clashing.add(other);
+            }
+        }
+
+        IntStream.Builder conflicts = IntStream.builder();
+        for(int day = rule.nextDay(firstDay); day <= lastDay; day = rule.nextDay(day + 1)) {
+            if(conflictsOn(rule, clashing, day) || conflictIndex.findConflict(rule.occurrence(day)) != null) {
+                conflicts.add(day);
+            }
+        }
+        rule.exclude(conflicts.build().toArray());
+
+        int added = rule.countOccurrences();
+        if(added == 0) {
+            return 0;
+        }
+        rule.setId(assignId(rulesById, rule, savedId));
+        ruleStore.add(rule);
+        nameIndex.add(rule);
+        rule.setOwner(this);
+        EventJournal current = journal;
+        if(current != null) {
+            current.logRule(rule);
+        }
+        invalidate(rule, firstDay, lastDay);
+        return added;
+    }
+
+    private static boolean conflictsOn(RecurringEvent rule, List<RecurringEvent> others, int day) {
+        for(RecurringEvent other: others) {
+            if(rule.conflictsOn(other, day)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This method changes an Event held by this Controller, it is called by the Event's setters
+     * An Event no longer in the Controller is changed as it is
+     *
+     * @param event the Event being changed
+     * @param name the new name of the Event
+     * @param day the new epoch day of the Event
+     * @param start the new start of the Event in minutes
+     * @param end the new end of the Event in minutes
+     * @return Boolean the value for whether the Event was changed (true) or its new times had a conflict (false)
+     */
+    boolean changeEvent(Event event, String name, int day, int start, int end) {
+        return change(event, name, day, start, end, true);
+    }
+
+    /**
+     * This method moves an Event to its new place in the store and indexes, once its new times are checked for
+     * conflicts with everything but itself. A change of name alone only moves it in the name index.
+     * The change is timed however it ends.
+     */
+    private boolean change(Event event, String name, int day, int start, int end, boolean evenIfNotHeld) {
+        long started = metrics.start();
+        try {
+            return move(event, name, day, start, end, evenIfNotHeld);
+        }
+        finally {
+            metrics.record(Metrics.Operation.CHANGE_EVENT, started);
+        }
+    }
+
+    /**
+     * This method makes the change of an Event under the locks of its old and new days, trying again if the
+     * Event moved before its locks were held
+     */
+    private boolean move(Event event, String name, int day, int start, int end, boolean evenIfNotHeld) {
+        while(true) {
+            int oldDay = event.getDayKey();
+            int oldStart = event.getStartMinute();
+            int oldEnd = event.getEndMinute();
+            boolean[] needed = new boolean[LOCK_STRIPES];
+            markStripes(needed, oldDay, oldStart, oldEnd);
+            markStripes(needed, day, start, end);
+            ReentrantLock[] held = locksFor(needed);
+            lock(held);
+            try {
+                if(event.getOwner() != this) {
+                    if(evenIfNotHeld) {
+                        event.assign(name, day, start, end);
+                    }
+                    return evenIfNotHeld;
+                }
+                if(event.getDayKey() != oldDay || event.getStartMinute() != oldStart
+                        || event.getEndMinute() != oldEnd) {
+                    continue;
+                }
+                boolean moved = day != oldDay || start != oldStart || end != oldEnd;
+                if(moved) {
+                    conflictIndex.remove(event, oldDay, oldStart, oldEnd);
+                    Event moving = Event.stored(name, day, start, end);
+                    if(conflictIndex.findConflict(moving) != null || ruleStore.findConflict(moving) != null) {
+                        conflictIndex.add(event);
+                        return false;
+                    }
+                }
+                Event before = Event.stored(event.getName(), oldDay, oldStart, oldEnd);
+                nameIndex.remove(event, before.getName(), oldDay);
+                if(moved) {
+                    eventStore.remove(event, oldDay);
+                }
+                event.assign(name, day, start, end);
+                if(moved) {
+                    eventStore.add(event);
+                    conflictIndex.add(event);
+                }
+                nameIndex.add(event);
+                EventJournal current = journal;
+                if(current != null) {
+                    current.logModify(before, event);
+                }
+                viewCache.invalidate(oldDay, before.getLastDayKey());
+                viewCache.invalidate(day, event.getLastDayKey());
+                return true;
+            }
+            finally {
+                unlock(held);
+            }
+        }
+    }
+
+    /**
+     * This method returns the locks guarding the days an Event's times reach, one lock unless it reaches midnight
+     */
+    private ReentrantLock[] locksFor(int day, int start, int end) {
+        int first = Event.firstDayOffset(start, end);
+        if(first == Event.lastDayOffset(start, end)) {
+            return stripeLocks[Math.floorMod(day + first, LOCK_STRIPES)];
+        }
+        boolean[] needed = new boolean[LOCK_STRIPES];
+        markStripes(needed, day, start, end);
+        return locksFor(needed);
+    }
+
+    /**
+     * This method returns the locks guarding the days of some Events, in the order every writer takes them
+     */
+    private ReentrantLock[] locksFor(Event[] events) {
+        boolean[] needed = new boolean[LOCK_STRIPES];
+        for(Event e: events) {
+            markStripes(needed, e.getDayKey(), e.getStartMinute(), e.getEndMinute());
+        }
+        return locksFor(needed);
+    }
+
+    /**
+     * This method marks the stripes of the days an Event's times reach
+     */
+    private static void markStripes(boolean[] needed, int day, int start, int end) {
+        int first = Event.firstDayOffset(start, end);
+        int last = Math.min(Event.lastDayOffset(start, end), first + LOCK_STRIPES - 1);
+        for(int offset = first; offset <= last; offset++) {
+            needed[Math.floorMod(day + offset, LOCK_STRIPES)] = true;
+        }
+    }
+
+    /**
+     * This method returns the locks of the marked stripes, in stripe order
+     */
+    private ReentrantLock[] locksFor(boolean[] needed) {
+        int count = 0;
+        int only = 0;
+        for(int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            if(needed[stripe]) {
+                count++;
+                only = stripe;
+            }
+        }
+        if(count == 1) {
+            return stripeLocks[only];
+        }
+        ReentrantLock[] held = new ReentrantLock[count];
+        int next = 0;
+        for(int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            if(needed[stripe]) {
+                held[next++] = locks[stripe];
+            }
+        }
+        return held;
+    }
+
+    private static void lock(ReentrantLock[] held) {
+        for(ReentrantLock lock: held) {
+            lock.lock();
+        }
+    }
+
+    private static void unlock(ReentrantLock[] held) {
+        for(int i = held.length - 1; i >= 0; i--) {
+            held[i].unlock();
+        }
+    }
+
+    /**
+     * This method locks every day, always in the same order so it cannot deadlock with other writers
+     */
+    private void lockAll() {
+        for(ReentrantLock lock: locks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for(int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
         }
-        this.eventsArray.add(eventToAdd);
-        return true;
     }
 
     /**
@@ -102,16 +820,18 @@ public class Controller {
      * @return dayEvents the arrayList of Events that happen on a specific day
      */
     public ArrayList<Event> getDayEvents() {
-        ArrayList<Event> dayEvents = new ArrayList<>();
+        return getDayEvents(calendar);
+    }
 
-        for(int i = 0; i < eventsArray.size(); i++) {
-            if( (eventsArray.get(i).getCal().get(Calendar.YEAR) == calendar.get(Calendar.YEAR)) &&
-                    (eventsArray.get(i).getCal().get(Calendar.MONTH) == calendar.get(Calendar.MONTH)) &&
-                    (eventsArray.get(i).getCal().get(Calendar.DAY_OF_MONTH) == calendar.get(Calendar.DAY_OF_MONTH))) {
-                dayEvents.add(eventsArray.get(i));
-            }
-        }
-        return dayEvents;
+    /**
+     * This method determines which events fall on a given day
+     *
+     * @param date a Calendar set to the day to look at, the day is local to its time zone
+     * @return dayEvents the arrayList of Events that happen on that day
+     */
+    public ArrayList<Event> getDayEvents(Calendar date) {
+        int day = Event.dayKey(date);
+        return view(ViewCache.View.DAY, day, day, zoneOf(date));
     }
 
     /**
@@ -120,116 +840,921 @@ public class Controller {
      * @return monthEvents the arrayList of Events that happen within a specific month
      */
     public ArrayList<Event> getMonthEvents() {
-        ArrayList<Event> monthEvents = new ArrayList<>();
+        return getMonthEvents(calendar);
+    }
 
-        for(int i = 0; i < eventsArray.size(); i++) {
-            if( (eventsArray.get(i).getCal().get(Calendar.YEAR) == calendar.get(Calendar.YEAR)) &&
-                    (eventsArray.get(i).getCal().get(Calendar.MONTH) == calendar.get(Calendar.MONTH))) {
-                monthEvents.add(eventsArray.get(i));
-            }
-        }
-        return monthEvents;
+    /**
+     * This method determines which events fall in the month of a given day
+     *
+     * @param date a Calendar set to a day in the month to look at, the days are local to its time zone
+     * @return monthEvents the arrayList of Events that happen within that month
+     */
+    public ArrayList<Event> getMonthEvents(Calendar date) {
+        int[] month = monthOf(date);
+        return view(ViewCache.View.MONTH, month[0], month[1], zoneOf(date));
+    }
+
+    /**
+     * This method returns the first and last epoch days of the month of a Calendar
+     */
+    private static int[] monthOf(Calendar date) {
+        int firstDay = Event.dayKey(date) - date.get(Calendar.DAY_OF_MONTH) + 1;
+        return new int[] {firstDay, firstDay + date.getActualMaximum(Calendar.DAY_OF_MONTH) - 1};
     }
 
     /**
      * This method determines which events fall under a specific week and creates a list of all these Events
+     * The week is cut off at the edges of the current month, the same as Calendar.WEEK_OF_MONTH
      *
      * @return dayEvents the arrayList of Events that happen within a specific week
      */
     public ArrayList<Event> getWeekEvents() {
-        ArrayList<Event> weekEvents = new ArrayList<>();
+        return getWeekEvents(calendar);
+    }
 
-        for(int i = 0; i < eventsArray.size(); i++) {
-            if( (eventsArray.get(i).getCal().get(Calendar.YEAR) == calendar.get(Calendar.YEAR)) &&
-                    (eventsArray.get(i).getCal().get(Calendar.MONTH) == calendar.get(Calendar.MONTH)) &&
-                    (eventsArray.get(i).getCal().get(Calendar.WEEK_OF_MONTH) == calendar.get(Calendar.WEEK_OF_MONTH))) {
-                weekEvents.add(eventsArray.get(i));
-            }
-        }
-        return weekEvents;
+    /**
+     * This method determines which events fall in the week of a given day
+     * The week is cut off at the edges of the month, the same as Calendar.WEEK_OF_MONTH
+     *
+     * @param date a Calendar set to a day in the week to look at, the days are local to its time zone
+     * @return weekEvents the arrayList of Events that happen within that week
+     */
+    public ArrayList<Event> getWeekEvents(Calendar date) {
+        int[] week = weekOf(date);
+        return view(ViewCache.View.WEEK, week[0], week[1], zoneOf(date));
+    }
+
+    /**
+     * This method returns the first and last epoch days of the week of a Calendar, cut off at the edges of its month
+     */
+    private static int[] weekOf(Calendar date) {
+        int today = Event.dayKey(date);
+        int dayOfMonth = date.get(Calendar.DAY_OF_MONTH);
+        int offset = (date.get(Calendar.DAY_OF_WEEK) - date.getFirstDayOfWeek() + 7) % 7;
+        int firstDay = today - Math.min(offset, dayOfMonth - 1);
+        int lastDay = today + Math.min(6 - offset, date.getActualMaximum(Calendar.DAY_OF_MONTH) - dayOfMonth);
+        return new int[] {firstDay, lastDay};
     }
 
     /**
      * This method determines which events fall under a specific time interval and creates a list of all these Events
      *
-     * @param start the start date of the time interval
+     * @param start the start date of the time interval, the days are local to its time zone
      * @param end the end date of the time interval
      * @return intervalEvents the arrayList of Events that happen within a specific time interval
      */
     public ArrayList<Event> getIntervalEvents(Calendar start, Calendar end) {
-    	
-        ArrayList<Event> intervalEvents = new ArrayList<>();
+        int startDay = Event.dayKey(start);
+        int endDay = Event.dayKey(end);
 
-        for(int i = 0; i < eventsArray.size(); i++) {
-            Calendar cal = eventsArray.get(i).getCal();
+        if(startDay <= endDay) {
+            return view(ViewCache.View.INTERVAL, startDay, endDay, zoneOf(start));
+        }
+        // a reversed interval only matches its two end dates
+        ArrayList<Event> intervalEvents = view(ViewCache.View.DAY, endDay, endDay, zoneOf(end));
+        intervalEvents.addAll(view(ViewCache.View.DAY, startDay, startDay, zoneOf(start)));
+        return intervalEvents;
+    }
 
-            if(checkDates(start, cal) || checkDates(end, cal) || (cal.before(end) && cal.after(start))) {
-                intervalEvents.add(eventsArray.get(i));
-            }
+    /**
+     * This method returns the time zone of a Calendar, the zone its days are read in
+     */
+    private static ZoneId zoneOf(Calendar date) {
+        return date.getTimeZone().toZoneId();
+    }
+
+    /**
+     * This method returns the Events of a view, from the cache when nothing in its days has changed
+     * since it was last asked for
+     *
+     * @param view the view being asked for
+     * @param fromDay the first local epoch day of the view
+     * @param toDay the last local epoch day of the view
+     * @param local the time zone of the view's days
+     * @return events a new arrayList of the Events and occurrences in date order
+     */
+    private ArrayList<Event> view(ViewCache.View view, int fromDay, int toDay, ZoneId local) {
+        long started = metrics.start();
+        ArrayList<Event> cached = viewCache.get(view, fromDay, toDay, local);
+        if(cached != null) {
+            metrics.record(Metrics.Operation.of(view), started);
+            return cached;
+        }
+        ArrayList<Event> events = view(view, ZoneDays.of(local, fromDay, toDay));
+        metrics.record(Metrics.Operation.of(view), started);
+        return events;
+    }
+
+    /**
+     * This method works out the Events of a view and caches them
+     * The store is read as one range of the UTC days the local days reach. In a zone aligned with UTC
+     * that range is the view, otherwise the Events are placed on their local days and the ones outside
+     * the view are left out.
+     *
+     * @param view the view being asked for
+     * @param days the local days of the view
+     * @return events a new arrayList of the Events and occurrences in local date order
+     */
+    private ArrayList<Event> view(ViewCache.View view, ZoneDays days) {
+        long stamp = viewCache.stamp();
+        int fromDay = days.getFirstUtcDay();
+        int toDay = days.getLastUtcDay();
+        ArrayList<Event> stored = fromDay == toDay ? eventStore.getDay(fromDay) : eventStore.getRange(fromDay, toDay);
+        if(!days.isAligned()) {
+            stored = inOrder(days, stored, false);
+        }
+        ArrayList<Event> events = withOccurrences(days, stored, rulesFor(days));
+        viewCache.put(view, days, events, stamp);
+        metrics.count(Metrics.Counter.OCCURRENCES_MADE, events.size() - stored.size());
+        return events;
+    }
+
+    /**
+     * This method returns the cache of view results, for its hit and miss counts
+     *
+     * @return viewCache the cache used by the day, week, month and interval views
+     */
+    public ViewCache getViewCache() {
+        return viewCache;
+    }
+
+    /**
+     * This method returns the latencies and counts recorded for this calendar
+     *
+     * @return metrics the Metrics of this Controller
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * This method returns the number of single Events in the Calendar
+     *
+     * @return count the number of stored Events, not counting occurrences of recurring Events
+     */
+    public int getEventCount() {
+        return eventStore.size();
+    }
+
+    /**
+     * This method returns the number of recurring Events in the Calendar
+     *
+     * @return count the number of stored rules
+     */
+    public int getRecurringEventCount() {
+        return ruleStore.size();
+    }
+
+    int getConflictIndexDays() {
+        return conflictIndex.dayCount();
+    }
+
+    int getNameIndexWords() {
+        return nameIndex.wordCount();
+    }
+
+    /**
+     * This method determines which events of several calendars fall on a given day
+     *
+     * @param calendars the Controllers of the calendars to show together
+     * @param date a Calendar set to the day to look at
+     * @return dayEvents the arrayList of Events of every calendar, in date order
+     */
+    public static ArrayList<Event> getDayEvents(Collection<Controller> calendars, Calendar date) {
+        int day = Event.dayKey(date);
+        return merge(calendars, ZoneDays.of(zoneOf(date), day, day), c -> c.getDayEvents(date));
+    }
+
+    /**
+     * This method determines which events of several calendars fall in the week of a given day
+     * The week is cut off at the edges of the month, the same as Calendar.WEEK_OF_MONTH
+     *
+     * @param calendars the Controllers of the calendars to show together
+     * @param date a Calendar set to a day in the week to look at
+     * @return weekEvents the arrayList of Events of every calendar, in date order
+     */
+    public static ArrayList<Event> getWeekEvents(Collection<Controller> calendars, Calendar date) {
+        int[] week = weekOf(date);
+        return merge(calendars, ZoneDays.of(zoneOf(date), week[0], week[1]), c -> c.getWeekEvents(date));
+    }
+
+    /**
+     * This method determines which events of several calendars fall in the month of a given day
+     *
+     * @param calendars the Controllers of the calendars to show together
+     * @param date a Calendar set to a day in the month to look at
+     * @return monthEvents the arrayList of Events of every calendar, in date order
+     */
+    public static ArrayList<Event> getMonthEvents(Collection<Controller> calendars, Calendar date) {
+        int[] month = monthOf(date);
+        return merge(calendars, ZoneDays.of(zoneOf(date), month[0], month[1]), c -> c.getMonthEvents(date));
+    }
+
+    /**
+     * This method determines which events of several calendars fall under a specific time interval
+     *
+     * @param calendars the Controllers of the calendars to show together
+     * @param start the start date of the time interval
+     * @param end the end date of the time interval
+     * @return intervalEvents the arrayList of Events of every calendar, in the same order as a single calendar
+     */
+    public static ArrayList<Event> getIntervalEvents(Collection<Controller> calendars, Calendar start, Calendar end) {
+        int startDay = Event.dayKey(start);
+        int endDay = Event.dayKey(end);
+        if(startDay <= endDay) {
+            return merge(calendars, ZoneDays.of(zoneOf(start), startDay, endDay), c -> c.getIntervalEvents(start, end));
         }
+        // a reversed interval only matches its two end dates, each one is merged on its own
+        ArrayList<Event> intervalEvents = merge(calendars, ZoneDays.of(zoneOf(end), endDay, endDay),
+                c -> c.getDayEvents(end));
+        intervalEvents.addAll(merge(calendars, ZoneDays.of(zoneOf(start), startDay, startDay),
+                c -> c.getDayEvents(start)));
         return intervalEvents;
     }
 
     /**
-     * This method checks if 2 dates from 2 different Calendars are the same
+     * This method finds the Events of several calendars in a time interval with a name matching a query
      *
-     * @param cal1 the first calendar to check against
-     * @param cal2 the second calendar to check against
-     * @return Boolean the value if there are equal(true) or not(false)
+     * @param calendars the Controllers of the calendars to search together
+     * @param query the words to look for, in any case
+     * @param start the start date of the time interval
+     * @param end the end date of the time interval
+     * @return found the arrayList of matching Events of every calendar, in date order
      */
-    private boolean checkDates(Calendar first, Calendar second) {
-        return (first.get(Calendar.DAY_OF_MONTH) == second.get(Calendar.DAY_OF_MONTH))
-                && (first.get(Calendar.MONTH) == second.get(Calendar.MONTH))
-                && (first.get(Calendar.YEAR) == second.get(Calendar.YEAR));
+    public static ArrayList<Event> searchEvents(Collection<Controller> calendars, String query, Calendar start,
+            Calendar end) {
+        int startDay = Event.dayKey(start);
+        int endDay = Math.max(startDay, Event.dayKey(end));
+        return merge(calendars, ZoneDays.of(zoneOf(start), startDay, endDay), c -> c.searchEvents(query, start, end));
     }
 
     /**
-     * This method reads in a file with Event data, parses the data into desired format
-     * 
-     * @param input the file to be read in
-     * @return Boolean the value of whether the file was read in correct(true) or not(false)
+     * This method merges the date ordered views of several calendars with a k-way merge
+     * Events on the same local day keep the order of the calendars they came from
+     *
+     * @param calendars the Controllers of the calendars to merge
+     * @param days the local days of the views, used to place each Event on its day
+     * @param view the view to read from each calendar
+     * @return merged the arrayList of every calendar's Events in date order
      */
-    public boolean readFile(File input) {
-        char[] weekDays = {'S','M','T','W','H','F','A'};
+    private static ArrayList<Event> merge(Collection<Controller> calendars, ZoneDays days,
+            Function<Controller, ArrayList<Event>> view) {
+        ArrayList<ArrayList<Event>> lists = new ArrayList<>(calendars.size());
+        int total = 0;
+        for(Controller c: calendars) {
+            ArrayList<Event> events = view.apply(c);
+            if(!events.isEmpty()) {
+                lists.add(events);
+                total += events.size();
+            }
+        }
+        if(lists.size() <= 1) {
+            return lists.isEmpty() ? new ArrayList<>() : lists.get(0);
+        }
+
+        // a heap of the lists, ordered by the day of their next Event and then by calendar
+        int[] next = new int[lists.size()];
+        PriorityQueue<Integer> heap = new PriorityQueue<>(lists.size(), (a, b) -> {
+            int byDay = Integer.compare(days.dayOf(lists.get(a).get(next[a])), days.dayOf(lists.get(b).get(next[b])));
+            return byDay != 0 ? byDay : Integer.compare(a, b);
+        });
+        for(int i = 0; i < lists.size(); i++) {
+            heap.add(i);
+        }
+        ArrayList<Event> merged = new ArrayList<>(total);
+        while(!heap.isEmpty()) {
+            int list = heap.poll();
+            ArrayList<Event> events = lists.get(list);
+            int day = days.dayOf(events.get(next[list]));
+            // take the whole run of this day, the other lists cannot have an earlier day
+            do {
+                merged.add(events.get(next[list]++));
+            } while(next[list] < events.size() && days.dayOf(events.get(next[list])) == day);
+            if(next[list] < events.size()) {
+                heap.add(list);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * This method finds the Events in a time interval with a name that has a word starting with each word
+     * of a query, so "stand" finds "Standup" and "Team stand-up" and "team stand" only finds the second
+     * Occurrences of recurring Events with a matching name are found as well
+     *
+     * @param query the words to look for, in any case
+     * @param start the start date of the time interval, the days are local to its time zone
+     * @param end the end date of the time interval
+     * @return found the arrayList of matching Events and occurrences in date order
+     */
+    public ArrayList<Event> searchEvents(String query, Calendar start, Calendar end) {
+        long started = metrics.start();
+        int fromDay = Event.dayKey(start);
+        int toDay = Event.dayKey(end);
+        if(fromDay > toDay) {
+            metrics.record(Metrics.Operation.SEARCH, started);
+            return new ArrayList<>();
+        }
+        ZoneDays days = ZoneDays.of(zoneOf(start), fromDay, toDay);
+        // the index is searched by UTC day for Events and by this calendar's days for rules,
+        // the Events that do not start in the local days are then left out
+        int[] own = ownDays(days);
+        NameIndex.Result found = nameIndex.search(query, Math.min(days.getFirstUtcDay(), own[0]),
+                Math.max(days.getLastUtcDay(), own[1]));
+        ArrayList<Event> matching = inOrder(days, found.getEvents(), true);
+        ArrayList<Event> events = withOccurrences(days, matching, found.getRules());
+        metrics.count(Metrics.Counter.OCCURRENCES_MADE, events.size() - matching.size());
+        metrics.record(Metrics.Operation.SEARCH, started);
+        return events;
+    }
+
+    /**
+     * This method keeps the Events read for a run of local days that are shown in it, in local date order
+     * The store keeps each day's Events in the order they were added, so the Events of a UTC day that
+     * is split across two local days are sorted by local day, keeping their order within a day
+     *
+     * @param days the local days
+     * @param events the Events read for their UTC days, in UTC date order
+     * @param startsOnly whether to keep only the Events that start in the days, as a search does
+     * @return shown the arrayList of Events shown in the days
+     */
+    private static ArrayList<Event> inOrder(ZoneDays days, ArrayList<Event> events, boolean startsOnly) {
+        ArrayList<Event> shown = new ArrayList<>(events.size());
+        boolean sorted = true;
+        int lastDay = Integer.MIN_VALUE;
+        for(Event e: events) {
+            int day = days.dayOf(e);
+            if(startsOnly ? day >= days.getFirstDay() && day <= days.getLastDay() : days.shows(e)) {
+                sorted &= day >= lastDay;
+                lastDay = day;
+                shown.add(e);
+            }
+        }
+        if(!sorted) {
+            shown.sort(Comparator.comparingInt(days::dayOf));
+        }
+        return shown;
+    }
+
+    /**
+     * This method returns the rules that could have occurrences in a run of local days
+     * The rules' days are local to this calendar's zone, so the run is first turned into this calendar's days
+     *
+     * @param days the local days of a view
+     * @return reaching the rules, in order of their first day
+     */
+    private List<RecurringEvent> rulesFor(ZoneDays days) {
+        if(ruleStore.size() == 0) {
+            return Collections.emptyList();
+        }
+        int[] own = ownDays(days);
+        return ruleStore.getReaching(own[0], own[1]);
+    }
+
+    /**
+     * This method returns this calendar's local days that a run of local days reaches, a day either side
+     * so occurrences placed by the part of their times inside a day are found as well
+     */
+    private int[] ownDays(ZoneDays days) {
+        ZoneId own = zone;
+        if(own.equals(days.getZone())) {
+            return new int[] {days.getFirstDay() - 1, days.getLastDay() + 1};
+        }
+        long from = ZoneDays.toLocal(own, days.getStart());
+        long to = ZoneDays.toLocal(own, days.getEnd() - 1);
+        return new int[] {(int) Math.floorDiv(from, Event.MINUTES_PER_DAY) - 1,
+                (int) Math.floorDiv(to, Event.MINUTES_PER_DAY) + 1};
+    }
+
+    /**
+     * This method adds the occurrences of recurring Events to Events read from the store, keeping date order
+     * Only the occurrences shown in the local days are made, along with the ones from earlier days that run
+     * overnight into them, on each day they come after the single Events
+     *
+     * @param days the local days of the range
+     * @param stored the Events from the store shown in the range, in local date order
+     * @param active the recurring Events whose occurrences are added
+     * @return merged the arrayList of Events and occurrences in local date order
+     */
+    private ArrayList<Event> withOccurrences(ZoneDays days, ArrayList<Event> stored, List<RecurringEvent> active) {
+        if(active.isEmpty()) {
+            return stored;
+        }
+        int[] own = ownDays(days);
+        ZoneDays ownDays = zone.equals(days.getZone()) ? days : ZoneDays.of(zone, own[0], own[1]);
+        ArrayList<Event> occurrences = new ArrayList<>();
+        for(RecurringEvent rule: active) {
+            int last = Math.min(own[1], rule.getLastDay());
+            for(int day = rule.nextDay(own[0] - rule.getRunsAfter()); day <= last; day = rule.nextDay(day + 1)) {
+                Event occurrence = rule.occurrence(day, ownDays);
+                if(days.shows(occurrence)) {
+                    occurrences.add(occurrence);
+                }
+            }
+        }
+        occurrences.sort(Comparator.comparingInt(days::dayOf));
+
+        ArrayList<Event> merged = new ArrayList<>(stored.size() + occurrences.size());
+        int next = 0;
+        for(Event occurrence: occurrences) {
+            int day = days.dayOf(occurrence);
+            while(next < stored.size() && days.dayOf(stored.get(next)) <= day) {
+                merged.add(stored.get(next++));
+            }
+            merged.add(occurrence);
+        }
+        merged.addAll(stored.subList(next, stored.size()));
+        return merged;
+    }
+
+    /**
+     * This method returns an iterator over the single Events between two days, in date order
+     * Days are read as the iterator reaches them, it is used by the exporters to stream a long range
+     *
+     * @param fromDay the first epoch day to include
+     * @param toDay the last epoch day to include
+     * @return the iterator over the stored Events, without the occurrences of recurring Events
+     */
+    Iterator<Event> eventIterator(int fromDay, int toDay) {
+        return eventStore.iterator(fromDay, toDay);
+    }
+
+    /**
+     * This method counts the Events on each of a run of days, without looking at the Events themselves
+     *
+     * @param first a Calendar set to the first day to count, the days are local to its time zone
+     * @param days the number of days to count
+     * @return counts the number of Events on each day, counting the ones that run into it overnight,
+     * counts[0] is the first day
+     */
+    public int[] getDayCounts(Calendar first, int days) {
+        int firstDay = Event.dayKey(first);
+        int lastDay = firstDay + days - 1;
+        int[] counts = new int[days];
+        ZoneDays local = days > 0 ? ZoneDays.of(zoneOf(first), firstDay, lastDay) : null;
+        if(local != null && !readsStore(local)) {
+            int[] sums = eventStore.getLocalCounts(local.getZone(), firstDay, days);
+            if(sums != null) {
+                addOccurrences(local, sums, null);
+                return sums;
+            }
+            // the days are not this calendar's, count the Events of the interval view by their local days
+            for(Event e: view(ViewCache.View.INTERVAL, firstDay, lastDay, local.getZone())) {
+                int to = Math.min(local.lastDayOf(e), lastDay);
+                for(int shown = Math.max(local.dayOf(e), firstDay); shown <= to; shown++) {
+                    counts[shown - firstDay]++;
+                }
+            }
+            return counts;
+        }
+        for(int i = 0; i < days; i++) {
+            counts[i] = eventStore.getCount(firstDay + i);
+        }
+        for(RecurringEvent rule: ruleStore.getReaching(firstDay, lastDay)) {
+            int last = Math.min(lastDay, rule.getLastDay());
+            int runs = rule.getRunsAfter();
+            for(int day = rule.nextDay(firstDay - runs); day <= last; day = rule.nextDay(day + 1)) {
+                for(int shown = Math.max(day, firstDay); shown <= Math.min(day + runs, lastDay); shown++) {
+                    counts[shown - firstDay]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * This method finds the booked hours on each of a run of days, without looking at the Events themselves
+     *
+     * @param first a Calendar set to the first day to look at, the days and hours are local to its time zone
+     * @param days the number of days to look at
+     * @return hours a mask for each day with bit h set when the hour from h to h + 1 is booked
+     */
+    public int[] getDayHours(Calendar first, int days) {
+        int firstDay = Event.dayKey(first);
+        int lastDay = firstDay + days - 1;
+        ZoneDays local = days > 0 ? ZoneDays.of(zoneOf(first), firstDay, lastDay) : null;
+        if(local != null && !readsStore(local)) {
+            return localMasks(local)[0];
+        }
+        int[] hours = new int[days];
+        for(int i = 0; i < days; i++) {
+            hours[i] = eventStore.getHours(firstDay + i);
+        }
+        for(RecurringEvent rule: ruleStore.getReaching(firstDay, lastDay)) {
+            int start = rule.getStartMinute();
+            int end = rule.getEndMinute();
+            int from = Event.firstDayOffset(start, end);
+            int to = Event.lastDayOffset(start, end);
+            int last = Math.min(lastDay - from, rule.getLastDay());
+            for(int day = rule.nextDay(firstDay - to); day <= last; day = rule.nextDay(day + 1)) {
+                // an overnight occurrence books hours on each day it reaches
+                for(int offset = from; offset <= to; offset++) {
+                    int shown = day + offset;
+                    if(shown >= firstDay && shown <= lastDay) {
+                        int shift = offset * Event.MINUTES_PER_DAY;
+                        hours[shown - firstDay] |= EventStore.hourMask(start - shift, end - shift);
+                    }
+                }
+            }
+        }
+        return hours;
+    }
+
+    /**
+     * This method checks whether a run of local days can be read from the per-day counts and masks the
+     * stores keep for UTC days, which needs the days to be UTC days and this calendar's recurring Events
+     * to be in UTC. Days in this calendar's own zone are read from the store's sums of its local days instead.
+     */
+    private boolean readsStore(ZoneDays days) {
+        return days.isAligned() && (ruleStore.size() == 0 || ZoneOffset.UTC.equals(zone.normalized()));
+    }
+
+    /**
+     * This method works out the booked hours, zero length starts and ends of each of a run of local days
+     * that are not UTC days, from the store's sums when the days are in this calendar's zone and otherwise
+     * from the interval view
+     *
+     * @param days the local days
+     * @return masks the hours, starts and ends masks, each with one entry per day
+     */
+    private int[][] localMasks(ZoneDays days) {
+        int firstDay = days.getFirstDay();
+        int lastDay = days.getLastDay();
+        int[][] masks = eventStore.getLocalMasks(days.getZone(), firstDay, lastDay);
+        if(masks != null) {
+            addOccurrences(days, null, masks);
+            return masks;
+        }
+        masks = new int[3][lastDay - firstDay + 1];
+        for(Event e: view(ViewCache.View.INTERVAL, firstDay, lastDay, days.getZone())) {
+            int day = days.dayOf(e);
+            int start = days.startOf(e);
+            int end = days.endOf(e);
+            for(int offset = Event.firstDayOffset(start, end); offset <= Event.lastDayOffset(start, end); offset++) {
+                int shown = day + offset;
+                if(shown >= firstDay && shown <= lastDay) {
+                    int shift = offset * Event.MINUTES_PER_DAY;
+                    masks[0][shown - firstDay] |= EventStore.hourMask(start - shift, end - shift);
+                    masks[1][shown - firstDay] |= EventStore.startMark(start - shift, end - shift);
+                    masks[2][shown - firstDay] |= EventStore.endMark(start - shift, end - shift);
+                }
+            }
+        }
+        return masks;
+    }
+
+    /**
+     * This method adds the occurrences of recurring Events to the counts or masks of a run of days in this
+     * calendar's zone. The rules are in this zone, so an occurrence is placed by its own times, unless the
+     * clocks change on a day it reaches, then it is placed by the instants it is moved to like in the views.
+     *
+     * @param days the local days, in this calendar's zone
+     * @param counts the number of Events on each day to add to, or null
+     * @param masks the hours, starts and ends masks of each day to add to, or null
+     */
+    private void addOccurrences(ZoneDays days, int[] counts, int[][] masks) {
+        int firstDay = days.getFirstDay();
+        int lastDay = days.getLastDay();
+        for(RecurringEvent rule: ruleStore.getReaching(firstDay - 1, lastDay + 1)) {
+            int start = rule.getStartMinute();
+            int end = rule.getEndMinute();
+            int from = Event.firstDayOffset(start, end);
+            int to = Event.lastDayOffset(start, end);
+            int last = Math.min(lastDay + 1 - from, rule.getLastDay());
+            for(int day = rule.nextDay(firstDay - 1 - to); day <= last; day = rule.nextDay(day + 1)) {
+                int shownOn = day;
+                int localStart = start;
+                int localEnd = end;
+                long length = days.midnight(day + to + 1L) - days.midnight(day + from);
+                if(length != (to - from + 1L) * Event.MINUTES_PER_DAY) {
+                    Event occurrence = rule.occurrence(day, days);
+                    shownOn = days.dayOf(occurrence);
+                    localStart = days.startOf(occurrence);
+                    localEnd = days.endOf(occurrence);
+                }
+                if(counts != null) {
+                    int runs = Event.runsAfter(localStart, localEnd);
+                    for(int shown = Math.max(shownOn, firstDay); shown <= Math.min(shownOn + runs, lastDay); shown++) {
+                        counts[shown - firstDay]++;
+                    }
+                }
+                if(masks != null) {
+                    for(int offset = Event.firstDayOffset(localStart, localEnd);
+                            offset <= Event.lastDayOffset(localStart, localEnd); offset++) {
+                        int shown = shownOn + offset;
+                        if(shown >= firstDay && shown <= lastDay) {
+                            int shift = offset * Event.MINUTES_PER_DAY;
+                            masks[0][shown - firstDay] |= EventStore.hourMask(localStart - shift, localEnd - shift);
+                            masks[1][shown - firstDay] |= EventStore.startMark(localStart - shift, localEnd - shift);
+                            masks[2][shown - firstDay] |= EventStore.endMark(localStart - shift, localEnd - shift);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * This method finds the first free slot of some length between two days
+     * Days are searched in order and the earliest free hour of a day is taken, on the first day the
+     * search starts at the hour of from
+     *
+     * @param from the day and hour to start searching at, the days and hours are local to its time zone
+     * @param to the last day to search
+     * @param hours the length of the slot in hours, 1 to 24
+     * @return slot an Event without a name holding the free slot, or null if there is none
+     */
+    public Event findFreeSlot(Calendar from, Calendar to, int hours) {
+        long started = metrics.start();
+        Event slot = findFreeSlot(Collections.singletonList(this), from, to, hours);
+        metrics.record(Metrics.Operation.FREE_SLOT, started);
+        return slot;
+    }
+
+    /**
+     * This method finds the first slot of some length that is free in every one of several calendars
+     * Days are searched in order and the earliest hour free in all of them is taken, on the first day the
+     * search starts at the hour of from
+     *
+     * @param calendars the Controllers of the calendars that must all be free
+     * @param from the day and hour to start searching at, the days and hours are local to its time zone
+     * @param to the last day to search
+     * @param hours the length of the slot in hours, 1 to 24
+     * @return slot an Event without a name holding the free slot, or null if there is none
+     */
+    public static Event findFreeSlot(Collection<Controller> calendars, Calendar from, Calendar to, int hours) {
+        if(hours < 1 || hours > 24) {
+            throw new IllegalArgumentException("A slot must be 1 to 24 hours long: " + hours);
+        }
+        int firstDay = Event.dayKey(from);
+        int lastDay = Event.dayKey(to);
+        if(firstDay > lastDay) {
+            return null;
+        }
+        int earliest = -1 << from.get(Calendar.HOUR_OF_DAY);
+        ZoneDays local = ZoneDays.of(zoneOf(from), firstDay, lastDay);
+        // each calendar is read from its store's masks, or from its local day sums or view when they are not UTC days
+        ArrayList<List<RecurringEvent>> rules = new ArrayList<>(calendars.size());
+        ArrayList<int[][]> masks = new ArrayList<>(calendars.size());
+        for(Controller c: calendars) {
+            boolean stored = c.readsStore(local);
+            rules.add(stored ? c.ruleStore.getReaching(firstDay, lastDay) : null);
+            masks.add(stored ? null : c.localMasks(local));
+        }
+
+        for(int day = firstDay; day <= lastDay; day++) {
+            int free = day == firstDay ? earliest : -1;
+            int index = 0;
+            for(Controller c: calendars) {
+                int[][] mask = masks.get(index);
+                int i = day - firstDay;
+                free &= mask == null ? c.freeStarts(rules.get(index), day, hours)
+                        : EventStore.freeStarts(mask[0][i], mask[1][i], mask[2][i], hours);
+                index++;
+                if(free == 0) {
+                    break;
+                }
+            }
+            if(free != 0) {
+                int start = Integer.numberOfTrailingZeros(free);
+                return local.toEvent(null, day, start * 60, (start + hours) * 60);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * This method finds the free starting hours of a day, counting the occurrences of recurring Events,
+     * with the ones from other days that reach it
+     */
+    private int freeStarts(List<RecurringEvent> rules, int day, int length) {
+        int hours = 0;
+        int starts = 0;
+        int ends = 0;
+        for(RecurringEvent rule: rules) {
+            int start = rule.getStartMinute();
+            int end = rule.getEndMinute();
+            for(int offset = Event.firstDayOffset(start, end); offset <= Event.lastDayOffset(start, end); offset++) {
+                if(rule.occursOn(day - offset)) {
+                    int shift = offset * Event.MINUTES_PER_DAY;
+                    hours |= EventStore.hourMask(start - shift, end - shift);
+                    starts |= EventStore.startMark(start - shift, end - shift);
+                    ends |= EventStore.endMark(start - shift, end - shift);
+                }
+            }
+        }
+        return eventStore.getFreeStarts(day, length, hours, starts, ends);
+    }
+
+    /**
+     * This method adds a batch of imported recurring Events, each one is checked for time conflicts
+     * against the Calendar, including the rules added before it in the batch
+     *
+     * @param batch the rules to add, in the order they were read
+     * @return added the number of occurrences that were added
+     */
+    long addImported(List<RecurringEvent> batch) {
+        long added = 0;
+        lockAll();
         try {
-            BufferedReader br = new BufferedReader(new FileReader(input));
-            String line;
-
-            while((line = br.readLine()) != null) {
-                String[] data = line.split(";");
-
-                String name = data[0];
-                int year = Integer.parseInt(data[1]);
-                int monthStart = Integer.parseInt(data[2]);
-                int monthEnd = Integer.parseInt(data[3]);
-                String days = data[4];
-                int hourStart = Integer.parseInt(data[5]);
-                int hourEnd = Integer.parseInt(data[6]);
-
-                Calendar cal = Calendar.getInstance();
-                cal.set(Calendar.YEAR, year);
-                cal.set(Calendar.MONTH, monthStart - 1);
-                cal.set(Calendar.DAY_OF_MONTH, 1);
-
-                do {
-                    char now = weekDays[cal.get(Calendar.DAY_OF_WEEK) - 1];
-                    if(days.contains(String.valueOf(now))) {
-
-                        Calendar eventsCal = Calendar.getInstance();
-                        eventsCal.set(Calendar.YEAR, year);
-                        eventsCal.set(Calendar.MONTH, cal.get(Calendar.MONTH));
-                        eventsCal.set(Calendar.DAY_OF_MONTH, cal.get(Calendar.DAY_OF_MONTH));
-                        addEvent(new Event(name, eventsCal, hourStart, hourEnd));
+            for(RecurringEvent rule: batch) {
+                added += Math.max(insertRule(rule, 0), 0);
+            }
+        }
+        finally {
+            unlockAll();
+        }
+        return added;
+    }
+
+    /**
+     * This method saves every Event and recurring Event to a snapshot file
+     * Once the snapshot is on disk the journal is emptied, since the snapshot holds all of its changes
+     *
+     * @param file the snapshot file to write
+     * @throws IOException if the file could not be written
+     */
+    public void saveSnapshot(File file) throws IOException {
+        long started = metrics.start();
+        lockAll();
+        try {
+            long next = ThreadLocalRandom.current().nextLong();
+            SnapshotFile.write(file, eventStore, ruleStore, zone, next);
+            generation = next;
+            if(journal != null) {
+                journal.reset(next);
+            }
+        }
+        finally {
+            unlockAll();
+            metrics.record(Metrics.Operation.SAVE_SNAPSHOT, started);
+        }
+    }
+
+    /**
+     * This method loads the Events and recurring Events saved in a snapshot file
+     * A snapshot was conflict checked when it was saved, so into an empty Calendar its Events go straight in
+     * and the calendar takes the time zone it was saved in. Loaded into a Calendar that is not empty, its
+     * recurring Events keep their local times in this calendar's zone. Snapshots from before Events were
+     * kept in UTC are read as local to this calendar's zone.
+     *
+     * @param file the snapshot file to read
+     * @return loaded the number of Events added
+     * @throws IOException if the file could not be read
+     */
+    public int loadSnapshot(File file) throws IOException {
+        long started = metrics.start();
+        SnapshotFile.Contents contents = SnapshotFile.read(file, zone);
+        Event[] events = contents.getEvents();
+        lockAll();
+        try {
+            if(eventStore.size() > 0 || ruleStore.size() > 0) {
+                int loaded = 0;
+                for(Event e: events) {
+                    if(addEvent(e, e.getId())) {
+                        loaded++;
                     }
-                    cal.add(Calendar.DAY_OF_MONTH, 1);
+                }
+                for(RecurringEvent rule: contents.getRules()) {
+                    insertRule(rule, rule.getId());
+                }
+                return loaded;
+            }
+            zone = contents.getZone();
+            eventStore.setZone(zone);
+            eventStore.addSorted(events);
+            conflictIndex.addSorted(events);
+            for(Event e: events) {
+                e.setId(assignId(eventsById, e, e.getId()));
+                nameIndex.add(e);
+                e.setOwner(this);
+            }
+            for(RecurringEvent rule: contents.getRules()) {
+                rule.setZone(zone);
+                rule.setId(assignId(rulesById, rule, rule.getId()));
+                ruleStore.add(rule);
+                nameIndex.add(rule);
+                rule.setOwner(this);
+            }
+            viewCache.clear();
+            generation = contents.getGeneration();
+            return events.length;
+        }
+        finally {
+            unlockAll();
+            metrics.record(Metrics.Operation.LOAD_SNAPSHOT, started);
+        }
+    }
 
-                } while((cal.get(Calendar.MONTH) != monthEnd-1));
+    /**
+     * This method replays the changes in a journal file on top of the loaded snapshot and then
+     * keeps appending every add, change and removal to it
+     * Records from before Events were kept in UTC are read as local to this calendar's zone
+     *
+     * @param file the journal file
+     * @param durability how long a change waits before it is safe on disk
+     * @return replayed the number of journal records replayed
+     * @throws IOException if the journal could not be read or opened
+     */
+    public long openJournal(File file, EventJournal.Durability durability) throws IOException {
+        lockAll();
+        try {
+            closeJournal();
+            File parent = file.getAbsoluteFile().getParentFile();
+            if(parent != null) {
+                parent.mkdirs();
             }
-            br.close();
-            return true;
+            long replayed = EventJournal.replay(file, generation, zone, new EventJournal.Replayer() {
+                @Override
+                public void replay(byte type, Event event, Event after) {
+                    replayRecord(type, event, after);
+                }
+
+                @Override
+                public void replayRule(RecurringEvent rule) {
+                    insertRule(rule, rule.getId());
+                }
+
+                @Override
+                public void replayExclusion(long ruleId, int day, boolean moved) {
+                    RecurringEvent rule = rulesById.get(ruleId);
+                    if(rule != null) {
+                        int ruleDay = moved ? day : day + rule.getMovedDays();
+                        rule.exclude(new int[] {ruleDay});
+                        invalidate(rule, ruleDay, ruleDay);
+                    }
+                }
+            });
+            journal = new EventJournal(file, generation, durability, 10);
+            return replayed;
         }
-        catch(Exception e) {
-            return false;
+        finally {
+            unlockAll();
         }
     }
+
+    /**
+     * This method flushes and closes the journal, if one is open
+     *
+     * @throws IOException if the last records could not be written
+     */
+    public void closeJournal() throws IOException {
+        lockAll();
+        try {
+            if(journal != null) {
+                EventJournal closing = journal;
+                journal = null;
+                closing.close();
+            }
+        }
+        finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * This method applies one journal record while the journal is being replayed
+     */
+    private void replayRecord(byte type, Event event, Event after) {
+        if(type == EventJournal.ADD) {
+            addEvent(event, event.getId());
+            return;
+        }
+        // records written before Events had ids, or whose id was taken when they were added, are matched by value
+        Event stored = eventsById.get(event.getId());
+        if(stored == null || !Objects.equals(stored.getName(), event.getName())
+                || stored.getDayKey() != event.getDayKey() || stored.getStartMinute() != event.getStartMinute()
+                || stored.getEndMinute() != event.getEndMinute()) {
+            stored = eventStore.find(event.getName(), event.getDayKey(), event.getStartMinute(), event.getEndMinute());
+        }
+        if(stored == null) {
+            return;
+        }
+        if(type == EventJournal.MODIFY) {
+            changeEvent(stored, after.getName(), after.getDayKey(), after.getStartMinute(), after.getEndMinute());
+        }
+        else if(type == EventJournal.REMOVE) {
+            removeEvent(stored);
+        }
+    }
+
+    /**
+     * This method reads in a file with Event data, parses the data into desired format
+     * 
+     * @param input the file to be read in
+     * @return Boolean the value of whether the file was read in correct(true) or not(false)
+     */
+    public boolean readFile(File input) {
+        return importFile(input).isSuccessful();
+    }
+
+    /**
+     * This method reads in a file with Event data and reports what happened on each line
+     *
+     * @param input the file to be read in
+     * @return result the counts and line errors of the import
+     */
+    public ImportResult importFile(File input) {
+        return new ScheduleImporter(this).importFile(input);
+    }
 }
\ No newline at end of file
@@ -1,35 +1,248 @@
 package project;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.*;
 
 /**
  * This class is creates the Event object that is used in our Calendar GUI
- * 
+ * The date is kept as a day count since 1970-01-01 and the times as minutes from midnight of that day,
+ * a Calendar is only built when one is asked for
+ * The day and times are in UTC, so an Event is the same instants wherever its calendar is looked at from.
+ * Events are made from a local date and times with inZone, or from a Calendar in its own zone, and are
+ * shown in a viewer's zone through ZoneDays.
+ * An Event remembers the zone it was made in, UTC when it was made from a UTC day. The Calendar and hour
+ * getters and setters and toString work in that zone, so they give back the date and hours the Event was
+ * made with. The minute getters and setters work in UTC.
+ * A time that does not happen in the zone, because the clocks skip it going forward, is kept as the instant it
+ * would be had they not, which the clock shows as a time after the gap. Under America/New_York an Event made
+ * from 0:00 to 2:00 on 2024-03-10 is kept and shown from 0:00 to 3:00, which is the two hours it was made for.
+ * A time that happens twice, when the clocks go back, is taken the first time.
+ * An end past 24:00 runs over midnight into the next day, so an Event from 22:00 to 26:30 ends at 2:30
+ * the next morning. The hour constructors and getters are kept for callers that work in whole hours.
+ * Times given for a day are kept from -24:00 to 48:00, so an Event reaches at most the day before and the day after
+ * its own. Kept in UTC they can move up to a day further, so no Event reaches more than 3 days from its own.
+ * An Event given a time outside that range, such as a start at hour 100, is moved whole days so it starts on its
+ * own day, which keeps the same instants. Only an Event that then still ends outside the range is refused, as it
+ * runs longer than an Event can. Files written before times were kept in range are moved the same way as they
+ * are read, see migrated.
+ * Once added, an Event has an id from its Controller it can be found, changed or removed by. Changing an added
+ * Event through its setters is checked for time conflicts like adding it was, a change that would make a
+ * conflict is refused.
+ * With compressed references an Event object is 48 bytes: its header, day, times and id, and its name, recurring
+ * Event, zone and Controller. Added to a Controller with its store and indexes, it takes about 185 bytes.
+ *
  * @author Kyle Cook
  */
 
 public class Event {
+
+    /**
+     * The number of minutes in a day
+     */
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    /**
+     * The earliest time an Event can be given, 24:00 before midnight of its day
+     */
+    public static final int MIN_MINUTE = -MINUTES_PER_DAY;
+
+    /**
+     * The latest time an Event can be given, midnight at the end of the next day
+     */
+    public static final int MAX_MINUTE = 2 * MINUTES_PER_DAY;
+
+    /**
+     * The most days before or after its own day the times of an Event kept in UTC can reach
+     */
+    static final int MAX_REACH_DAYS = (MAX_MINUTE + MINUTES_PER_DAY) / MINUTES_PER_DAY;
+
     private String name;
-    private Calendar cal;
+    private int day;
     private int start;
     private int end;
+    private long id;
+    private RecurringEvent rule;
+    private ZoneId zone;
+    private volatile Controller owner;
 
 
     /**
      * This method constructs an Event object used in the Calendar GUI
      *
      * @param name the name of the Event
-     * @param cal the Calendar the Event is present in
+     * @param cal the Calendar the Event is present in, the hours are read in its time zone
      * @param start the starting hour of the event
      * @param end the end hour of the event
      */
     public Event(String name, Calendar cal, int start, int end) {
+        this(name, dayKey(cal), start, end);
+        this.zone = cal.getTimeZone().toZoneId();
+        Event utc = ZoneDays.toEvent(name, zone, day, this.start, this.end);
+        assign(name, utc.day, utc.start, utc.end);
+    }
+
+    /**
+     * This method constructs an Event object from an epoch day
+     *
+     * @param name the name of the Event
+     * @param day the day the Event falls on, counted in days since 1970-01-01 in UTC
+     * @param start the starting hour of the event in UTC
+     * @param end the end hour of the event in UTC
+     */
+    public Event(String name, int day, int start, int end) {
         this.name = name;
-        this.cal = cal;
-        this.start = start;
-        this.end = end;
+        this.zone = ZoneOffset.UTC;
+        int days = daysToMove(toMinute(start), toMinute(end));
+        this.day = day + days;
+        this.start = moveTime(toMinute(start), days);
+        this.end = moveTime(toMinute(end), days);
+    }
+
+    /**
+     * This method makes an Event with times to the minute
+     *
+     * @param name the name of the Event
+     * @param day the day the Event starts on, counted in days since 1970-01-01 in UTC
+     * @param startMinute the start time in minutes from midnight UTC of that day
+     * @param endMinute the end time in minutes from midnight UTC of that day, past 1440 to run overnight
+     * @return event the new Event
+     */
+    public static Event ofMinutes(String name, int day, int startMinute, int endMinute) {
+        int days = daysToMove(startMinute, endMinute);
+        Event event = new Event(name, day + days, 0, 0);
+        event.start = moveTime(startMinute, days);
+        event.end = moveTime(endMinute, days);
+        return event;
+    }
+
+    /**
+     * This method makes an Event from a local date and times in a time zone
+     * A time skipped when the clocks go forward is moved past the gap, a time that happens twice is taken
+     * the first time, so the local times of the Event can differ from the times given, see the class comment
+     *
+     * @param name the name of the Event
+     * @param day the local day the Event starts on, counted in days since 1970-01-01
+     * @param startMinute the start time in minutes from local midnight of that day
+     * @param endMinute the end time in minutes from local midnight of that day, past 1440 to run overnight
+     * @param zone the time zone of the date and times
+     * @return event the new Event, kept in UTC
+     */
+    public static Event inZone(String name, int day, int startMinute, int endMinute, ZoneId zone) {
+        int days = daysToMove(startMinute, endMinute);
+        return ZoneDays.toEvent(name, zone, day + days, moveTime(startMinute, days), moveTime(endMinute, days));
+    }
+
+    /**
+     * This method makes an Event from instants, placed on the UTC day of another instant
+     *
+     * @param name the name of the Event
+     * @param anchor the instant whose day the Event is kept on, in minutes since 1970-01-01 UTC
+     * @param startMinute the start in minutes since 1970-01-01 UTC
+     * @param endMinute the end in minutes since 1970-01-01 UTC
+     * @return event the new Event
+     */
+    static Event ofInstants(String name, long anchor, long startMinute, long endMinute) {
+        int day = (int) Math.floorDiv(anchor, MINUTES_PER_DAY);
+        long midnight = (long) day * MINUTES_PER_DAY;
+        return stored(name, day, checkStored(startMinute - midnight), checkStored(endMinute - midnight));
+    }
 
-        
+    /**
+     * This method makes an Event from times already kept in UTC, such as an Event read back from a file
+     * They can be up to a day past the times an Event is given, after being moved from a time zone to UTC
+     *
+     * @param name the name of the Event
+     * @param day the UTC day the Event is kept on, counted in days since 1970-01-01
+     * @param startMinute the start in minutes from midnight UTC of that day
+     * @param endMinute the end in minutes from midnight UTC of that day
+     * @return event the new Event
+     */
+    static Event stored(String name, int day, int startMinute, int endMinute) {
+        Event event = new Event(name, day, 0, 0);
+        event.start = checkStored(startMinute);
+        event.end = checkStored(endMinute);
+        return event;
+    }
+
+    /**
+     * This method makes an Event from UTC times read back from a file, an Event from a file written before
+     * times were kept in range is moved the way migrated moves it
+     *
+     * @param name the name of the Event
+     * @param day the UTC day the Event is kept on, counted in days since 1970-01-01
+     * @param startMinute the start in minutes from midnight UTC of that day
+     * @param endMinute the end in minutes from midnight UTC of that day
+     * @return event the new Event
+     */
+    static Event readStored(String name, int day, int startMinute, int endMinute) {
+        long lowest = MIN_MINUTE - MINUTES_PER_DAY;
+        long highest = MAX_MINUTE + MINUTES_PER_DAY;
+        if(startMinute >= lowest && startMinute <= highest && endMinute >= lowest && endMinute <= highest) {
+            return stored(name, day, startMinute, endMinute);
+        }
+        return migrated(name, day, startMinute, endMinute);
+    }
+
+    /**
+     * This method makes an Event from the times of a file written before times were kept from -24:00 to 48:00
+     * Times in range are kept as they are. Otherwise the Event is moved whole days so it starts on its own day,
+     * which keeps its instants, and an end still out of range is cut to the nearest time in range, so an
+     * Event that ran longer than an Event can now ends at 48:00 of the day after it starts.
+     *
+     * @param name the name of the Event
+     * @param day the day the Event is on, counted in days since 1970-01-01
+     * @param startMinute the start in minutes from midnight of that day
+     * @param endMinute the end in minutes from midnight of that day
+     * @return event the new Event, with its times in range
+     */
+    static Event migrated(String name, int day, long startMinute, long endMinute) {
+        int days = daysToMove(startMinute, endMinute);
+        long end = endMinute - (long) days * MINUTES_PER_DAY;
+        Event event = new Event(name, day + days, 0, 0);
+        event.start = moveTime(startMinute, days);
+        event.end = (int) Math.max(MIN_MINUTE, Math.min(MAX_MINUTE, end));
+        return event;
+    }
+
+    /**
+     * This method copies an Event's values, including the recurring Event it is an occurrence of
+     * The copy has not been added, so it has no owner or id
+     *
+     * @return copy the new Event
+     */
+    Event copy() {
+        Event copy = stored(name, day, start, end).withZone(zone);
+        copy.rule = rule;
+        return copy;
+    }
+
+    /**
+     * This method sets the zone the Calendar and hour getters and setters of a new Event work in
+     *
+     * @param newZone the zone the Event's local date and times are in
+     * @return this Event
+     */
+    Event withZone(ZoneId newZone) {
+        this.zone = newZone;
+        return this;
+    }
+
+    /**
+     * This method returns the time zone the Event was made in
+     *
+     * @return zone the zone of getCal, the hour getters and setters and toString
+     */
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * This method returns the days of the Event's zone around the Event, to read its local date and times
+     */
+    private ZoneDays local() {
+        return ZoneDays.around(zone, this, this);
     }
 
     /**
@@ -39,23 +252,97 @@ public class Event {
      * @return Boolean the value of whether there is a conflict(true) or not(false)
      */
     public boolean checkConflict(Event checkEvent) {
-        Calendar checkCal = checkEvent.getCal();
-        if(checkCal.get(Calendar.DAY_OF_MONTH) == cal.get(Calendar.DAY_OF_MONTH) 
-                && (checkCal.get(Calendar.MONTH) == cal.get(Calendar.MONTH))       
-                && (checkCal.get(Calendar.YEAR) == cal.get(Calendar.YEAR))) {
-            if((start >= checkEvent.getStart() && start < checkEvent.getEnd()) || 
-                    (end > checkEvent.getStart() && end <= checkEvent.getEnd()) ||   
-                    (checkEvent.getStart() >= start && checkEvent.getStart() < end) || 
-                    (checkEvent.getEnd() > start && checkEvent.getEnd() <= end)) {
-                return true; 
-            }
+        if(checkEvent.day == day) {
+            return checkConflict(start, end, checkEvent.start, checkEvent.end);
         }
-        return false; 
+        // move the other Event's times onto this Event's day, so an overnight Event meets the next day's
+        long offset = (long) (checkEvent.day - day) * MINUTES_PER_DAY;
+        return checkConflict(start, end, checkEvent.start + offset, checkEvent.end + offset);
+    }
+
+    /**
+     * This method checks if two time ranges measured from the same midnight have a time conflict
+     *
+     * @param start the start of the first range
+     * @param end the end of the first range
+     * @param checkStart the start of the second range
+     * @param checkEnd the end of the second range
+     * @return Boolean the value of whether there is a conflict(true) or not(false)
+     */
+    static boolean checkConflict(long start, long end, long checkStart, long checkEnd) {
+        return (start >= checkStart && start < checkEnd) ||
+                (end > checkStart && end <= checkEnd) ||
+                (checkStart >= start && checkStart < end) ||
+                (checkEnd > start && checkEnd <= end);
+    }
+
+    /**
+     * This method returns the day an Event falls on as a count of days since 1970-01-01
+     *
+     * @return the epoch day of the Event's Calendar date
+     */
+    public int getDayKey() {
+        return day;
+    }
+
+    /**
+     * This method returns the last day an Event runs into, the same as its own day unless it runs past midnight
+     * An Event that ends at exactly midnight does not run into the next day
+     *
+     * @return the epoch day the Event ends on
+     */
+    public int getLastDayKey() {
+        return day + runsAfter(start, end);
+    }
+
+    /**
+     * This method returns how many days past its own day a time range runs, 0 unless it goes past midnight
+     *
+     * @param start the start in minutes
+     * @param end the end in minutes
+     * @return days the number of following days the range has minutes on
+     */
+    static int runsAfter(int start, int end) {
+        return end > start ? Math.max(0, Math.floorDiv(end - 1, MINUTES_PER_DAY)) : 0;
+    }
+
+    /**
+     * This method returns how many days before its own day the times of an Event reach, counting the
+     * end points, so every Event it could have a time conflict with is found on the days it reaches
+     *
+     * @param start the start in minutes
+     * @param end the end in minutes
+     * @return offset the first day reached, relative to the Event's day
+     */
+    static int firstDayOffset(int start, int end) {
+        return Math.floorDiv(Math.min(start, end), MINUTES_PER_DAY);
+    }
+
+    /**
+     * This method returns how many days after its own day the times of an Event reach, counting the end points
+     *
+     * @param start the start in minutes
+     * @param end the end in minutes
+     * @return offset the last day reached, relative to the Event's day
+     */
+    static int lastDayOffset(int start, int end) {
+        return Math.floorDiv(Math.max(start, end), MINUTES_PER_DAY);
+    }
+
+    /**
+     * This method converts the date of a Calendar into a count of days since 1970-01-01
+     *
+     * @param date the Calendar to convert
+     * @return the epoch day of the Calendar's date
+     */
+    public static int dayKey(Calendar date) {
+        return (int) LocalDate.of(date.get(Calendar.YEAR), date.get(Calendar.MONTH) + 1,
+                date.get(Calendar.DAY_OF_MONTH)).toEpochDay();
     }
 
     /**
      * This method returns an Event's name
-     * 
+     *
      * @return name the name of the Event
      */
     public String getName() {
@@ -64,77 +351,346 @@ public class Event {
 
     /**
      * This method sets an Event's new name
-     * 
+     *
      * @return newName the new name of the Event
      */
     public void setName(String newName) {
-        this.name = newName;
+        change(newName, day, start, end);
     }
 
     /**
      * This method returns the Calendar of an Event
-     * 
+     * The Calendar is a new copy in the Event's zone set to midnight of the Event's date there,
+     * changing it does not move the Event
+     *
      * @return cal the Calendar used for the Event
      */
     public Calendar getCal() {
+        LocalDate date = LocalDate.ofEpochDay(local().dayOf(this));
+        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone(zone));
+        cal.clear();
+        cal.set(date.getYear(), date.getMonthValue() - 1, date.getDayOfMonth());
         return cal;
     }
 
     /**
      * This method sets a new Calendar for an Event
-     * 
+     * The Event moves to the date of the Calendar at the same local times, read in the Calendar's zone the
+     * way the constructor reads them, and its zone becomes the Calendar's
+     *
      * @param newCal the Calendar being set for an Event
      */
     public void setCal(Calendar newCal) {
-        this.cal = newCal;
+        ZoneDays days = local();
+        ZoneId newZone = newCal.getTimeZone().toZoneId();
+        moveTo(newZone, dayKey(newCal), days.startOf(this), days.endOf(this));
+        this.zone = newZone;
     }
 
     /**
      * This method returns an Event's starting hour
-     *  
-     * @return start the Event's start hour
+     *
+     * @return start the Event's start hour in its zone, rounded down to a whole hour
      */
     public int getStart() {
-        return start;
+        return Math.floorDiv(local().startOf(this), 60);
     }
 
     /**
      * This method sets an Event's starting hour
-     *  
-     * @param newStart the Event's new start hour
+     *
+     * @param newStart the Event's new start hour in its zone
      */
     public void setStart(int newStart)
     {
-        this.start = newStart;
+        ZoneDays days = local();
+        moveTo(zone, days.dayOf(this), toMinute(newStart), days.endOf(this));
     }
 
     /**
      * This method returns an Event's ending hour
-     *  
-     * @return end the Event's end hour
+     *
+     * @return end the Event's end hour in its zone, rounded up to a whole hour
      */
     public int getEnd()
     {
-        return end;
+        return -Math.floorDiv(-local().endOf(this), 60);
     }
 
     /**
      * This method sets an Event's ending hour
-     * 
-     * @param newEnd the Event's new end hour
+     *
+     * @param newEnd the Event's new end hour in its zone
      */
     public void setEnd(int newEnd)
     {
-        this.end = newEnd;
+        ZoneDays days = local();
+        moveTo(zone, days.dayOf(this), days.startOf(this), toMinute(newEnd));
+    }
+
+    /**
+     * This method moves an Event to a local date and times in a zone
+     */
+    private void moveTo(ZoneId newZone, int newDay, int newStart, int newEnd) {
+        int days = daysToMove(newStart, newEnd);
+        Event utc = ZoneDays.toEvent(name, newZone, newDay + days, moveTime(newStart, days), moveTime(newEnd, days));
+        change(name, utc.day, utc.start, utc.end);
+    }
+
+    /**
+     * This method returns an Event's start time
+     *
+     * @return start the minutes from midnight UTC of the Event's day
+     */
+    public int getStartMinute() {
+        return start;
+    }
+
+    /**
+     * This method returns the instant an Event starts
+     *
+     * @return start the minutes since 1970-01-01 UTC
+     */
+    public long getStartEpochMinute() {
+        return (long) day * MINUTES_PER_DAY + start;
+    }
+
+    /**
+     * This method returns the instant an Event ends
+     *
+     * @return end the minutes since 1970-01-01 UTC
+     */
+    public long getEndEpochMinute() {
+        return (long) day * MINUTES_PER_DAY + end;
+    }
+
+    /**
+     * This method sets an Event's start time
+     *
+     * @param newStart the new start in minutes from midnight of the Event's day
+     */
+    public void setStartMinute(int newStart) {
+        int days = daysToMove(newStart, end);
+        change(name, day + days, moveTime(newStart, days), moveTime(end, days));
+    }
+
+    /**
+     * This method returns an Event's end time
+     *
+     * @return end the minutes from midnight UTC of the Event's day, past 1440 when the Event runs overnight
+     */
+    public int getEndMinute() {
+        return end;
+    }
+
+    /**
+     * This method sets an Event's end time
+     *
+     * @param newEnd the new end in minutes from midnight of the Event's day, past 1440 to run overnight
+     */
+    public void setEndMinute(int newEnd) {
+        int days = daysToMove(start, newEnd);
+        change(name, day + days, moveTime(start, days), moveTime(newEnd, days));
+    }
+
+    /**
+     * This method returns the id the Event was given when it was added, unique within its calendar
+     *
+     * @return id the id of the Event, or 0 if it has never been added
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * This method sets the id the Event is known by in its Controller
+     *
+     * @param id the id of the Event
+     */
+    void setId(long id) {
+        this.id = id;
     }
 
+    /**
+     * This method returns the recurring Event this Event is an occurrence of
+     * An occurrence is made by a view and is not stored, it is removed by excluding its day from the rule
+     *
+     * @return rule the recurring Event, or null for a single Event
+     */
+    public RecurringEvent getRecurringEvent() {
+        return rule;
+    }
+
+    /**
+     * This method sets the recurring Event this Event is an occurrence of
+     *
+     * @param rule the recurring Event that made the occurrence
+     */
+    void setRecurringEvent(RecurringEvent rule) {
+        this.rule = rule;
+    }
+
+    /**
+     * This method returns the Controller the Event was added to
+     *
+     * @return owner the Controller holding the Event, or null if it has not been added
+     */
+    Controller getOwner() {
+        return owner;
+    }
+
+    /**
+     * This method sets the Controller the Event was added to
+     *
+     * @param owner the Controller holding the Event, or null once it is removed
+     */
+    void setOwner(Controller owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * This method changes an Event, an Event that has been added goes through its Controller so
+     * the Controller can check the new times, move it in its indexes and record the change
+     *
+     * @throws IllegalArgumentException if the new times conflict with another Event in the Calendar
+     */
+    private void change(String newName, int newDay, int newStart, int newEnd) {
+        Controller current = owner;
+        if(current != null) {
+            if(!current.changeEvent(this, newName, newDay, newStart, newEnd)) {
+                throw new IllegalArgumentException("Time conflict, the Event was not changed: " + this);
+            }
+        }
+        else {
+            assign(newName, newDay, newStart, newEnd);
+        }
+    }
+
+    /**
+     * This method overwrites all of an Event's values without telling its Controller
+     *
+     * @param newName the new name of the Event
+     * @param newDay the new epoch day of the Event
+     * @param newStart the new start of the Event in minutes
+     * @param newEnd the new end of the Event in minutes
+     */
+    void assign(String newName, int newDay, int newStart, int newEnd) {
+        this.name = newName;
+        this.day = newDay;
+        this.start = checkStored(newStart);
+        this.end = checkStored(newEnd);
+    }
+
+    /**
+     * This method turns an hour into minutes, hours are limited to the range of a short as they always have been
+     *
+     * @param hour the hour to convert
+     * @return the minutes from midnight to the hour
+     */
+    static int toMinute(int hour) {
+        if(hour < Short.MIN_VALUE || hour > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Hour out of range: " + hour);
+        }
+        return hour * 60;
+    }
+
+    /**
+     * This method returns how many days an Event has to move for its times to be in range, none when both are
+     * from -24:00 to 48:00 already and otherwise the days that bring its start onto its own day
+     *
+     * @param startMinute the start given for a day
+     * @param endMinute the end given for the same day
+     * @return days the days to move the Event by
+     */
+    static int daysToMove(long startMinute, long endMinute) {
+        if(startMinute >= MIN_MINUTE && startMinute <= MAX_MINUTE && endMinute >= MIN_MINUTE
+                && endMinute <= MAX_MINUTE) {
+            return 0;
+        }
+        return (int) Math.floorDiv(startMinute, MINUTES_PER_DAY);
+    }
+
+    /**
+     * This method moves a time given for a day onto a day some days later, a time that is then still out of
+     * range belongs to an Event that runs longer than an Event can
+     *
+     * @param minute the time to move
+     * @param days the days the Event moves by, from daysToMove
+     * @return the time from midnight of the new day
+     */
+    static int moveTime(long minute, int days) {
+        long moved = minute - (long) days * MINUTES_PER_DAY;
+        if(moved < MIN_MINUTE || moved > MAX_MINUTE) {
+            throw new IllegalArgumentException("Event runs too long, it would end " + moved
+                    + " minutes from midnight of the day it starts");
+        }
+        return (int) moved;
+    }
+
+    /**
+     * This method checks a time in minutes is within the range an Event can be given, -24:00 to 48:00
+     *
+     * @param minute the time to check
+     * @return the same time
+     */
+    static int checkMinute(int minute) {
+        if(minute < MIN_MINUTE || minute > MAX_MINUTE) {
+            throw new IllegalArgumentException("Time out of range: " + minute + " minutes");
+        }
+        return minute;
+    }
+
+    /**
+     * This method checks a time in minutes is within the range of times an Event kept in UTC can have,
+     * a day either side of the range it can be given
+     *
+     * @param minute the time to check
+     * @return the same time
+     */
+    static int checkStored(long minute) {
+        if(minute < MIN_MINUTE - MINUTES_PER_DAY || minute > MAX_MINUTE + MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Time out of range: " + minute + " minutes");
+        }
+        return (int) minute;
+    }
+
+    /**
+     * This method writes a time as whole hours, the way Events have always been shown, or as hours and minutes
+     *
+     * @param minute the time in minutes from midnight
+     * @return text such as "9" or "9:30", past 24 for a time on the next day and "-0:30" before the day
+     */
+    static String formatTime(int minute) {
+        if(minute < 0) {
+            return "-" + formatTime(-minute);
+        }
+        int minutes = minute % 60;
+        int hour = minute / 60;
+        return minutes == 0 ? Integer.toString(hour) : hour + (minutes < 10 ? ":0" : ":") + minutes;
+    }
+
+    /**
+     * This method writes an Event's values the way toString does
+     *
+     * @param name the name of the Event
+     * @param day the epoch day to show
+     * @param start the start to show in minutes from midnight of that day
+     * @param end the end to show in minutes from midnight of that day
+     * @return text such as "Event: Standup  2024/3/4 Time: (9-9:30)"
+     */
+    static String format(String name, int day, int start, int end) {
+        LocalDate date = LocalDate.ofEpochDay(day);
+        return "Event: " + name + "  " + date.getYear() +
+                "/"+ date.getMonthValue() +"/" + date.getDayOfMonth() + " " +
+                "Time: ("+ formatTime(start) + "-" + formatTime(end)+ ")";
+    }
+
+    /**
+     * This method writes the Event with its date and times in its zone, ZoneDays.format shows it in another zone
+     */
     @Override
     public String toString()
     {
-        int month = cal.get(Calendar.MONTH);
-        month += 1;
-        return "Event: " + name + "  " + cal.get(Calendar.YEAR) +
-                "/"+ month +"/" + cal.get(Calendar.DAY_OF_MONTH) + " " +
-                "Time: ("+ start + "-" + end+ ")";
+        return local().format(this);
     }
 }
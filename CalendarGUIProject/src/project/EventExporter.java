@@ -0,0 +1,444 @@
+package project;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.*;
+
+/**
+ * This class is creates an exporter that writes the Events of a time interval as iCalendar or CSV
+ *
+ * Single Events are read from the Controller's store one day at a time and written as they are read,
+ * so memory use does not grow with the number of Events. A recurring Event is written once, as an
+ * iCalendar RRULE with its excluded days, or as one CSV row with its week days, instead of once per occurrence.
+ * Output goes through a buffered writer on an NIO channel.
+ * The dates of the interval are days of the calendar's time zone. In iCalendar single Events are written in UTC
+ * and recurring Events with the calendar's zone, so they keep their local times when the clocks change.
+ * The zone is written as a VTIMEZONE with its offset changes over the days the recurring Events cover.
+ * In CSV every date and time is local to the calendar's zone, the same as the importer reads them.
+ * A VEVENT's UID is made from the id of its Event or recurring Event, so exporting again, with other Events
+ * added or over another interval, updates the same Events in a client instead of copying them.
+ *
+ * @author Kyle Cook
+ */
+
+public class EventExporter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String[] ICAL_DAYS = {"SU", "MO", "TU", "WE", "TH", "FR", "SA"};
+    private static final String WEEK_DAYS = "SMTWHFA";
+    private static final DateTimeFormatter ICAL_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter ICAL_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private Controller controller;
+
+    /**
+     * This method constructs an EventExporter that reads the Events of a Controller
+     *
+     * @param controller the Controller whose Events are exported
+     */
+    public EventExporter(Controller controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * This method writes the Events of a time interval to an iCalendar file
+     *
+     * @param file the file to write, it is replaced if it exists
+     * @param start the start date of the time interval
+     * @param end the end date of the time interval
+     * @return written the number of VEVENTs written
+     * @throws IOException if the file could not be written
+     */
+    public long exportIcs(File file, Calendar start, Calendar end) throws IOException {
+        try(FileChannel channel = open(file)) {
+            return writeIcs(channel, start, end);
+        }
+    }
+
+    /**
+     * This method writes the Events of a time interval to a CSV file
+     *
+     * @param file the file to write, it is replaced if it exists
+     * @param start the start date of the time interval
+     * @param end the end date of the time interval
+     * @return written the number of rows written, not counting the header
+     * @throws IOException if the file could not be written
+     */
+    public long exportCsv(File file, Calendar start, Calendar end) throws IOException {
+        try(FileChannel channel = open(file)) {
+            return writeCsv(channel, start, end);
+        }
+    }
+
+    /**
+     * This method writes the Events of a time interval to a channel as iCalendar, the channel is left open
+     * Each single Event is a VEVENT, each recurring Event is one VEVENT with an RRULE, cut to the interval
+     *
+     * @param channel the channel to write to
+     * @param start the start date of the time interval
+     * @param end the end date of the time interval
+     * @return written the number of VEVENTs written
+     * @throws IOException if the channel could not be written
+     */
+    public long writeIcs(WritableByteChannel channel, Calendar start, Calendar end) throws IOException {
+        int fromDay = Event.dayKey(start);
+        int toDay = Event.dayKey(end);
+        ZoneId zone = controller.getZone();
+        ZoneDays local = fromDay <= toDay ? ZoneDays.of(zone, fromDay, toDay) : null;
+        String tzid = ZoneOffset.UTC.equals(zone.normalized()) ? null : zone.getId();
+        Writer out = writer(channel);
+        String stamp = LocalDateTime.now(ZoneOffset.UTC).withNano(0).format(ICAL_TIME) + "Z";
+        String domain = "@" + controller.getName() + ".park-calendar";
+        long written = 0;
+
+        line(out, "BEGIN:VCALENDAR");
+        line(out, "VERSION:2.0");
+        line(out, "PRODID:-//PARK Calendar//EN");
+        line(out, "CALSCALE:GREGORIAN");
+        List<RecurringEvent> rules = controller.getRecurringEvents(start, end);
+        if(tzid != null) {
+            int firstShown = Integer.MAX_VALUE;
+            for(RecurringEvent rule: rules) {
+                int first = rule.nextDay(fromDay);
+                if(first <= Math.min(toDay, rule.getLastDay())) {
+                    firstShown = Math.min(firstShown, first);
+                }
+            }
+            if(firstShown <= toDay) {
+                // a day either side covers occurrences that start before midnight or run past it
+                timeZone(out, zone, firstShown - 1, toDay + 1);
+            }
+        }
+        Iterator<Event> events = events(local);
+        int lastDay = 0;
+        String date = null;
+        while(events.hasNext()) {
+            Event e = events.next();
+            if(!starts(local, e)) {
+                continue;
+            }
+            if(date == null || e.getDayKey() != lastDay) {
+                lastDay = e.getDayKey();
+                date = LocalDate.ofEpochDay(lastDay).format(ICAL_DATE);
+            }
+            out.write("BEGIN:VEVENT\r\n");
+            line(out, "UID:e" + e.getId() + domain);
+            out.write("DTSTAMP:" + stamp + "\r\n");
+            times(out, lastDay, date, e.getStartMinute(), e.getEndMinute(), null);
+            line(out, "SUMMARY:" + escape(e.getName()));
+            out.write("END:VEVENT\r\n");
+            written++;
+        }
+
+        for(RecurringEvent rule: rules) {
+            int first = rule.nextDay(fromDay);
+            int last = Math.min(toDay, rule.getLastDay());
+            if(first > last) {
+                continue;
+            }
+            line(out, "BEGIN:VEVENT");
+            line(out, "UID:r" + rule.getId() + domain);
+            line(out, "DTSTAMP:" + stamp);
+            times(out, first, LocalDate.ofEpochDay(first).format(ICAL_DATE), rule.getStartMinute(),
+                    rule.getEndMinute(), tzid);
+            StringBuilder byDay = new StringBuilder();
+            for(int i = 0; i < 7; i++) {
+                if((rule.getWeekDays() & (1 << i)) != 0) {
+                    byDay.append(byDay.length() == 0 ? "" : ",").append(ICAL_DAYS[i]);
+                }
+            }
+            // UNTIL is in UTC when DTSTART has a zone, the last second of the last local day
+            long until = ZoneDays.toUtc(zone, last + 1, 0) * 60 - 1;
+            line(out, "RRULE:FREQ=WEEKLY;BYDAY=" + byDay + ";UNTIL="
+                    + LocalDateTime.ofEpochSecond(until, 0, ZoneOffset.UTC).format(ICAL_TIME) + "Z");
+            for(int day: rule.getExclusions()) {
+                if(day > first && day <= last && (rule.getWeekDays() & (1 << ScheduleImporter.weekDay(day))) != 0) {
+                    line(out, "EXDATE" + zoneParameter(tzid)
+                            + dateTime(day, LocalDate.ofEpochDay(day).format(ICAL_DATE), rule.getStartMinute())
+                            + (tzid == null ? "Z" : ""));
+                }
+            }
+            line(out, "SUMMARY:" + escape(rule.getName()));
+            line(out, "END:VEVENT");
+            written++;
+        }
+        line(out, "END:VCALENDAR");
+        out.flush();
+        return written;
+    }
+
+    /**
+     * This method writes the Events of a time interval to a channel as CSV, the channel is left open
+     * The columns are type,name,date,start,end,until,days,exclusions, a single Event leaves the last three empty,
+     * times are written as H or H:MM like the importer reads them
+     * and a recurring Event is one row from its first day in the interval to its last, with its week days
+     * in the same letters the importer reads and its excluded days split by spaces
+     *
+     * @param channel the channel to write to
+     * @param start the start date of the time interval
+     * @param end the end date of the time interval
+     * @return written the number of rows written, not counting the header
+     * @throws IOException if the channel could not be written
+     */
+    public long writeCsv(WritableByteChannel channel, Calendar start, Calendar end) throws IOException {
+        int fromDay = Event.dayKey(start);
+        int toDay = Event.dayKey(end);
+        ZoneDays local = fromDay <= toDay ? ZoneDays.of(controller.getZone(), fromDay, toDay) : null;
+        Writer out = writer(channel);
+        long written = 0;
+
+        out.write("type,name,date,start,end,until,days,exclusions\r\n");
+        Iterator<Event> events = events(local);
+        int lastDay = 0;
+        String date = null;
+        while(events.hasNext()) {
+            Event e = events.next();
+            if(!starts(local, e)) {
+                continue;
+            }
+            int day = local.dayOf(e);
+            if(date == null || day != lastDay) {
+                lastDay = day;
+                date = LocalDate.ofEpochDay(lastDay).toString();
+            }
+            out.write("event,");
+            csv(out, e.getName());
+            out.write("," + date + "," + Event.formatTime(local.startOf(e)) + ","
+                    + Event.formatTime(local.endOf(e)) + ",,,\r\n");
+            written++;
+        }
+
+        for(RecurringEvent rule: controller.getRecurringEvents(start, end)) {
+            int first = rule.nextDay(fromDay);
+            int last = Math.min(toDay, rule.getLastDay());
+            if(first > last) {
+                continue;
+            }
+            StringBuilder days = new StringBuilder();
+            for(int i = 0; i < 7; i++) {
+                if((rule.getWeekDays() & (1 << i)) != 0) {
+                    days.append(WEEK_DAYS.charAt(i));
+                }
+            }
+            StringBuilder exclusions = new StringBuilder();
+            for(int day: rule.getExclusions()) {
+                if(day > first && day <= last) {
+                    exclusions.append(exclusions.length() == 0 ? "" : " ").append(LocalDate.ofEpochDay(day));
+                }
+            }
+            out.write("recurring,");
+            csv(out, rule.getName());
+            out.write("," + LocalDate.ofEpochDay(first) + "," + Event.formatTime(rule.getStartMinute()) + ","
+                    + Event.formatTime(rule.getEndMinute()) + "," + LocalDate.ofEpochDay(last) + "," + days + ","
+                    + exclusions + "\r\n");
+            written++;
+        }
+        out.flush();
+        return written;
+    }
+
+    /**
+     * This method returns an iterator over the stored Events of the UTC days a run of local days reaches
+     */
+    private Iterator<Event> events(ZoneDays local) {
+        return local == null ? Collections.emptyIterator()
+                : controller.eventIterator(local.getFirstUtcDay(), local.getLastUtcDay());
+    }
+
+    /**
+     * This method checks whether a stored Event starts on one of a run of local days
+     */
+    private static boolean starts(ZoneDays local, Event e) {
+        int day = local.dayOf(e);
+        return day >= local.getFirstDay() && day <= local.getLastDay();
+    }
+
+    private static FileChannel open(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * This method wraps a channel in a buffered UTF-8 writer, flushing the writer does not close the channel
+     */
+    private static Writer writer(WritableByteChannel channel) {
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE),
+                BUFFER_SIZE);
+    }
+
+    /**
+     * This method returns the TZID parameter of a time and the colon after it, or only the colon for UTC
+     * A zone id such as +05:00 is quoted, the colon would otherwise end the parameters
+     */
+    private static String zoneParameter(String tzid) {
+        if(tzid == null) {
+            return ":";
+        }
+        boolean quote = tzid.indexOf(':') >= 0 || tzid.indexOf(';') >= 0 || tzid.indexOf(',') >= 0;
+        return ";TZID=" + (quote ? "\"" + tzid + "\"" : tzid) + ":";
+    }
+
+    /**
+     * This method writes the VTIMEZONE of a zone for the local days between two days
+     * The first observance is the offset in force at the start of the first day, then each change of offset
+     * before the end of the last day is an observance from the local time the clocks change, as iCalendar
+     * reads it in the offset before the change
+     */
+    private static void timeZone(Writer out, ZoneId zone, int fromDay, int toDay) throws IOException {
+        ZoneRules rules = zone.getRules();
+        Instant from = Instant.ofEpochSecond(ZoneDays.toUtc(zone, fromDay, 0) * 60);
+        Instant to = Instant.ofEpochSecond(ZoneDays.toUtc(zone, toDay + 1, 0) * 60);
+        ZoneOffset offset = rules.getOffset(from);
+        line(out, "BEGIN:VTIMEZONE");
+        line(out, "TZID:" + zone.getId());
+        observance(out, rules.isDaylightSavings(from), LocalDateTime.ofEpochSecond(from.getEpochSecond(), 0, offset),
+                offset, offset);
+        ZoneOffsetTransition change = rules.nextTransition(from);
+        while(change != null && change.getInstant().isBefore(to)) {
+            observance(out, rules.isDaylightSavings(change.getInstant()), change.getDateTimeBefore(),
+                    change.getOffsetBefore(), change.getOffsetAfter());
+            change = rules.nextTransition(change.getInstant());
+        }
+        line(out, "END:VTIMEZONE");
+    }
+
+    /**
+     * This method writes one STANDARD or DAYLIGHT observance of a VTIMEZONE
+     */
+    private static void observance(Writer out, boolean daylight, LocalDateTime start, ZoneOffset before,
+            ZoneOffset after) throws IOException {
+        String kind = daylight ? "DAYLIGHT" : "STANDARD";
+        line(out, "BEGIN:" + kind);
+        line(out, "DTSTART:" + start.format(ICAL_TIME));
+        line(out, "TZOFFSETFROM:" + utcOffset(before));
+        line(out, "TZOFFSETTO:" + utcOffset(after));
+        line(out, "END:" + kind);
+    }
+
+    /**
+     * This method writes an offset from UTC as iCalendar does, such as -0500 or +0530
+     */
+    private static String utcOffset(ZoneOffset offset) {
+        int seconds = offset.getTotalSeconds();
+        int magnitude = Math.abs(seconds);
+        String text = String.format(Locale.ROOT, "%s%02d%02d", seconds < 0 ? "-" : "+", magnitude / 3600,
+                magnitude / 60 % 60);
+        return magnitude % 60 == 0 ? text : text + String.format(Locale.ROOT, "%02d", magnitude % 60);
+    }
+
+    /**
+     * This method writes the start and end of an Event in minutes, times past 24:00 fall on the next day
+     * and an end that is not after the start is written as a zero length
+     * The times are in UTC when tzid is null, otherwise they are local to the zone it names
+     */
+    private static void times(Writer out, int day, String date, int start, int end, String tzid) throws IOException {
+        String param = zoneParameter(tzid);
+        String utc = tzid == null ? "Z" : "";
+        out.write("DTSTART" + param);
+        out.write(dateTime(day, date, start) + utc);
+        if(end > start) {
+            out.write("\r\nDTEND" + param);
+            out.write(dateTime(day, date, end) + utc);
+            out.write("\r\n");
+        }
+        else {
+            out.write("\r\nDURATION:PT0S\r\n");
+        }
+    }
+
+    /**
+     * This method writes the local date and time of a minute of a day, the date text of the day is passed in
+     * so a run of Events on the same day only formats it once
+     */
+    private static String dateTime(int day, String date, int minute) {
+        if(minute >= 0 && minute < Event.MINUTES_PER_DAY) {
+            int hour = minute / 60;
+            int minutes = minute % 60;
+            return date + (hour < 10 ? "T0" : "T") + hour + (minutes < 10 ? "0" : "") + minutes + "00";
+        }
+        return LocalDate.ofEpochDay(day).atStartOfDay().plusMinutes(minute).format(ICAL_TIME);
+    }
+
+    /**
+     * This method writes one iCalendar content line, folding it so no line is over 75 octets
+     */
+    private static void line(Writer out, String text) throws IOException {
+        if(text.length() <= 75 && fitsLine(text)) {
+            out.write(text);
+            out.write("\r\n");
+            return;
+        }
+        int octets = 0;
+        for(int i = 0; i < text.length(); i += Character.charCount(text.codePointAt(i))) {
+            int c = text.codePointAt(i);
+            int size = c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;
+            if(octets + size > 75) {
+                out.write("\r\n ");
+                octets = 1;
+            }
+            out.write(Character.toChars(c));
+            octets += size;
+        }
+        out.write("\r\n");
+    }
+
+    private static boolean fitsLine(String text) {
+        int octets = 0;
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            octets += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+        }
+        return octets <= 75;
+    }
+
+    /**
+     * This method escapes the text of an iCalendar value
+     */
+    static String escape(String text) {
+        if(text == null) {
+            return "";
+        }
+        StringBuilder escaped = new StringBuilder(text.length());
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c == '\\' || c == ';' || c == ',') {
+                escaped.append('\\').append(c);
+            }
+            else if(c == '\n') {
+                escaped.append("\\n");
+            }
+            else if(c != '\r') {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * This method writes a CSV field, quoted when it holds a comma, quote or line break
+     */
+    private static void csv(Writer out, String text) throws IOException {
+        if(text == null) {
+            return;
+        }
+        if(text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        out.write(text.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -0,0 +1,588 @@
+package project;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.zip.CRC32;
+
+/**
+ * This class is creates an append-only journal of the changes made to the Calendar's Events,
+ * so changes made since the last snapshot can be replayed after a crash
+ *
+ * Callers only copy their record into a memory buffer, a background thread writes the buffer
+ * out and forces it to disk, so one fsync covers every record appended since the last one.
+ * The file starts with a header naming the snapshot generation it follows and each record is
+ *
+ *   int length, int crc32, byte type, long id, event values (and the new values for a modify)
+ *
+ * or for a recurring Event, int length, int crc32, byte type, long id, rule values
+ *
+ * or for an occurrence that was deleted, int length, int crc32, byte type, long rule id, int day
+ *
+ * Times are int minutes, marked by the MINUTES bit of the type. Records from before minutes were kept
+ * do not have the bit and hold their times as short hours, they are still replayed.
+ * The id is marked by the IDS bit, records from before Events had ids do not have it or the id.
+ * Event times are in UTC, marked by the UTC bit. Records without it were written local to the calendar's
+ * time zone and are moved to UTC as they are replayed. Recurring Events are always local to that zone.
+ * Records written before times were kept from -24:00 to 48:00 can hold times outside that range. Their Events
+ * and recurring Events are moved whole days as they are replayed, see Event.migrated, so they keep their instants.
+ * The day of a deleted occurrence moves with its recurring Event, unless the record has the MOVED bit, which
+ * marks days written for a recurring Event as it is kept now.
+ *
+ * @author Kyle Cook
+ */
+
+public class EventJournal implements Closeable {
+
+    /**
+     * This enum lists how long a change waits before it is safe on disk
+     */
+    public enum Durability {
+        /** records are written to the file but never forced, a crash of the machine can lose them */
+        BUFFERED,
+        /** records are forced to disk in the background every flush interval, callers never wait */
+        BATCHED,
+        /** callers wait for the next group fsync that covers their record */
+        SYNC
+    }
+
+    /**
+     * This interface is handed each record found when a journal is replayed
+     */
+    interface Replayer {
+
+        /**
+         * This method applies one record
+         *
+         * @param type ADD, MODIFY or REMOVE
+         * @param event the Event the record is about, as it was before a modify
+         * @param after the Event's values after a modify, or null for other records
+         */
+        void replay(byte type, Event event, Event after);
+
+        /**
+         * This method applies a record of a recurring Event being added
+         *
+         * @param rule the recurring Event that was added, without the days it left out
+         */
+        void replayRule(RecurringEvent rule);
+
+        /**
+         * This method applies a record of an occurrence of a recurring Event being deleted
+         *
+         * @param ruleId the id of the recurring Event
+         * @param day the epoch day that was left out of it
+         * @param moved true if the day is of the recurring Event as it is kept now, false if it was written before
+         * recurring Events were moved into range and moves with the recurring Event
+         */
+        void replayExclusion(long ruleId, int day, boolean moved);
+    }
+
+    static final byte ADD = 1;
+    static final byte MODIFY = 2;
+    static final byte REMOVE = 3;
+    static final byte RULE = 4;
+    static final byte EXCLUDE = 5;
+
+    private static final byte MINUTES = 0x10;
+    private static final byte IDS = 0x20;
+    private static final byte UTC = 0x40;
+    private static final byte MOVED = 0x08;
+
+    private static final int MAGIC = 0x504B434A;
+    private static final int HEADER_SIZE = 12;
+
+    private final FileChannel channel;
+    private final Durability durability;
+    private final long flushIntervalMillis;
+    private final Object lock = new Object();
+    private final Thread flusher;
+
+    private ByteBuffer pending;
+    private ByteBuffer writing;
+    private int pendingRecords;
+    private long appended;
+    private long synced;
+    private boolean flushWanted;
+    private boolean writingOut;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * This method opens a journal for appending, records left from before are kept if they follow the
+     * same snapshot generation and a record cut short by a crash is dropped
+     *
+     * @param file the journal file
+     * @param generation the generation of the snapshot the journal follows
+     * @param durability how long a change waits before it is safe on disk
+     * @param flushIntervalMillis how long BUFFERED and BATCHED records gather before they are written out
+     * @throws IOException if the journal could not be opened
+     */
+    public EventJournal(File file, long generation, Durability durability, long flushIntervalMillis)
+            throws IOException {
+        this.durability = durability;
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.pending = ByteBuffer.allocate(1 << 16);
+        this.writing = ByteBuffer.allocate(1 << 16);
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if(readGeneration(channel) != generation) {
+            writeHeader(generation);
+        }
+        else {
+            channel.truncate(scan(channel, null, null));
+        }
+        channel.position(channel.size());
+
+        flusher = new Thread(this::flushLoop, "calendar-journal");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * This method replays the records of a journal file that follow a snapshot generation
+     * A journal written after a different snapshot is skipped, since that snapshot already holds its changes
+     *
+     * @param file the journal file
+     * @param generation the generation of the snapshot that was loaded
+     * @param legacyZone the zone the Events of records without the UTC bit are local to
+     * @param replayer the handler applying each record
+     * @return count the number of records replayed
+     * @throws IOException if the journal could not be read
+     */
+    static long replay(File file, long generation, ZoneId legacyZone, Replayer replayer) throws IOException {
+        if(!file.exists()) {
+            return 0;
+        }
+        try(FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if(readGeneration(in) != generation) {
+                return 0;
+            }
+            long[] count = new long[1];
+            scan(in, legacyZone, new Replayer() {
+                @Override
+                public void replay(byte type, Event event, Event after) {
+                    count[0]++;
+                    replayer.replay(type, event, after);
+                }
+
+                @Override
+                public void replayRule(RecurringEvent rule) {
+                    count[0]++;
+                    replayer.replayRule(rule);
+                }
+
+                @Override
+                public void replayExclusion(long ruleId, int day, boolean moved) {
+                    count[0]++;
+                    replayer.replayExclusion(ruleId, day, moved);
+                }
+            });
+            return count[0];
+        }
+    }
+
+    /**
+     * This method records that an Event was added
+     *
+     * @param event the Event that was added
+     */
+    public void logAdd(Event event) {
+        append(ADD, event, null);
+    }
+
+    /**
+     * This method records that an Event was changed
+     *
+     * @param before the values of the Event before the change
+     * @param after the Event after the change
+     */
+    public void logModify(Event before, Event after) {
+        append(MODIFY, before, after);
+    }
+
+    /**
+     * This method records that an Event was removed
+     *
+     * @param event the Event that was removed
+     */
+    public void logRemove(Event event) {
+        append(REMOVE, event, null);
+    }
+
+    /**
+     * This method records that a recurring Event was added
+     * The days it left out are not written, replaying the record finds the same conflicts again
+     *
+     * @param rule the recurring Event that was added
+     */
+    public void logRule(RecurringEvent rule) {
+        synchronized(lock) {
+            byte[] name = nameBytes(rule.getName());
+            int start = beginRecord(38 + (name == null ? 0 : name.length));
+            pending.put((byte) (RULE | MINUTES | IDS));
+            pending.putLong(rule.getId());
+            pending.putInt(rule.getFirstDay());
+            pending.putInt(rule.getLastDay());
+            pending.put((byte) rule.getWeekDays());
+            pending.putInt(rule.getStartMinute());
+            pending.putInt(rule.getEndMinute());
+            putName(name);
+            endRecord(start);
+        }
+    }
+
+    /**
+     * This method records that one occurrence of a recurring Event was deleted
+     *
+     * @param rule the recurring Event
+     * @param day the epoch day that was left out of it
+     */
+    public void logExclusion(RecurringEvent rule, int day) {
+        synchronized(lock) {
+            int start = beginRecord(21);
+            pending.put((byte) (EXCLUDE | IDS | MOVED));
+            pending.putLong(rule.getId());
+            pending.putInt(day);
+            endRecord(start);
+        }
+    }
+
+    /**
+     * This method writes out and forces every record appended so far
+     *
+     * @throws IOException if the journal could not be written
+     */
+    public void flush() throws IOException {
+        synchronized(lock) {
+            long target = appended;
+            flushWanted = true;
+            lock.notifyAll();
+            while(synced < target && failure == null) {
+                waitOn(0);
+            }
+            if(failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * This method empties the journal once a snapshot holding all of its changes has been saved
+     *
+     * @param generation the generation of the new snapshot
+     * @throws IOException if the journal could not be reset
+     */
+    public void reset(long generation) throws IOException {
+        synchronized(lock) {
+            while(writingOut) {
+                waitOn(0);
+            }
+            pending.clear();
+            pendingRecords = 0;
+            synced = appended;
+            writeHeader(generation);
+            channel.force(true);
+            channel.position(channel.size());
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * This method flushes the journal and stops its background thread
+     *
+     * @throws IOException if the last records could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        }
+        finally {
+            synchronized(lock) {
+                closed = true;
+                lock.notifyAll();
+            }
+            try {
+                flusher.join();
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            channel.close();
+        }
+    }
+
+    private void append(byte type, Event event, Event after) {
+        synchronized(lock) {
+            byte[] name = nameBytes(event.getName());
+            byte[] afterName = after == null ? null : nameBytes(after.getName());
+            int start = beginRecord(49 + (name == null ? 0 : name.length)
+                    + (afterName == null ? 0 : afterName.length));
+            pending.put((byte) (type | MINUTES | IDS | UTC));
+            // the values before a modify are a copy, the id is the changed Event's
+            pending.putLong(after == null ? event.getId() : after.getId());
+            putEvent(event, name);
+            if(after != null) {
+                putEvent(after, afterName);
+            }
+            endRecord(start);
+        }
+    }
+
+    /**
+     * This method makes room for a record and skips its length and checksum, the lock must be held
+     *
+     * @return start the position of the record in the buffer
+     */
+    private int beginRecord(int maxBytes) {
+        if(failure != null || closed) {
+            throw new IllegalStateException("Journal is no longer writable", failure);
+        }
+        ensureRoom(maxBytes);
+        int start = pending.position();
+        pending.position(start + 8);
+        return start;
+    }
+
+    /**
+     * This method fills in a record's length and checksum and hands it to the background thread,
+     * for SYNC it waits until the record is on disk, the lock must be held
+     */
+    private void endRecord(int start) {
+        int end = pending.position();
+        CRC32 crc = new CRC32();
+        crc.update(pending.array(), start + 8, end - start - 8);
+        pending.putInt(start, end - start - 8);
+        pending.putInt(start + 4, (int) crc.getValue());
+
+        pendingRecords++;
+        long sequence = ++appended;
+        if(durability == Durability.SYNC) {
+            flushWanted = true;
+            lock.notifyAll();
+            while(synced < sequence && failure == null) {
+                waitOn(0);
+            }
+            if(failure != null) {
+                throw new IllegalStateException("Journal is no longer writable", failure);
+            }
+        }
+        else if(pendingRecords == 1) {
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * This method runs on the background thread, it takes the buffered records, writes them and forces them
+     */
+    private void flushLoop() {
+        while(true) {
+            long target;
+            synchronized(lock) {
+                while(pendingRecords == 0 && !closed) {
+                    waitOn(0);
+                }
+                if(pendingRecords == 0) {
+                    return;
+                }
+                // let more records gather so one write and fsync covers them
+                long until = System.currentTimeMillis() + flushIntervalMillis;
+                long left;
+                while(!flushWanted && !closed && (left = until - System.currentTimeMillis()) > 0) {
+                    waitOn(left);
+                }
+                ByteBuffer full = pending;
+                pending = writing;
+                writing = full;
+                pendingRecords = 0;
+                flushWanted = false;
+                writingOut = true;
+                target = appended;
+            }
+
+            IOException error = null;
+            try {
+                writing.flip();
+                while(writing.hasRemaining()) {
+                    channel.write(writing);
+                }
+                if(durability != Durability.BUFFERED) {
+                    channel.force(false);
+                }
+            }
+            catch(IOException e) {
+                error = e;
+            }
+            writing.clear();
+
+            synchronized(lock) {
+                if(error != null) {
+                    failure = error;
+                }
+                writingOut = false;
+                synced = Math.max(synced, target);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void ensureRoom(int bytes) {
+        if(pending.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    private void putEvent(Event event, byte[] name) {
+        pending.putInt(event.getDayKey());
+        pending.putInt(event.getStartMinute());
+        pending.putInt(event.getEndMinute());
+        putName(name);
+    }
+
+    private void putName(byte[] name) {
+        if(name == null) {
+            pending.putInt(-1);
+        }
+        else {
+            pending.putInt(name.length);
+            pending.put(name);
+        }
+    }
+
+    private void writeHeader(long generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putLong(generation);
+        header.flip();
+        channel.truncate(0);
+        while(header.hasRemaining()) {
+            channel.write(header, HEADER_SIZE - header.remaining());
+        }
+    }
+
+    private void waitOn(long millis) {
+        try {
+            lock.wait(millis);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] nameBytes(String name) {
+        return name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long readGeneration(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while(header.hasRemaining()) {
+            if(channel.read(header, header.position()) < 0) {
+                break;
+            }
+        }
+        header.flip();
+        if(header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+            return Long.MIN_VALUE;
+        }
+        return header.getLong();
+    }
+
+    /**
+     * This method reads the records after the header, stopping at the first one that is cut short or damaged
+     *
+     * @return the length of the file up to the end of the last good record
+     */
+    private static long scan(FileChannel channel, ZoneId legacyZone, Replayer replayer) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(HEADER_SIZE)), 1 << 16));
+        long good = HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        while(true) {
+            byte[] body;
+            try {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if(length < 1 || length > channel.size()) {
+                    return good;
+                }
+                body = new byte[length];
+                in.readFully(body);
+                crc.reset();
+                crc.update(body, 0, length);
+                if((int) crc.getValue() != checksum) {
+                    return good;
+                }
+            }
+            catch(EOFException e) {
+                return good;
+            }
+
+            if(replayer != null) {
+                ByteBuffer record = ByteBuffer.wrap(body);
+                byte flagged = record.get();
+                byte type = (byte) (flagged & ~(MINUTES | IDS | UTC | MOVED));
+                boolean minutes = (flagged & MINUTES) != 0;
+                boolean utc = (flagged & UTC) != 0;
+                long id = (flagged & IDS) != 0 ? record.getLong() : 0;
+                if(type == EXCLUDE) {
+                    replayer.replayExclusion(id, record.getInt(), (flagged & MOVED) != 0);
+                }
+                else if(type == RULE) {
+                    RecurringEvent rule = readRule(record, minutes);
+                    rule.setId(id);
+                    replayer.replayRule(rule);
+                }
+                else {
+                    Event event = readEvent(record, minutes, utc, legacyZone);
+                    event.setId(id);
+                    Event after = type == MODIFY ? readEvent(record, minutes, utc, legacyZone) : null;
+                    replayer.replay(type, event, after);
+                }
+            }
+            good += 8 + body.length;
+        }
+    }
+
+    /**
+     * This method reads an Event, one in UTC is given the calendar's zone and a local one is moved from it to UTC
+     */
+    private static Event readEvent(ByteBuffer record, boolean minutes, boolean utc, ZoneId zone) {
+        int day = record.getInt();
+        int start = minutes ? record.getInt() : record.getShort() * 60;
+        int end = minutes ? record.getInt() : record.getShort() * 60;
+        String name = readName(record);
+        if(utc) {
+            return Event.readStored(name, day, start, end).withZone(zone);
+        }
+        Event local = Event.migrated(name, day, start, end);
+        return Event.inZone(name, local.getDayKey(), local.getStartMinute(), local.getEndMinute(), zone);
+    }
+
+    private static RecurringEvent readRule(ByteBuffer record, boolean minutes) {
+        int firstDay = record.getInt();
+        int lastDay = record.getInt();
+        byte weekDays = record.get();
+        int start = minutes ? record.getInt() : record.getShort() * 60;
+        int end = minutes ? record.getInt() : record.getShort() * 60;
+        return RecurringEvent.migrated(readName(record), firstDay, lastDay, weekDays, start, end);
+    }
+
+    private static String readName(ByteBuffer record) {
+        int length = record.getInt();
+        if(length < 0) {
+            return null;
+        }
+        String name = new String(record.array(), record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return name;
+    }
+}
@@ -0,0 +1,92 @@
+package project;
+
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.AbstractListModel;
+
+/**
+ * This class is creates the list model behind the Event list of the GUI
+ *
+ * The model holds the query result itself instead of a copy or a formatted string, a JList with a fixed
+ * cell size only asks for and formats the rows that are on screen, so a long view costs no more to show
+ * than a short one. Scrolling and Page Up/Page Down move through the result a screen at a time.
+ * Rows are formatted with the dates and times of the viewer's time zone.
+ *
+ * @author Kyle Cook
+ */
+
+public class EventListModel extends AbstractListModel<Event> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private List<Event> events = Collections.emptyList();
+    private ZoneDays local;
+
+    /**
+     * This method replaces the Events shown by the list
+     * Rows that are still there are reported as changed, so the list keeps its scroll position on a refresh
+     *
+     * @param events the Events to show, the list is kept and must not be changed afterwards
+     */
+    public void setEvents(List<Event> events) {
+        int oldSize = this.events.size();
+        this.events = events;
+        this.local = events.isEmpty() ? null : ZoneDays.around(zone, events.get(0), events.get(events.size() - 1));
+        int newSize = events.size();
+
+        if(newSize < oldSize) {
+            fireIntervalRemoved(this, newSize, oldSize - 1);
+        }
+        else if(newSize > oldSize) {
+            fireIntervalAdded(this, oldSize, newSize - 1);
+        }
+        if(Math.min(oldSize, newSize) > 0) {
+            fireContentsChanged(this, 0, Math.min(oldSize, newSize) - 1);
+        }
+    }
+
+    /**
+     * This method returns the number of Events in the list
+     *
+     * @return the number of rows
+     */
+    @Override
+    public int getSize() {
+        return events.size();
+    }
+
+    /**
+     * This method returns the Event shown in a row
+     *
+     * @param index the row
+     * @return the Event in that row
+     */
+    @Override
+    public Event getElementAt(int index) {
+        return events.get(index);
+    }
+
+    /**
+     * This method returns days of the viewer's time zone to read the local date and times of an Event with
+     *
+     * @param event the Event to read
+     * @return local the days the Events shown fall on, or the day of the Event if none are shown
+     */
+    public ZoneDays getLocalDays(Event event) {
+        ZoneDays days = local;
+        return days == null ? ZoneDays.around(zone, event, event) : days;
+    }
+
+    /**
+     * This method returns the text of a row, the Event with its local date and times
+     *
+     * @param event the Event in the row
+     * @return text the Event as the viewer sees it
+     */
+    public String format(Event event) {
+        return getLocalDays(event).format(event);
+    }
+}
@@ -0,0 +1,688 @@
+package project;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * This class is creates a store of Events kept in order by the day they fall on,
+ * so a day, week, month or interval can be looked up without checking every Event.
+ *
+ * Each day's Events are kept in a bucket that is never changed once it is in the map, a write
+ * puts a new bucket in its place. Readers take no locks and always see a whole day as it was
+ * before or after a write. Writes to the same day must be made one at a time by the caller.
+ * A bucket also holds the day's Event count and booked hours, so a day can be summed up with one lookup,
+ * and the hours where Events that start at or after their end sit, so free time can be found with bit masks.
+ * Events are stored under the day they start on. The store counts the Events by how many days they run
+ * past their own day, so the days an overnight Event runs into can find it by looking back only as far as
+ * the Events stored now run, which goes back down when the Events that ran furthest are removed.
+ * Events are kept in UTC, so for a calendar in another zone the store also sums up each local day of that
+ * zone, the Events shown on it and the hours their local times book, so a month of the calendar's own days
+ * is still a lookup a day. A local day's sums are added to as Events come in and worked out again from the
+ * buckets around it when one goes, either way as one atomic step on that day's sums.
+ *
+ * @author Kyle Cook
+ */
+
+public class EventStore implements Iterable<Event> {
+
+    private static final Event[] EMPTY = new Event[0];
+    private static final Bucket EMPTY_BUCKET = new Bucket(EMPTY, 0, 0, 0);
+
+    private ConcurrentSkipListMap<Integer, Bucket> days;
+    private AtomicInteger size;
+    private AtomicIntegerArray runsAfter;
+    private AtomicIntegerArray reachBefore;
+    private AtomicIntegerArray reachAfter;
+    private volatile LocalDays local;
+
+    /**
+     * This method constructs an empty EventStore
+     */
+    public EventStore() {
+        days = new ConcurrentSkipListMap<>();
+        size = new AtomicInteger();
+        runsAfter = new AtomicIntegerArray(Event.MAX_REACH_DAYS + 1);
+        reachBefore = new AtomicIntegerArray(Event.MAX_REACH_DAYS + 1);
+        reachAfter = new AtomicIntegerArray(Event.MAX_REACH_DAYS + 1);
+    }
+
+    /**
+     * This method adds an Event to the store
+     *
+     * @param event the Event to add
+     */
+    public void add(Event event) {
+        int day = event.getDayKey();
+        Bucket bucket = days.getOrDefault(day, EMPTY_BUCKET);
+        Event[] grown = Arrays.copyOf(bucket.events, bucket.events.length + 1);
+        grown[bucket.events.length] = event;
+        countReach(event, 1);
+        days.put(day, bucket.plus(grown, event));
+        size.incrementAndGet();
+        addLocal(local, event);
+    }
+
+    /**
+     * This method sets the time zone whose local days the store sums up, the calendar's zone
+     * The sums are worked out again from the stored Events, none are kept for UTC as its days are the stored ones.
+     * The caller must hold the locks of every day.
+     *
+     * @param zone the time zone of the calendar
+     */
+    public void setZone(ZoneId zone) {
+        if(ZoneOffset.UTC.equals(zone.normalized())) {
+            local = null;
+            return;
+        }
+        LocalDays sums = new LocalDays(zone);
+        for(Bucket bucket: days.values()) {
+            for(Event e: bucket.events) {
+                addLocal(sums, e);
+            }
+        }
+        local = sums;
+    }
+
+    /**
+     * This method adds an Event to the sums of the local days its times touch
+     */
+    private static void addLocal(LocalDays sums, Event event) {
+        if(sums == null) {
+            return;
+        }
+        int[] placed = sums.place(event);
+        for(int day = placed[4]; day <= placed[5]; day++) {
+            LocalDay added = LocalDay.of(placed, day);
+            if(added != null) {
+                sums.days.merge(day, added, LocalDay::plus);
+            }
+        }
+    }
+
+    /**
+     * This method takes an Event that has left its bucket out of the sums of the local days its times touched,
+     * the masks of each day are worked out again from the Events still around it
+     */
+    private void removeLocal(LocalDays sums, Event event) {
+        if(sums == null) {
+            return;
+        }
+        int[] placed = sums.place(event);
+        for(int day = placed[4]; day <= placed[5]; day++) {
+            int shown = day >= placed[0] && day <= placed[1] ? 1 : 0;
+            sums.days.computeIfPresent(day, (key, sum) -> sums.sum(days, key, sum.shown - shown));
+        }
+    }
+
+    /**
+     * This method returns the number of Events shown on each of a run of local days, without looking at the Events
+     *
+     * @param zone the time zone the days are in
+     * @param firstDay the first local epoch day
+     * @param count the number of days
+     * @return counts the Events on each day counting the ones that run into it overnight, or null if the store
+     *         does not sum up the days of that zone
+     */
+    public int[] getLocalCounts(ZoneId zone, int firstDay, int count) {
+        LocalDays sums = local;
+        if(sums == null || !sums.zone.equals(zone)) {
+            return null;
+        }
+        int[] counts = new int[count];
+        for(Map.Entry<Integer, LocalDay> entry: sums.days.subMap(firstDay, true, firstDay + count - 1, true)
+                .entrySet()) {
+            counts[entry.getKey() - firstDay] = entry.getValue().shown;
+        }
+        return counts;
+    }
+
+    /**
+     * This method returns the booked hours, start marks and end marks of each of a run of local days
+     *
+     * @param zone the time zone the days are in
+     * @param firstDay the first local epoch day
+     * @param lastDay the last local epoch day
+     * @return masks the hours, starts and ends masks, each with one entry per day, or null if the store does
+     *         not sum up the days of that zone
+     */
+    public int[][] getLocalMasks(ZoneId zone, int firstDay, int lastDay) {
+        LocalDays sums = local;
+        if(sums == null || !sums.zone.equals(zone)) {
+            return null;
+        }
+        int[][] masks = new int[3][lastDay - firstDay + 1];
+        for(Map.Entry<Integer, LocalDay> entry: sums.days.subMap(firstDay, true, lastDay, true).entrySet()) {
+            LocalDay sum = entry.getValue();
+            int i = entry.getKey() - firstDay;
+            masks[0][i] = sum.hours;
+            masks[1][i] = sum.starts;
+            masks[2][i] = sum.ends;
+        }
+        return masks;
+    }
+
+    /**
+     * This method counts an Event in or out of how far the store looks for Events from other days
+     * An Event is counted in before readers can see it and out after they no longer can
+     *
+     * @param event the Event added or removed
+     * @param change 1 for an added Event, -1 for a removed one
+     */
+    private void countReach(Event event, int change) {
+        int start = event.getStartMinute();
+        int end = event.getEndMinute();
+        runsAfter.addAndGet(Event.runsAfter(start, end), change);
+        reachBefore.addAndGet(Math.max(0, -Event.firstDayOffset(start, end)), change);
+        reachAfter.addAndGet(Math.max(0, Event.lastDayOffset(start, end)), change);
+    }
+
+    /**
+     * This method returns the most days any stored Event is counted under
+     */
+    private static int furthest(AtomicIntegerArray counts) {
+        for(int days = counts.length() - 1; days > 0; days--) {
+            if(counts.get(days) > 0) {
+                return days;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * This method removes an Event from the store
+     *
+     * @param event the Event to remove
+     * @param day the epoch day the Event was stored under
+     * @return Boolean the value of whether the Event was found(true) or not(false)
+     */
+    public boolean remove(Event event, int day) {
+        Bucket bucket = days.get(day);
+        if(bucket == null) {
+            return false;
+        }
+        Event[] events = bucket.events;
+        for(int i = 0; i < events.length; i++) {
+            if(events[i] == event) {
+                if(events.length == 1) {
+                    days.remove(day);
+                }
+                else {
+                    Event[] shrunk = new Event[events.length - 1];
+                    System.arraycopy(events, 0, shrunk, 0, i);
+                    System.arraycopy(events, i + 1, shrunk, i, events.length - i - 1);
+                    days.put(day, Bucket.of(shrunk));
+                }
+                size.decrementAndGet();
+                countReach(event, -1);
+                removeLocal(local, event);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This method finds a stored Event with the given values
+     *
+     * @param name the name of the Event
+     * @param day the epoch day of the Event
+     * @param start the start of the Event in minutes
+     * @param end the end of the Event in minutes
+     * @return the matching Event, or null if there is none
+     */
+    public Event find(String name, int day, int start, int end) {
+        for(Event e: days.getOrDefault(day, EMPTY_BUCKET).events) {
+            if(e.getStartMinute() == start && e.getEndMinute() == end && Objects.equals(e.getName(), name)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * This method adds Events that are already in date order, each day's bucket is filled in one go
+     *
+     * @param events the Events to add, sorted by day
+     */
+    public void addSorted(Event[] events) {
+        int from = 0;
+        while(from < events.length) {
+            int day = events[from].getDayKey();
+            int to = from + 1;
+            while(to < events.length && events[to].getDayKey() == day) {
+                to++;
+            }
+            Event[] bucket = days.getOrDefault(day, EMPTY_BUCKET).events;
+            Event[] grown = Arrays.copyOf(bucket, bucket.length + to - from);
+            System.arraycopy(events, from, grown, bucket.length, to - from);
+            for(int i = from; i < to; i++) {
+                countReach(events[i], 1);
+            }
+            days.put(day, Bucket.of(grown));
+            size.addAndGet(to - from);
+            for(int i = from; i < to; i++) {
+                addLocal(local, events[i]);
+            }
+            from = to;
+        }
+    }
+
+    /**
+     * This method returns the Events that fall on a single day
+     * Events from earlier days that run overnight into the day come first
+     *
+     * @param day the epoch day to look up
+     * @return dayEvents the arrayList of Events on that day
+     */
+    public ArrayList<Event> getDay(int day) {
+        Event[] events = days.getOrDefault(day, EMPTY_BUCKET).events;
+        if(furthest(runsAfter) == 0) {
+            return new ArrayList<>(Arrays.asList(events));
+        }
+        ArrayList<Event> dayEvents = runningInto(day);
+        Collections.addAll(dayEvents, events);
+        return dayEvents;
+    }
+
+    /**
+     * This method returns the Events from earlier days that run overnight into a day, in date order
+     */
+    private ArrayList<Event> runningInto(int day) {
+        ArrayList<Event> running = new ArrayList<>();
+        int runs = furthest(runsAfter);
+        if(runs == 0) {
+            return running;
+        }
+        int from = (int) Math.max((long) day - runs, Integer.MIN_VALUE);
+        for(Bucket bucket: days.subMap(from, true, day, false).values()) {
+            for(Event e: bucket.events) {
+                if(e.getLastDayKey() >= day) {
+                    running.add(e);
+                }
+            }
+        }
+        return running;
+    }
+
+    /**
+     * This method returns the number of Events that fall on a single day
+     *
+     * @param day the epoch day to look up
+     * @return the number of Events on that day, counting the ones that run into it overnight
+     */
+    public int getCount(int day) {
+        int count = days.getOrDefault(day, EMPTY_BUCKET).events.length;
+        return count + runningInto(day).size();
+    }
+
+    /**
+     * This method returns the hours of a single day that are booked by at least one Event
+     *
+     * @param day the epoch day to look up
+     * @return hours a mask with bit h set when the hour from h to h + 1 is booked
+     */
+    public int getHours(int day) {
+        int hours = days.getOrDefault(day, EMPTY_BUCKET).hours;
+        return hours | reachingMasks(day)[0];
+    }
+
+    /**
+     * This method works out the booked hours and marks that Events stored under other days put on a day
+     *
+     * @return masks the hours, start marks and end marks
+     */
+    private int[] reachingMasks(int day) {
+        int[] masks = new int[3];
+        int before = furthest(reachBefore);
+        int after = furthest(reachAfter);
+        for(int other = day - after; other <= day + before; other++) {
+            if(other == day) {
+                continue;
+            }
+            int shift = (day - other) * Event.MINUTES_PER_DAY;
+            for(Event e: days.getOrDefault(other, EMPTY_BUCKET).events) {
+                int start = e.getStartMinute() - shift;
+                int end = e.getEndMinute() - shift;
+                masks[0] |= hourMask(start, end);
+                masks[1] |= startMark(start, end);
+                masks[2] |= endMark(start, end);
+            }
+        }
+        return masks;
+    }
+
+    /**
+     * This method returns the hours a time range books as a mask, hours outside 0 to 24 are left out
+     * An hour is booked when any minute of it is, so a range from 9:30 to 10:15 books hours 9 and 10
+     *
+     * @param start the start in minutes from midnight
+     * @param end the end in minutes from midnight
+     * @return hours a mask with bit h set for each hour h the range covers part of
+     */
+    static int hourMask(int start, int end) {
+        int from = Math.max(Math.floorDiv(start, 60), 0);
+        int to = Math.min(-Math.floorDiv(-end, 60), 24);
+        if(from >= to) {
+            return 0;
+        }
+        return (int) ((1L << to) - (1L << from));
+    }
+
+    /**
+     * This method finds the hours of a single day where a new Event of some length can start
+     * without a time conflict with any Event on that day, the same as checkConflict would find
+     *
+     * @param day the epoch day to look up
+     * @param length the length of the new Event in hours, 1 to 24
+     * @return starts a mask with bit h set when an Event from h to h + length would not conflict
+     */
+    public int getFreeStarts(int day, int length) {
+        return getFreeStarts(day, length, 0, 0, 0);
+    }
+
+    /**
+     * This method finds the hours of a single day where a new Event of some length can start, counting
+     * hours booked outside the store as well, such as the occurrences of recurring Events
+     *
+     * @param day the epoch day to look up
+     * @param length the length of the new Event in hours, 1 to 24
+     * @param moreHours other booked hours of the day
+     * @param moreStarts other start marks of the day
+     * @param moreEnds other end marks of the day
+     * @return starts a mask with bit h set when an Event from h to h + length would not conflict
+     */
+    public int getFreeStarts(int day, int length, int moreHours, int moreStarts, int moreEnds) {
+        Bucket bucket = days.getOrDefault(day, EMPTY_BUCKET);
+        int[] reaching = reachingMasks(day);
+        moreHours |= reaching[0];
+        moreStarts |= reaching[1];
+        moreEnds |= reaching[2];
+        return freeStarts(bucket.hours | moreHours, bucket.starts | moreStarts, bucket.ends | moreEnds, length);
+    }
+
+    /**
+     * This method works out the free starting hours of a day from its masks
+     *
+     * An Event from s to e that starts before it ends conflicts with the booked hours it covers.
+     * An Event that starts at or after its end only conflicts with a new Event that has its start
+     * in [s, e) or its end in (s, e], so those are kept as single start and end marks instead.
+     *
+     * @param hours the booked hours of the day
+     * @param starts the start marks of the day
+     * @param ends the end marks of the day
+     * @param length the length of the new Event in hours, 1 to 24
+     * @return starts a mask with bit h set when an Event from h to h + length would not conflict
+     */
+    static int freeStarts(int hours, int starts, int ends, int length) {
+        // keep the hours that begin a run of length free hours, bits past hour 23 are never free
+        int fits = ~hours & 0xFFFFFF;
+        for(int run = 1; run < length; ) {
+            int step = Math.min(run, length - run);
+            fits &= fits >>> step;
+            run += step;
+        }
+        // a start mark at a blocks the starts a - length + 1 to a, an end mark at b blocks b - length to b - 1
+        int blocked = spread(starts, length - 1) | spread(ends >>> 1, length - 1);
+        return fits & ~blocked;
+    }
+
+    /**
+     * This method copies each set bit of a mask into the n bits below it
+     */
+    private static int spread(int mask, int n) {
+        for(int covered = 0; covered < n; ) {
+            int step = Math.min(covered + 1, n - covered);
+            mask |= mask >>> step;
+            covered += step;
+        }
+        return mask;
+    }
+
+    /**
+     * This method returns the start mark of an Event that starts at or after its end, or 0 for any other Event
+     * The start is rounded down and the end up to whole hours, which finds the same conflicts with whole hour slots
+     *
+     * @param start the start in minutes from midnight
+     * @param end the end in minutes from midnight
+     * @return mark a mask with the start hour's bit set
+     */
+    static int startMark(int start, int end) {
+        int startHour = Math.floorDiv(start, 60);
+        int endHour = -Math.floorDiv(-end, 60);
+        return startHour >= endHour && startHour >= 0 && startHour < 24 ? 1 << startHour : 0;
+    }
+
+    /**
+     * This method returns the end mark of an Event that starts at or after its end, or 0 for any other Event
+     *
+     * @param start the start in minutes from midnight
+     * @param end the end in minutes from midnight
+     * @return mark a mask with the end hour's bit set
+     */
+    static int endMark(int start, int end) {
+        int startHour = Math.floorDiv(start, 60);
+        int endHour = -Math.floorDiv(-end, 60);
+        return startHour >= endHour && endHour > 0 && endHour <= 24 ? 1 << endHour : 0;
+    }
+
+    /**
+     * This method returns the Events that fall between two days, in date order
+     * Events from before the first day that run overnight into it come first
+     *
+     * @param fromDay the first epoch day to include
+     * @param toDay the last epoch day to include
+     * @return rangeEvents the arrayList of Events within the range
+     */
+    public ArrayList<Event> getRange(int fromDay, int toDay) {
+        if(fromDay > toDay) {
+            return new ArrayList<>();
+        }
+        ArrayList<Event> rangeEvents = runningInto(fromDay);
+        for(Bucket bucket: days.subMap(fromDay, true, toDay, true).values()) {
+            Collections.addAll(rangeEvents, bucket.events);
+        }
+        return rangeEvents;
+    }
+
+    /**
+     * This method returns an iterator over every Event in the store, in date order
+     * Days written after the iterator passes them are not seen
+     *
+     * @return the iterator over the stored Events
+     */
+    @Override
+    public Iterator<Event> iterator() {
+        return iterator(days.values().iterator());
+    }
+
+    /**
+     * This method returns an iterator over the Events between two days, in date order
+     * Each day is read as the iterator reaches it, so the range is never copied into a list
+     *
+     * @param fromDay the first epoch day to include
+     * @param toDay the last epoch day to include
+     * @return the iterator over the Events in the range
+     */
+    public Iterator<Event> iterator(int fromDay, int toDay) {
+        if(fromDay > toDay) {
+            return Collections.emptyIterator();
+        }
+        return iterator(days.subMap(fromDay, true, toDay, true).values().iterator());
+    }
+
+    private static Iterator<Event> iterator(Iterator<Bucket> buckets) {
+        return new Iterator<Event>() {
+            private Event[] current = EMPTY;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                while(index == current.length && buckets.hasNext()) {
+                    current = buckets.next().events;
+                    index = 0;
+                }
+                return index < current.length;
+            }
+
+            @Override
+            public Event next() {
+                if(!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current[index++];
+            }
+        };
+    }
+
+    /**
+     * This method returns the number of Events in the store
+     *
+     * @return size the number of Events stored
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * This class is creates one day of the store, the day's Events, the hours they book and their start and end marks
+     */
+    private static class Bucket {
+        private final Event[] events;
+        private final int hours;
+        private final int starts;
+        private final int ends;
+
+        private Bucket(Event[] events, int hours, int starts, int ends) {
+            this.events = events;
+            this.hours = hours;
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        private static Bucket of(Event[] events) {
+            int hours = 0;
+            int starts = 0;
+            int ends = 0;
+            for(Event e: events) {
+                hours |= hourMask(e.getStartMinute(), e.getEndMinute());
+                starts |= startMark(e.getStartMinute(), e.getEndMinute());
+                ends |= endMark(e.getStartMinute(), e.getEndMinute());
+            }
+            return new Bucket(events, hours, starts, ends);
+        }
+
+        private Bucket plus(Event[] grown, Event added) {
+            int start = added.getStartMinute();
+            int end = added.getEndMinute();
+            return new Bucket(grown, hours | hourMask(start, end), starts | startMark(start, end),
+                    ends | endMark(start, end));
+        }
+    }
+
+    /**
+     * This class is creates the sums of the local days of one time zone
+     */
+    private static class LocalDays {
+        private final ZoneId zone;
+        private final ZoneRules rules;
+        private final ConcurrentSkipListMap<Integer, LocalDay> days;
+
+        private LocalDays(ZoneId zone) {
+            this.zone = zone;
+            this.rules = zone.getRules();
+            this.days = new ConcurrentSkipListMap<>();
+        }
+
+        /**
+         * This method places an Event in the zone the same way ZoneDays does
+         *
+         * @return placed the local day it is shown on, the last local day it runs into, its local start and end
+         *         from midnight of its day, and the first and last local days its times touch
+         */
+        private int[] place(Event event) {
+            long start = event.getStartEpochMinute();
+            long end = event.getEndEpochMinute();
+            long anchor = (long) event.getDayKey() * Event.MINUTES_PER_DAY
+                    + Math.max(0, Math.min(event.getStartMinute(), Event.MINUTES_PER_DAY - 1));
+            int day = localDay(anchor);
+            long midnight = (long) day * Event.MINUTES_PER_DAY;
+            int localStart = (int) (start + ZoneDays.offsetAt(rules, start) - midnight);
+            int localEnd = (int) (end + ZoneDays.offsetAt(rules, end) - midnight);
+            int last = end > start ? Math.max(day, localDay(end - 1)) : day;
+            return new int[] {day, last, localStart, localEnd,
+                    Math.min(day, day + Event.firstDayOffset(localStart, localEnd)),
+                    Math.max(last, day + Event.lastDayOffset(localStart, localEnd))};
+        }
+
+        private int localDay(long minute) {
+            return (int) Math.floorDiv(minute + ZoneDays.offsetAt(rules, minute), Event.MINUTES_PER_DAY);
+        }
+
+        /**
+         * This method works out the masks of a local day from the buckets of the UTC days whose Events can
+         * touch it, keeping the count of Events shown on it
+         *
+         * @return sum the sums of the day, or null if nothing is shown on it or books any of its hours
+         */
+        private LocalDay sum(ConcurrentSkipListMap<Integer, Bucket> buckets, int day, int shown) {
+            int reach = Event.MAX_REACH_DAYS + 1;
+            int hours = 0;
+            int starts = 0;
+            int ends = 0;
+            for(Bucket bucket: buckets.subMap(day - reach, true, day + reach, true).values()) {
+                for(Event e: bucket.events) {
+                    LocalDay part = LocalDay.of(place(e), day);
+                    if(part != null) {
+                        hours |= part.hours;
+                        starts |= part.starts;
+                        ends |= part.ends;
+                    }
+                }
+            }
+            return shown == 0 && hours == 0 && starts == 0 && ends == 0 ? null
+                    : new LocalDay(shown, hours, starts, ends);
+        }
+    }
+
+    /**
+     * This class is creates the sums of one local day, never changed once it is in the map
+     */
+    private static class LocalDay {
+        private final int shown;
+        private final int hours;
+        private final int starts;
+        private final int ends;
+
+        private LocalDay(int shown, int hours, int starts, int ends) {
+            this.shown = shown;
+            this.hours = hours;
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        /**
+         * This method returns what one placed Event adds to a local day, or null if it adds nothing
+         */
+        private static LocalDay of(int[] placed, int day) {
+            int shift = (day - placed[0]) * Event.MINUTES_PER_DAY;
+            int start = placed[2] - shift;
+            int end = placed[3] - shift;
+            int shown = day >= placed[0] && day <= placed[1] ? 1 : 0;
+            int hours = hourMask(start, end);
+            int starts = startMark(start, end);
+            int ends = endMark(start, end);
+            return shown == 0 && hours == 0 && starts == 0 && ends == 0 ? null
+                    : new LocalDay(shown, hours, starts, ends);
+        }
+
+        private LocalDay plus(LocalDay other) {
+            return new LocalDay(shown + other.shown, hours | other.hours, starts | other.starts,
+                    ends | other.ends);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package project;
+
+import java.util.*;
+
+/**
+ * This class is creates the result of importing a schedule file, with counts and the errors found on each line
+ *
+ * @author Kyle Cook
+ */
+
+public class ImportResult {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private long linesRead;
+    private long eventsAdded;
+    private long eventsRejected;
+    private long errorCount;
+    private boolean cancelled;
+    private ArrayList<LineError> errors;
+
+    /**
+     * This method constructs an empty ImportResult
+     */
+    public ImportResult() {
+        errors = new ArrayList<>();
+    }
+
+    /**
+     * This method records that a line was read
+     */
+    void lineRead() {
+        linesRead++;
+    }
+
+    /**
+     * This method records the outcome of committing a line's Events
+     *
+     * @param added the number of Events added to the Calendar
+     * @param rejected the number of Events rejected for a time conflict
+     */
+    void eventsCommitted(long added, long rejected) {
+        eventsAdded += added;
+        eventsRejected += rejected;
+    }
+
+    /**
+     * This method records an error on a line, only the first errors are kept so a bad file cannot fill memory
+     *
+     * @param lineNumber the line the error was found on, or 0 if it is not tied to a line
+     * @param message the description of the error
+     */
+    void addError(long lineNumber, String message) {
+        errorCount++;
+        if(errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new LineError(lineNumber, message));
+        }
+    }
+
+    /**
+     * This method records that the import was stopped before the end of the file
+     */
+    void markCancelled() {
+        cancelled = true;
+    }
+
+    /**
+     * This method returns whether the import was stopped before the end of the file
+     *
+     * @return Boolean the value of whether the import was cancelled(true) or not(false)
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * This method returns whether the file was read in without errors
+     *
+     * @return Boolean the value of whether there were no errors(true) or some(false)
+     */
+    public boolean isSuccessful() {
+        return errorCount == 0 && !cancelled;
+    }
+
+    /**
+     * This method returns the number of lines read
+     *
+     * @return linesRead the number of lines read from the file
+     */
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    /**
+     * This method returns the number of Events added to the Calendar
+     *
+     * @return eventsAdded the number of Events added
+     */
+    public long getEventsAdded() {
+        return eventsAdded;
+    }
+
+    /**
+     * This method returns the number of Events left out because of a time conflict
+     *
+     * @return eventsRejected the number of Events rejected
+     */
+    public long getEventsRejected() {
+        return eventsRejected;
+    }
+
+    /**
+     * This method returns the total number of errors found, including those not kept in the list
+     *
+     * @return errorCount the number of errors
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * This method returns the errors that were kept
+     *
+     * @return errors the list of line errors
+     */
+    public List<LineError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    @Override
+    public String toString() {
+        return linesRead + " lines read, " + eventsAdded + " events added, " +
+                eventsRejected + " rejected for time conflicts, " + errorCount + " errors" +
+                (cancelled ? ", cancelled" : "");
+    }
+
+    /**
+     * This class is creates an error found on one line of a schedule file
+     */
+    public static class LineError {
+        private final long lineNumber;
+        private final String message;
+
+        private LineError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        /**
+         * This method returns the line the error was found on
+         *
+         * @return lineNumber the line number, starting at 1
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * This method returns the description of the error
+         *
+         * @return message the error message
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package project;
+
+import java.util.*;
+
+/**
+ * This class is creates a balanced interval tree of Events for a single day.
+ * Each node is keyed by the low end of an Event's time range and remembers the
+ * highest end found in its subtree, so overlap lookups only visit the branches
+ * that can actually hold a match.
+ * Times are minutes from the tree's midnight, an Event from another day that runs into this one
+ * is inserted with its times moved onto this day.
+ *
+ * @author Kyle Cook
+ */
+
+public class IntervalTree {
+
+    private Node root;
+    private int size;
+    private boolean removed;
+
+    /**
+     * This method inserts an Event into the tree
+     *
+     * @param event the Event to insert
+     */
+    public void insert(Event event) {
+        insert(event, low(event), high(event));
+    }
+
+    /**
+     * This method inserts an Event into the tree with its time range measured from the tree's day
+     *
+     * @param event the Event to insert
+     * @param low the earlier end of the Event's times on this day
+     * @param high the later end of the Event's times on this day
+     */
+    public void insert(Event event, int low, int high) {
+        root = insert(root, new Node(event, low, high));
+        size++;
+    }
+
+    /**
+     * This method removes an Event from the tree
+     *
+     * @param event the Event to remove
+     * @param start the start the Event had when it was inserted, measured from the tree's day
+     * @param end the end the Event had when it was inserted, measured from the tree's day
+     * @return Boolean the value of whether the Event was found(true) or not(false)
+     */
+    public boolean remove(Event event, int start, int end) {
+        removed = false;
+        root = remove(root, event, Math.min(start, end));
+        if(removed) {
+            size--;
+        }
+        return removed;
+    }
+
+    /**
+     * This method builds a balanced tree from a group of Events in one pass
+     *
+     * @param events the Events to put in the tree, this array is sorted in place
+     * @return tree the new IntervalTree
+     */
+    public static IntervalTree build(Event[] events) {
+        Arrays.sort(events, Comparator.comparingInt(IntervalTree::low));
+        IntervalTree tree = new IntervalTree();
+        tree.root = build(events, 0, events.length);
+        tree.size = events.length;
+        return tree;
+    }
+
+    private static Node build(Event[] events, int from, int to) {
+        if(from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        Node node = new Node(events[middle], low(events[middle]), high(events[middle]));
+        node.left = build(events, from, middle);
+        node.right = build(events, middle + 1, to);
+        update(node);
+        return node;
+    }
+
+    /**
+     * This method finds an Event in the tree that has a time conflict with another Event
+     *
+     * @param checkEvent the Event to be checked for time conflicts
+     * @return the first conflicting Event found, or null if there is none
+     */
+    public Event findConflict(Event checkEvent) {
+        return findConflict(root, checkEvent, low(checkEvent), high(checkEvent));
+    }
+
+    /**
+     * This method finds an Event in the tree that has a time conflict with an Event from any day
+     *
+     * @param checkEvent the Event to be checked for time conflicts
+     * @param low the earlier end of the Event's times, measured from the tree's day
+     * @param high the later end of the Event's times, measured from the tree's day
+     * @return the first conflicting Event found, or null if there is none
+     */
+    public Event findConflict(Event checkEvent, int low, int high) {
+        return findConflict(root, checkEvent, low, high);
+    }
+
+    /**
+     * This method returns the number of Events in the tree
+     *
+     * @return size the number of Events stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This method walks the branches whose ranges can touch [low, high] and
+     * confirms each candidate with Event.checkConflict
+     */
+    private Event findConflict(Node node, Event checkEvent, int low, int high) {
+        while(node != null && node.maxHigh >= low) {
+            Event found = findConflict(node.left, checkEvent, low, high);
+            if(found != null) {
+                return found;
+            }
+            if(node.low > high) {
+                return null;
+            }
+            if(node.high >= low && node.event.checkConflict(checkEvent)) {
+                return node.event;
+            }
+            node = node.right;
+        }
+        return null;
+    }
+
+    private Node insert(Node node, Node added) {
+        if(node == null) {
+            return added;
+        }
+        if(added.low < node.low) {
+            node.left = insert(node.left, added);
+        }
+        else {
+            node.right = insert(node.right, added);
+        }
+        return balance(node);
+    }
+
+    private Node remove(Node node, Event event, int low) {
+        if(node == null) {
+            return null;
+        }
+        if(low < node.low) {
+            node.left = remove(node.left, event, low);
+        }
+        else if(low > node.low) {
+            node.right = remove(node.right, event, low);
+        }
+        else if(node.event == event) {
+            removed = true;
+            if(node.left == null) {
+                return node.right;
+            }
+            if(node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right;
+            while(successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = removeFirst(node.right);
+            successor.left = node.left;
+            return balance(successor);
+        }
+        else {
+            // rotations can leave Events with the same low on either side
+            node.left = remove(node.left, event, low);
+            if(!removed) {
+                node.right = remove(node.right, event, low);
+            }
+        }
+        return balance(node);
+    }
+
+    private Node removeFirst(Node node) {
+        if(node.left == null) {
+            return node.right;
+        }
+        node.left = removeFirst(node.left);
+        return balance(node);
+    }
+
+    private Node balance(Node node) {
+        update(node);
+        int diff = height(node.left) - height(node.right);
+        if(diff > 1) {
+            if(height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if(diff < -1) {
+            if(height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        int max = node.high;
+        if(node.left != null && node.left.maxHigh > max) {
+            max = node.left.maxHigh;
+        }
+        if(node.right != null && node.right.maxHigh > max) {
+            max = node.right.maxHigh;
+        }
+        node.maxHigh = max;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * checkConflict only ever reports a conflict when an endpoint of one Event
+     * lies between the endpoints of the other, so the closed [min, max] range of
+     * each Event is enough to find every candidate, even for reversed times
+     */
+    private static int low(Event event) {
+        return Math.min(event.getStartMinute(), event.getEndMinute());
+    }
+
+    private static int high(Event event) {
+        return Math.max(event.getStartMinute(), event.getEndMinute());
+    }
+
+    private static class Node {
+        private final Event event;
+        private final int low;
+        private final int high;
+        private int maxHigh;
+        private int height;
+        private Node left;
+        private Node right;
+
+        private Node(Event event, int low, int high) {
+            this.event = event;
+            this.low = low;
+            this.high = high;
+            this.maxHigh = high;
+            this.height = 1;
+        }
+    }
+}
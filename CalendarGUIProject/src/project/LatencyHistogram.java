@@ -0,0 +1,179 @@
+package project;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is creates a histogram of latencies in nanoseconds that many threads can record into at once
+ *
+ * Like an HdrHistogram, values are counted in buckets that are exact below 64 and above that split each
+ * power of two into 32 equal steps, so every value is kept to within about 3% with a fixed 1888 buckets,
+ * from a nanosecond up to the largest long. Recording a value is one array increment, a sum and a max
+ * that is only written when it grows. Percentiles are read from a snapshot of the counts.
+ *
+ * @author Kyle Cook
+ */
+
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int HALF_BUCKETS = SUB_BUCKETS / 2;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BITS) * HALF_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong total;
+    private final AtomicLong max;
+
+    /**
+     * This method constructs an empty LatencyHistogram
+     */
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        total = new AtomicLong();
+        max = new AtomicLong();
+    }
+
+    /**
+     * This method records one latency, negative values are counted as zero
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(value));
+        total.addAndGet(value);
+        long highest = max.get();
+        while(value > highest && !max.compareAndSet(highest, value)) {
+            highest = max.get();
+        }
+    }
+
+    /**
+     * This method copies the counts recorded so far
+     * Values recorded while the copy is made may or may not be in it
+     *
+     * @return snapshot the copy of the counts
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, total.get(), max.get());
+    }
+
+    /**
+     * This method returns the bucket a value is counted in
+     */
+    static int bucket(long value) {
+        if(value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        return SUB_BUCKETS + (shift - 1) * HALF_BUCKETS + (int) (value >>> shift) - HALF_BUCKETS;
+    }
+
+    /**
+     * This method returns the largest value counted in a bucket
+     */
+    static long highestValue(int bucket) {
+        if(bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / HALF_BUCKETS + 1;
+        long sub = (bucket - SUB_BUCKETS) % HALF_BUCKETS + HALF_BUCKETS;
+        long next = (sub + 1) << shift;
+        // the last bucket ends past the largest long
+        return next <= 0 ? Long.MAX_VALUE : next - 1;
+    }
+
+    /**
+     * This class is creates a copy of a histogram's counts, used to read percentiles
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long total, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        /**
+         * This method returns how many values were recorded
+         *
+         * @return count the number of values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * This method returns the mean of the values recorded
+         *
+         * @return mean the mean in nanoseconds, or 0 if nothing was recorded
+         */
+        public double getMean() {
+            return count == 0 ? 0 : total / (double) count;
+        }
+
+        /**
+         * This method returns the largest value recorded
+         *
+         * @return max the largest value in nanoseconds, or 0 if nothing was recorded
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * This method returns the value that a share of the recorded values are at or below
+         *
+         * @param percentile the share as a percentage, such as 99.9
+         * @return value the value in nanoseconds, to within the precision of its bucket, or 0 if nothing was recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            if(count == 0) {
+                return 0;
+            }
+            long wanted = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+            long seen = 0;
+            for(int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if(seen >= wanted) {
+                    return Math.min(highestValue(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * This method returns the values recorded since an earlier snapshot of the same histogram
+         * The largest value of the interval is only known to the precision of its bucket
+         *
+         * @param earlier the earlier snapshot, or null for everything recorded
+         * @return interval the snapshot of the values recorded in between
+         */
+        public Snapshot since(Snapshot earlier) {
+            if(earlier == null) {
+                return this;
+            }
+            long[] interval = new long[counts.length];
+            long highest = 0;
+            for(int i = 0; i < counts.length; i++) {
+                interval[i] = counts[i] - earlier.counts[i];
+                if(interval[i] > 0) {
+                    highest = Math.min(highestValue(i), max);
+                }
+            }
+            return new Snapshot(interval, count - earlier.count, total - earlier.total, highest);
+        }
+    }
+}
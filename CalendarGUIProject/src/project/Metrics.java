@@ -0,0 +1,305 @@
+package project;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class is creates the latency histograms and counters of one calendar's Controller
+ *
+ * Each Controller operation reads the clock when it starts and records its latency when it ends.
+ * While recording is off start returns 0 without reading the clock and record returns straight away,
+ * so a disabled Metrics costs one field read per operation. Recording is off unless the calendar.metrics
+ * system property is true, and can be turned on and off at run time through JMX.
+ * Sizes such as the number of Events are read from the Controller when they are asked for.
+ *
+ * @author Kyle Cook
+ */
+
+public class Metrics implements MetricsMBean {
+
+    /**
+     * This enum lists the Controller operations whose latencies are recorded
+     */
+    public enum Operation {
+        ADD_EVENT("addEvent"), ADD_EVENTS("addEvents"), REMOVE_EVENT("removeEvent"), CHANGE_EVENT("changeEvent"),
+        ADD_RECURRING("addRecurringEvent"), DAY_VIEW("dayView"), WEEK_VIEW("weekView"), MONTH_VIEW("monthView"),
+        INTERVAL_VIEW("intervalView"), SEARCH("search"), FREE_SLOT("findFreeSlot"), IMPORT("import"),
+        SAVE_SNAPSHOT("saveSnapshot"), LOAD_SNAPSHOT("loadSnapshot");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        /**
+         * This method returns the name the operation is reported under
+         *
+         * @return label the name of the operation
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * This method returns the operation of a cached view
+         *
+         * @param view the view
+         * @return operation the operation its latency is recorded under
+         */
+        static Operation of(ViewCache.View view) {
+            switch(view) {
+                case DAY:
+                    return DAY_VIEW;
+                case WEEK:
+                    return WEEK_VIEW;
+                case MONTH:
+                    return MONTH_VIEW;
+                default:
+                    return INTERVAL_VIEW;
+            }
+        }
+    }
+
+    /**
+     * This enum lists the counts kept alongside the latencies
+     */
+    public enum Counter {
+        EVENTS_ADDED, EVENTS_REJECTED, EVENTS_REMOVED, OCCURRENCES_MADE, IMPORT_LINES, IMPORT_BYTES, IMPORT_NANOS
+    }
+
+    private final Controller controller;
+    private volatile boolean enabled;
+    private volatile LatencyHistogram[] histograms;
+    private volatile LongAdder[] counters;
+
+    /**
+     * This method constructs the Metrics of a Controller, recording if the calendar.metrics property is true
+     *
+     * @param controller the Controller whose sizes are reported
+     */
+    Metrics(Controller controller) {
+        this.controller = controller;
+        this.enabled = Boolean.getBoolean("calendar.metrics");
+        reset();
+    }
+
+    /**
+     * This method reads the clock at the start of an operation
+     *
+     * @return started the time in nanoseconds, or 0 if recording is off
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * This method records the latency of an operation that has ended
+     *
+     * @param operation the operation that ended
+     * @param started the time start returned when it began, nothing is recorded for 0
+     */
+    void record(Operation operation, long started) {
+        if(started != 0) {
+            histograms[operation.ordinal()].record(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * This method adds to a count, if recording is on
+     *
+     * @param counter the count to add to
+     * @param amount the amount to add
+     */
+    void count(Counter counter, long amount) {
+        if(enabled) {
+            counters[counter.ordinal()].add(amount);
+        }
+    }
+
+    /**
+     * This method returns the histogram an operation's latencies are recorded in
+     * A reset replaces the histograms, so callers comparing snapshots should check they have the same one
+     *
+     * @param operation the operation
+     * @return histogram the latencies of the operation since the last reset
+     */
+    public LatencyHistogram getHistogram(Operation operation) {
+        return histograms[operation.ordinal()];
+    }
+
+    /**
+     * This method returns a count
+     *
+     * @param counter the count to read
+     * @return value the count since the last reset
+     */
+    public long getCount(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    /**
+     * This method registers these Metrics with the platform MBean server under the Controller's name
+     * A calendar that cannot be registered, for example because JMX is not available, still records
+     */
+    void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName("project:type=Calendar,name=" + ObjectName.quote(controller.getName())));
+        }
+        catch(JMException | SecurityException e) {
+            System.err.println("Could not register metrics for calendar " + controller.getName() + ": " + e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public String[] getOperations() {
+        Operation[] operations = Operation.values();
+        String[] names = new String[operations.length];
+        for(int i = 0; i < operations.length; i++) {
+            names[i] = operations[i].getLabel();
+        }
+        return names;
+    }
+
+    @Override
+    public String[] getLatencySummary() {
+        ArrayList<String> lines = new ArrayList<>();
+        for(Operation operation: Operation.values()) {
+            LatencyHistogram.Snapshot s = getHistogram(operation).snapshot();
+            if(s.getCount() > 0) {
+                lines.add(String.format(Locale.ROOT,
+                        "%s count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                        operation.getLabel(), s.getCount(), s.getMean() / 1000, micros(s, 50), micros(s, 90),
+                        micros(s, 99), micros(s, 99.9), s.getMax() / 1000.0));
+            }
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    @Override
+    public long count(String operation) {
+        return getHistogram(operation(operation)).snapshot().getCount();
+    }
+
+    @Override
+    public double percentileMicros(String operation, double percentile) {
+        return micros(getHistogram(operation(operation)).snapshot(), percentile);
+    }
+
+    @Override
+    public int getEventCount() {
+        return controller.getEventCount();
+    }
+
+    @Override
+    public int getRecurringEventCount() {
+        return controller.getRecurringEventCount();
+    }
+
+    @Override
+    public int getConflictIndexDays() {
+        return controller.getConflictIndexDays();
+    }
+
+    @Override
+    public int getNameIndexWords() {
+        return controller.getNameIndexWords();
+    }
+
+    @Override
+    public int getViewCacheSize() {
+        return controller.getViewCache().size();
+    }
+
+    @Override
+    public long getViewCacheHits() {
+        return controller.getViewCache().getHits();
+    }
+
+    @Override
+    public long getViewCacheMisses() {
+        return controller.getViewCache().getMisses();
+    }
+
+    @Override
+    public long getEventsAdded() {
+        return getCount(Counter.EVENTS_ADDED);
+    }
+
+    @Override
+    public long getEventsRejected() {
+        return getCount(Counter.EVENTS_REJECTED);
+    }
+
+    @Override
+    public long getEventsRemoved() {
+        return getCount(Counter.EVENTS_REMOVED);
+    }
+
+    @Override
+    public long getOccurrencesMade() {
+        return getCount(Counter.OCCURRENCES_MADE);
+    }
+
+    @Override
+    public long getImportLines() {
+        return getCount(Counter.IMPORT_LINES);
+    }
+
+    @Override
+    public double getImportBytesPerSecond() {
+        return perSecond(getCount(Counter.IMPORT_BYTES));
+    }
+
+    @Override
+    public double getImportLinesPerSecond() {
+        return perSecond(getCount(Counter.IMPORT_LINES));
+    }
+
+    @Override
+    public void reset() {
+        LatencyHistogram[] fresh = new LatencyHistogram[Operation.values().length];
+        for(int i = 0; i < fresh.length; i++) {
+            fresh[i] = new LatencyHistogram();
+        }
+        LongAdder[] zeroed = new LongAdder[Counter.values().length];
+        for(int i = 0; i < zeroed.length; i++) {
+            zeroed[i] = new LongAdder();
+        }
+        histograms = fresh;
+        counters = zeroed;
+    }
+
+    private double perSecond(long amount) {
+        long nanos = getCount(Counter.IMPORT_NANOS);
+        return nanos == 0 ? 0 : amount * 1e9 / nanos;
+    }
+
+    private static double micros(LatencyHistogram.Snapshot snapshot, double percentile) {
+        return snapshot.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static Operation operation(String label) {
+        for(Operation operation: Operation.values()) {
+            if(operation.getLabel().equals(label)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("No operation named " + label);
+    }
+}
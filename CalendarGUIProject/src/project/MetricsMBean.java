@@ -0,0 +1,160 @@
+package project;
+
+/**
+ * This interface is the JMX view of a calendar's Metrics, registered as project:type=Calendar,name=<calendar>
+ *
+ * Latencies are read by the name of an operation, such as addEvent or dayView, and are in microseconds.
+ *
+ * @author Kyle Cook
+ */
+
+public interface MetricsMBean {
+
+    /**
+     * This method returns whether latencies and counts are being recorded
+     *
+     * @return Boolean the value of whether recording is on(true) or off(false)
+     */
+    boolean isEnabled();
+
+    /**
+     * This method turns recording on or off
+     *
+     * @param enabled whether to record
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * This method returns the names of the operations that have latencies
+     *
+     * @return names the operation names
+     */
+    String[] getOperations();
+
+    /**
+     * This method returns a line for each operation that has run, with its count and latency percentiles
+     *
+     * @return lines the summary of each operation
+     */
+    String[] getLatencySummary();
+
+    /**
+     * This method returns how many times an operation has run while recording was on
+     *
+     * @param operation the name of the operation
+     * @return count the number of times it ran
+     */
+    long count(String operation);
+
+    /**
+     * This method returns a latency percentile of an operation
+     *
+     * @param operation the name of the operation
+     * @param percentile the percentile, such as 99.9
+     * @return micros the latency in microseconds
+     */
+    double percentileMicros(String operation, double percentile);
+
+    /**
+     * This method returns the number of single Events in the calendar
+     *
+     * @return count the number of Events
+     */
+    int getEventCount();
+
+    /**
+     * This method returns the number of recurring Events in the calendar
+     *
+     * @return count the number of recurring Events
+     */
+    int getRecurringEventCount();
+
+    /**
+     * This method returns the number of days with a conflict index tree
+     *
+     * @return count the number of indexed days
+     */
+    int getConflictIndexDays();
+
+    /**
+     * This method returns the number of words in the name index
+     *
+     * @return count the number of indexed words
+     */
+    int getNameIndexWords();
+
+    /**
+     * This method returns the number of view results cached
+     *
+     * @return size the number of results
+     */
+    int getViewCacheSize();
+
+    /**
+     * This method returns how many view lookups found a cached result
+     *
+     * @return hits the number of hits
+     */
+    long getViewCacheHits();
+
+    /**
+     * This method returns how many view lookups did not find a cached result
+     *
+     * @return misses the number of misses
+     */
+    long getViewCacheMisses();
+
+    /**
+     * This method returns how many single Events were added
+     *
+     * @return count the number of Events added
+     */
+    long getEventsAdded();
+
+    /**
+     * This method returns how many single Events were not added because of a time conflict
+     *
+     * @return count the number of Events rejected
+     */
+    long getEventsRejected();
+
+    /**
+     * This method returns how many single Events were removed
+     *
+     * @return count the number of Events removed
+     */
+    long getEventsRemoved();
+
+    /**
+     * This method returns how many occurrences of recurring Events the views and searches made
+     *
+     * @return count the number of occurrences made
+     */
+    long getOccurrencesMade();
+
+    /**
+     * This method returns how many schedule lines were imported
+     *
+     * @return count the number of lines read
+     */
+    long getImportLines();
+
+    /**
+     * This method returns how many schedule bytes were imported per second, over every import
+     *
+     * @return rate the bytes per second, or 0 if nothing was imported
+     */
+    double getImportBytesPerSecond();
+
+    /**
+     * This method returns how many schedule lines were imported per second, over every import
+     *
+     * @return rate the lines per second, or 0 if nothing was imported
+     */
+    double getImportLinesPerSecond();
+
+    /**
+     * This method forgets the latencies and counts recorded so far
+     */
+    void reset();
+}
@@ -0,0 +1,147 @@
+package project;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is creates a reporter that writes the Metrics of every calendar as CSV on a fixed period
+ *
+ * Each row is time,calendar,metric,value. Latencies are for the period just ended and are only written
+ * for operations that ran in it, as count, mean and percentiles in microseconds. Counts are since the
+ * Metrics were last reset and sizes are read as the row is written. Calendars that are not recording are skipped.
+ *
+ * @author Kyle Cook
+ */
+
+public class MetricsReporter implements Closeable {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50_us", "p90_us", "p99_us", "p99_9_us"};
+
+    private final Writer out;
+    private final ScheduledExecutorService timer;
+    private IdentityHashMap<LatencyHistogram, LatencyHistogram.Snapshot> previous;
+
+    /**
+     * This method starts a reporter that appends to a file
+     *
+     * @param file the CSV file, a header is written if it is new or empty
+     * @param periodMillis how often rows are written
+     * @throws IOException if the file could not be opened
+     */
+    public MetricsReporter(File file, long periodMillis) throws IOException {
+        this(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8), file.length() == 0,
+                periodMillis);
+    }
+
+    /**
+     * This method starts a reporter that writes to a writer, such as a log, the writer is closed with the reporter
+     *
+     * @param out where the rows are written
+     * @param header whether to write the header row first
+     * @param periodMillis how often rows are written
+     */
+    public MetricsReporter(Writer out, boolean header, long periodMillis) {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+        this.previous = new IdentityHashMap<>();
+        if(header) {
+            try {
+                this.out.write("time,calendar,metric,value\n");
+            }
+            catch(IOException e) {
+                System.err.println("Could not write metrics: " + e.getMessage());
+            }
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "calendar-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(this::report, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This method writes one set of rows for every calendar that is recording
+     */
+    synchronized void report() {
+        String time = Instant.now().truncatedTo(ChronoUnit.MILLIS).toString();
+        IdentityHashMap<LatencyHistogram, LatencyHistogram.Snapshot> current = new IdentityHashMap<>();
+        try {
+            for(String name: Controller.getCalendarNames()) {
+                Controller controller = Controller.findInstance(name);
+                Metrics metrics = controller == null ? null : controller.getMetrics();
+                if(metrics == null || !metrics.isEnabled()) {
+                    continue;
+                }
+                String prefix = time + "," + name + ",";
+                for(Metrics.Operation operation: Metrics.Operation.values()) {
+                    LatencyHistogram histogram = metrics.getHistogram(operation);
+                    LatencyHistogram.Snapshot total = histogram.snapshot();
+                    current.put(histogram, total);
+                    LatencyHistogram.Snapshot period = total.since(previous.get(histogram));
+                    if(period.getCount() == 0) {
+                        continue;
+                    }
+                    String metric = prefix + operation.getLabel() + ".";
+                    row(metric + "count", Long.toString(period.getCount()));
+                    row(metric + "mean_us", micros(period.getMean()));
+                    for(int i = 0; i < PERCENTILES.length; i++) {
+                        row(metric + PERCENTILE_NAMES[i], micros(period.getValueAtPercentile(PERCENTILES[i])));
+                    }
+                    row(metric + "max_us", micros(period.getMax()));
+                }
+                for(Metrics.Counter counter: Metrics.Counter.values()) {
+                    row(prefix + counter.name().toLowerCase(Locale.ROOT), Long.toString(metrics.getCount(counter)));
+                }
+                row(prefix + "events", Integer.toString(metrics.getEventCount()));
+                row(prefix + "recurring_events", Integer.toString(metrics.getRecurringEventCount()));
+                row(prefix + "conflict_index_days", Integer.toString(metrics.getConflictIndexDays()));
+                row(prefix + "name_index_words", Integer.toString(metrics.getNameIndexWords()));
+                row(prefix + "view_cache_size", Integer.toString(metrics.getViewCacheSize()));
+                row(prefix + "view_cache_hits", Long.toString(metrics.getViewCacheHits()));
+                row(prefix + "view_cache_misses", Long.toString(metrics.getViewCacheMisses()));
+            }
+            out.flush();
+        }
+        catch(IOException e) {
+            System.err.println("Could not write metrics: " + e.getMessage());
+        }
+        previous = current;
+    }
+
+    /**
+     * This method stops the reporter and closes its writer, rows for the period not yet ended are not written
+     *
+     * @throws IOException if the writer could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        timer.shutdown();
+        try {
+            timer.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized(this) {
+            out.close();
+        }
+    }
+
+    private void row(String metric, String value) throws IOException {
+        out.write(metric);
+        out.write(',');
+        out.write(value);
+        out.write('\n');
+    }
+
+    private static String micros(double nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000);
+    }
+}
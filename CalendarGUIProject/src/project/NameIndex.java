@@ -0,0 +1,297 @@
+package project;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * This class is creates an inverted index from the words of Event names to the Events, used to search by name
+ *
+ * Names are split into lower case words of letters and digits. Each word keeps its Events in a hash map
+ * by day, so adding an Event never walks a sorted structure. A search reads a word's days in date order
+ * by stepping through the days it asks for, or by sorting the word's own days when it has fewer of them.
+ * A sorted set of the words, changed only when a word is first seen, finds every word with a prefix.
+ * Recurring Events are indexed by rule, their occurrences are made by the search.
+ * Like the EventStore, each day's array is never changed once it is in the map, readers take no locks
+ * and the caller must hold the day's lock to change it.
+ *
+ * @author Kyle Cook
+ */
+
+public class NameIndex {
+
+    private static final Event[] NO_EVENTS = new Event[0];
+    private static final RecurringEvent[] NO_RULES = new RecurringEvent[0];
+
+    private ConcurrentHashMap<String, ConcurrentHashMap<Integer, Event[]>> words;
+    private ConcurrentSkipListSet<String> sortedWords;
+    private ConcurrentSkipListMap<String, RecurringEvent[]> ruleWords;
+
+    /**
+     * This method constructs an empty NameIndex
+     */
+    public NameIndex() {
+        words = new ConcurrentHashMap<>();
+        sortedWords = new ConcurrentSkipListSet<>();
+        ruleWords = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * This method indexes an Event under the words of its name
+     *
+     * @param event the Event to index
+     */
+    public void add(Event event) {
+        int day = event.getDayKey();
+        for(String word: words(event.getName())) {
+            ConcurrentHashMap<Integer, Event[]> days = words.get(word);
+            if(days == null) {
+                days = words.computeIfAbsent(word, w -> new ConcurrentHashMap<>());
+                sortedWords.add(word);
+            }
+            Event[] events = days.get(day);
+            if(events == null) {
+                days.put(day, new Event[] {event});
+            }
+            else {
+                Event[] grown = Arrays.copyOf(events, events.length + 1);
+                grown[events.length] = event;
+                days.put(day, grown);
+            }
+        }
+    }
+
+    /**
+     * This method removes an Event from the index
+     * A word left with no Events keeps its empty entry, so a writer on another day can never add to a removed one
+     *
+     * @param event the Event to remove
+     * @param name the name the Event was indexed under
+     * @param day the epoch day the Event was indexed under
+     */
+    public void remove(Event event, String name, int day) {
+        for(String word: words(name)) {
+            ConcurrentHashMap<Integer, Event[]> days = words.get(word);
+            Event[] events = days == null ? null : days.get(day);
+            if(events == null) {
+                continue;
+            }
+            for(int i = 0; i < events.length; i++) {
+                if(events[i] == event) {
+                    if(events.length == 1) {
+                        days.remove(day);
+                    }
+                    else {
+                        Event[] shrunk = new Event[events.length - 1];
+                        System.arraycopy(events, 0, shrunk, 0, i);
+                        System.arraycopy(events, i + 1, shrunk, i, events.length - i - 1);
+                        days.put(day, shrunk);
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * This method indexes a recurring Event under the words of its name, every lock must be held
+     *
+     * @param rule the recurring Event to index
+     */
+    public void add(RecurringEvent rule) {
+        for(String word: words(rule.getName())) {
+            RecurringEvent[] rules = ruleWords.getOrDefault(word, NO_RULES);
+            RecurringEvent[] grown = Arrays.copyOf(rules, rules.length + 1);
+            grown[rules.length] = rule;
+            ruleWords.put(word, grown);
+        }
+    }
+
+    /**
+     * This method returns the number of words the single Events are indexed under
+     *
+     * @return count the number of indexed words
+     */
+    public int wordCount() {
+        return words.size();
+    }
+
+    /**
+     * This method finds the Events whose names have a word starting with each word of a query
+     * "stand" finds "Standup" and "Team stand-up", "team stand" only finds the second
+     *
+     * @param query the words to look for, in any case
+     * @param fromDay the first epoch day to include
+     * @param toDay the last epoch day to include
+     * @return found the single Events that match, in date order, and the recurring Events whose names match
+     */
+    public Result search(String query, int fromDay, int toDay) {
+        List<String> terms = words(query);
+        if(terms.isEmpty() || fromDay > toDay) {
+            return new Result(new ArrayList<>(), new ArrayList<>());
+        }
+        // the longest term is read from the index, usually it has the fewest Events, the others are checked by name
+        String lookup = terms.get(0);
+        for(String term: terms) {
+            if(term.length() > lookup.length()) {
+                lookup = term;
+            }
+        }
+
+        ArrayList<Event> found = new ArrayList<>();
+        ArrayList<ConcurrentHashMap<Integer, Event[]>> matching = new ArrayList<>();
+        for(String word: sortedWords.subSet(lookup, true, lookup + Character.MAX_VALUE, false)) {
+            ConcurrentHashMap<Integer, Event[]> days = words.get(word);
+            if(days != null) {
+                matching.add(days);
+            }
+        }
+        if(matching.size() == 1) {
+            ConcurrentHashMap<Integer, Event[]> days = matching.get(0);
+            for(int day: daysInOrder(days, fromDay, toDay)) {
+                for(Event e: days.getOrDefault(day, NO_EVENTS)) {
+                    if(matches(e.getName(), terms)) {
+                        found.add(e);
+                    }
+                }
+            }
+        }
+        else if(!matching.isEmpty()) {
+            // several words share the prefix, gather their Events by day so each Event is listed once
+            TreeMap<Integer, Set<Event>> byDay = new TreeMap<>();
+            for(ConcurrentHashMap<Integer, Event[]> days: matching) {
+                for(int day: daysInOrder(days, fromDay, toDay)) {
+                    for(Event e: days.getOrDefault(day, NO_EVENTS)) {
+                        if(matches(e.getName(), terms)) {
+                            byDay.computeIfAbsent(day, d -> new LinkedHashSet<>()).add(e);
+                        }
+                    }
+                }
+            }
+            for(Set<Event> events: byDay.values()) {
+                found.addAll(events);
+            }
+        }
+
+        LinkedHashSet<RecurringEvent> rules = new LinkedHashSet<>();
+        for(RecurringEvent[] indexed: ruleWords.subMap(lookup, true, lookup + Character.MAX_VALUE, false).values()) {
+            for(RecurringEvent rule: indexed) {
+                if(rule.getFirstDay() <= toDay && rule.getLastDay() >= fromDay && matches(rule.getName(), terms)) {
+                    rules.add(rule);
+                }
+            }
+        }
+        return new Result(found, new ArrayList<>(rules));
+    }
+
+    /**
+     * This method lists the days of a word's Events that are in a range, in order
+     * A short range is stepped through a day at a time, otherwise the word's own days are sorted
+     */
+    private static int[] daysInOrder(ConcurrentHashMap<Integer, Event[]> days, int fromDay, int toDay) {
+        long span = (long) toDay - fromDay + 1;
+        int[] found;
+        int count = 0;
+        if(span <= days.size()) {
+            found = new int[(int) span];
+            for(int day = fromDay; day <= toDay; day++) {
+                if(days.containsKey(day)) {
+                    found[count++] = day;
+                }
+            }
+            return Arrays.copyOf(found, count);
+        }
+        found = new int[days.size()];
+        for(Integer day: days.keySet()) {
+            if(day >= fromDay && day <= toDay) {
+                if(count == found.length) {
+                    found = Arrays.copyOf(found, count * 2 + 1);
+                }
+                found[count++] = day;
+            }
+        }
+        found = Arrays.copyOf(found, count);
+        Arrays.sort(found);
+        return found;
+    }
+
+    /**
+     * This method checks that every term starts one of the words of a name
+     */
+    private static boolean matches(String name, List<String> terms) {
+        List<String> nameWords = words(name);
+        for(String term: terms) {
+            boolean found = false;
+            for(String word: nameWords) {
+                if(word.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if(!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method splits text into its distinct lower case words of letters and digits
+     *
+     * @param text the text to split, may be null
+     * @return words the words in the order they first appear
+     */
+    static List<String> words(String text) {
+        if(text == null) {
+            return Collections.emptyList();
+        }
+        ArrayList<String> words = new ArrayList<>(4);
+        int start = -1;
+        for(int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if(inWord && start < 0) {
+                start = i;
+            }
+            else if(!inWord && start >= 0) {
+                String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if(!words.contains(word)) {
+                    words.add(word);
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * This class is creates the result of a search, the matching single Events and recurring Events
+     */
+    public static class Result {
+        private final ArrayList<Event> events;
+        private final ArrayList<RecurringEvent> rules;
+
+        private Result(ArrayList<Event> events, ArrayList<RecurringEvent> rules) {
+            this.events = events;
+            this.rules = rules;
+        }
+
+        /**
+         * This method returns the single Events found
+         *
+         * @return events the Events in date order
+         */
+        public ArrayList<Event> getEvents() {
+            return events;
+        }
+
+        /**
+         * This method returns the recurring Events found
+         *
+         * @return rules the recurring Events with a name that matches and days in the range
+         */
+        public ArrayList<RecurringEvent> getRules() {
+            return rules;
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package project;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * This class is creates a recurring Event, an Event that happens at the same times on some days of
+ * the week between a first and a last day
+ * Times are kept in minutes like an Event's, an occurrence that ends past 24:00 runs into the next day.
+ * Unlike a single Event the days and times are local to the time zone of the calendar holding the rule,
+ * so a weekly meeting stays at 9:00 when the clocks change. Its occurrences are made in UTC like any Event.
+ * A rule given a time outside -24:00 to 48:00 is moved whole days the way an Event is, with its first and last
+ * day and its days of the week moving along, so its occurrences keep their instants.
+ *
+ * The rule is stored once and its occurrences are only made as Events when a view asks for them.
+ * Days where an occurrence had a time conflict when the rule was added are kept as exclusions,
+ * the rule does not happen on those days. Deleting one occurrence excludes its day the same way.
+ *
+ * @author Kyle Cook
+ */
+
+public class RecurringEvent {
+
+    private static final int[] NO_DAYS = new int[0];
+
+    private final String name;
+    private final int firstDay;
+    private final int lastDay;
+    private final byte weekDays;
+    private final int start;
+    private final int end;
+    private final int movedDays;
+    private volatile int[] exclusions;
+    private volatile ZoneId zone;
+    private long id;
+    private volatile Controller owner;
+
+    /**
+     * This method constructs a RecurringEvent
+     *
+     * @param name the name of the Event
+     * @param firstDay the first day the rule covers, counted in days since 1970-01-01
+     * @param lastDay the last day the rule covers, counted in days since 1970-01-01
+     * @param weekDays the days of the week the Event happens on, bit 0 for Sunday to bit 6 for Saturday
+     * @param start the starting hour of each occurrence
+     * @param end the end hour of each occurrence
+     */
+    public RecurringEvent(String name, int firstDay, int lastDay, int weekDays, int start, int end) {
+        this(name, firstDay, lastDay, weekDays, Event.toMinute(start), Event.toMinute(end), false);
+    }
+
+    /**
+     * This method constructs a RecurringEvent with times in minutes, moved whole days if a time is out of range
+     * A migrated rule that still ends out of range is cut the way Event.migrated cuts an Event
+     */
+    private RecurringEvent(String name, int firstDay, int lastDay, int weekDays, long start, long end,
+            boolean migrated) {
+        if(lastDay < firstDay) {
+            throw new IllegalArgumentException("Last day is before the first day");
+        }
+        if((weekDays & ~0x7F) != 0) {
+            throw new IllegalArgumentException("Week days must be a mask of 7 bits: " + weekDays);
+        }
+        int days = Event.daysToMove(start, end);
+        int turn = Math.floorMod(days, 7);
+        long movedEnd = end - (long) days * Event.MINUTES_PER_DAY;
+        this.name = name;
+        this.firstDay = firstDay + days;
+        this.lastDay = lastDay + days;
+        this.weekDays = (byte) ((weekDays << turn | weekDays >>> (7 - turn)) & 0x7F);
+        this.start = Event.moveTime(start, days);
+        this.end = migrated ? (int) Math.max(Event.MIN_MINUTE, Math.min(Event.MAX_MINUTE, movedEnd))
+                : Event.moveTime(end, days);
+        this.movedDays = days;
+        this.exclusions = NO_DAYS;
+        this.zone = ZoneOffset.UTC;
+    }
+
+    /**
+     * This method makes a RecurringEvent with times to the minute
+     *
+     * @param name the name of the Event
+     * @param firstDay the first day the rule covers, counted in days since 1970-01-01
+     * @param lastDay the last day the rule covers, counted in days since 1970-01-01
+     * @param weekDays the days of the week the Event happens on, bit 0 for Sunday to bit 6 for Saturday
+     * @param startMinute the start of each occurrence in minutes from midnight
+     * @param endMinute the end of each occurrence in minutes from midnight, past 1440 to run overnight
+     * @return rule the new RecurringEvent
+     */
+    public static RecurringEvent ofMinutes(String name, int firstDay, int lastDay, int weekDays, int startMinute,
+            int endMinute) {
+        return new RecurringEvent(name, firstDay, lastDay, weekDays, startMinute, endMinute, false);
+    }
+
+    /**
+     * This method makes a RecurringEvent from the times of a file written before times were kept in range
+     * It is moved like any rule, and an end still out of range is cut to the nearest time in range
+     *
+     * @param name the name of the Event
+     * @param firstDay the first day the rule covers, counted in days since 1970-01-01
+     * @param lastDay the last day the rule covers, counted in days since 1970-01-01
+     * @param weekDays the days of the week the Event happens on, bit 0 for Sunday to bit 6 for Saturday
+     * @param startMinute the start of each occurrence in minutes from midnight
+     * @param endMinute the end of each occurrence in minutes from midnight
+     * @return rule the new RecurringEvent, with its times in range
+     */
+    static RecurringEvent migrated(String name, int firstDay, int lastDay, int weekDays, int startMinute,
+            int endMinute) {
+        return new RecurringEvent(name, firstDay, lastDay, weekDays, startMinute, endMinute, true);
+    }
+
+    /**
+     * This method returns how many days the rule was moved when it was made, so days written for it in a file
+     * from before it was moved, such as the days it leaves out, can be moved with it
+     *
+     * @return days the days the rule was moved later, 0 for a rule whose times were in range
+     */
+    int getMovedDays() {
+        return movedDays;
+    }
+
+    /**
+     * This method returns the name of the Event
+     *
+     * @return name the name of the Event
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * This method returns the first day the rule covers
+     *
+     * @return firstDay the epoch day of the first day
+     */
+    public int getFirstDay() {
+        return firstDay;
+    }
+
+    /**
+     * This method returns the last day the rule covers
+     *
+     * @return lastDay the epoch day of the last day
+     */
+    public int getLastDay() {
+        return lastDay;
+    }
+
+    /**
+     * This method returns the days of the week the Event happens on
+     *
+     * @return weekDays a mask with bit 0 for Sunday to bit 6 for Saturday
+     */
+    public int getWeekDays() {
+        return weekDays;
+    }
+
+    /**
+     * This method returns the starting hour of each occurrence
+     *
+     * @return start the starting hour, rounded down to a whole hour
+     */
+    public int getStart() {
+        return Math.floorDiv(start, 60);
+    }
+
+    /**
+     * This method returns the end hour of each occurrence
+     *
+     * @return end the end hour, rounded up to a whole hour
+     */
+    public int getEnd() {
+        return -Math.floorDiv(-end, 60);
+    }
+
+    /**
+     * This method returns the start time of each occurrence
+     *
+     * @return start the minutes from midnight of the occurrence's day
+     */
+    public int getStartMinute() {
+        return start;
+    }
+
+    /**
+     * This method returns the end time of each occurrence
+     *
+     * @return end the minutes from midnight of the occurrence's day, past 1440 when it runs overnight
+     */
+    public int getEndMinute() {
+        return end;
+    }
+
+    /**
+     * This method returns how many days past its own day each occurrence runs
+     *
+     * @return days 0 unless the occurrences go past midnight
+     */
+    public int getRunsAfter() {
+        return Event.runsAfter(start, end);
+    }
+
+    /**
+     * This method returns the days the rule covers but does not happen on
+     *
+     * @return exclusions the epoch days left out, in order
+     */
+    public int[] getExclusions() {
+        return exclusions.clone();
+    }
+
+    /**
+     * This method checks whether the Event happens on a day
+     *
+     * @param day the epoch day to check
+     * @return Boolean the value of whether there is an occurrence on that day(true) or not(false)
+     */
+    public boolean occursOn(int day) {
+        return day >= firstDay && day <= lastDay && (weekDays & (1 << ScheduleImporter.weekDay(day))) != 0
+                && Arrays.binarySearch(exclusions, day) < 0;
+    }
+
+    /**
+     * This method makes the occurrence of the Event on a day
+     * The occurrence is a copy, changing it does not change the rule
+     *
+     * @param day the local epoch day of the occurrence
+     * @return occurrence a new Event for that day in UTC, linked back to this rule
+     */
+    public Event occurrence(int day) {
+        Event occurrence = ZoneDays.toEvent(name, zone, day, start, end);
+        occurrence.setRecurringEvent(this);
+        return occurrence;
+    }
+
+    /**
+     * This method makes the occurrence of the Event on a day, using day boundaries already looked up
+     *
+     * @param day the local epoch day of the occurrence
+     * @param days the day boundaries of a run of days, used if they are in the rule's time zone
+     * @return occurrence a new Event for that day in UTC, linked back to this rule
+     */
+    Event occurrence(int day, ZoneDays days) {
+        if(!days.getZone().equals(zone)) {
+            return occurrence(day);
+        }
+        Event occurrence = days.toEvent(name, day, start, end);
+        occurrence.setRecurringEvent(this);
+        return occurrence;
+    }
+
+    /**
+     * This method returns the local day of the rule an occurrence was made for
+     *
+     * @param occurrence an occurrence of this rule
+     * @return day the local epoch day
+     */
+    int dayOf(Event occurrence) {
+        // a start moved forward by a gap is still less than a day after the rule's start
+        return (int) Math.floorDiv(ZoneDays.toLocal(zone, occurrence.getStartEpochMinute()) - start,
+                Event.MINUTES_PER_DAY);
+    }
+
+    /**
+     * This method returns the time zone the rule's days and times are in
+     *
+     * @return zone the time zone of the calendar holding the rule, UTC until it is added
+     */
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * This method sets the time zone of the rule, the Controller sets its own zone as it adds the rule
+     *
+     * @param zone the time zone of the rule's days and times
+     */
+    void setZone(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * This method counts the days the Event happens on
+     *
+     * @return count the number of occurrences
+     */
+    public int countOccurrences() {
+        int count = 0;
+        for(int day = nextDay(firstDay); day <= lastDay; day = nextDay(day + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * This method checks if an Event has a time conflict with an occurrence of this rule
+     *
+     * @param checkEvent the Event to be checked for time conflicts
+     * @return Boolean the value of whether there is a conflict(true) or not(false)
+     */
+    public boolean checkConflict(Event checkEvent) {
+        return findConflict(checkEvent) != null;
+    }
+
+    /**
+     * This method finds the occurrence of this rule that has a time conflict with an Event
+     * Only the days where an occurrence could reach the Event's times are looked at, one day unless
+     * either of them runs overnight. The Event's times are moved onto the rule's local clock to find
+     * those days and each occurrence found is checked again in UTC.
+     *
+     * @param checkEvent the Event to be checked for time conflicts
+     * @return occurrence the conflicting occurrence, or null if there is none
+     */
+    public Event findConflict(Event checkEvent) {
+        int checkDay = checkEvent.getDayKey();
+        long midnight = (long) checkDay * Event.MINUTES_PER_DAY;
+        int checkStart = (int) (ZoneDays.toLocal(zone, checkEvent.getStartEpochMinute()) - midnight);
+        int checkEnd = (int) (ZoneDays.toLocal(zone, checkEvent.getEndEpochMinute()) - midnight);
+        int from = checkDay + Event.firstDayOffset(checkStart, checkEnd) - Event.lastDayOffset(start, end);
+        int to = checkDay + Event.lastDayOffset(checkStart, checkEnd) - Event.firstDayOffset(start, end);
+        for(int day = from; day <= to; day++) {
+            long offset = (long) (checkDay - day) * Event.MINUTES_PER_DAY;
+            if(Event.checkConflict(start, end, checkStart + offset, checkEnd + offset) && occursOn(day)) {
+                Event occurrence = occurrence(day);
+                if(Event.checkConflict(occurrence.getStartEpochMinute(), occurrence.getEndEpochMinute(),
+                        checkEvent.getStartEpochMinute(), checkEvent.getEndEpochMinute())) {
+                    return occurrence;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * This method checks if any occurrence of another rule has a time conflict with an occurrence of this one
+     *
+     * @param other the rule to be checked for time conflicts
+     * @return Boolean the value of whether there is a conflict(true) or not(false)
+     */
+    public boolean checkConflict(RecurringEvent other) {
+        if(!hoursConflict(other)) {
+            return false;
+        }
+        for(int day = nextDay(firstDay); day <= lastDay; day = nextDay(day + 1)) {
+            if(conflictsOn(other, day)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This method checks if the times of two rules could have a time conflict, whatever days they happen on
+     * Each number of days the other rule's occurrence can start after this one's is tried, with the week days
+     * the two would fall on, so rules that run overnight are checked against the following day's rules
+     *
+     * @param other the other rule
+     * @return Boolean the value of whether the times conflict(true) or not(false)
+     */
+    boolean hoursConflict(RecurringEvent other) {
+        for(int shift = shiftFrom(other); shift <= shiftTo(other); shift++) {
+            long offset = (long) shift * Event.MINUTES_PER_DAY;
+            int shifted = Math.floorMod(shift, 7);
+            // the week days of this rule whose day shift days later is a week day of the other rule
+            int days = ((other.weekDays & 0x7F) >>> shifted | (other.weekDays & 0x7F) << (7 - shifted)) & 0x7F;
+            if((weekDays & days) != 0 && Event.checkConflict(start, end, other.start + offset, other.end + offset)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This method checks if this rule's occurrence on a day has a time conflict with an occurrence of another rule
+     *
+     * @param other the other rule
+     * @param day the epoch day of this rule's occurrence
+     * @return Boolean the value of whether there is a conflict(true) or not(false)
+     */
+    boolean conflictsOn(RecurringEvent other, int day) {
+        for(int shift = shiftFrom(other); shift <= shiftTo(other); shift++) {
+            long offset = (long) shift * Event.MINUTES_PER_DAY;
+            if(Event.checkConflict(start, end, other.start + offset, other.end + offset)
+                    && other.occursOn(day + shift)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * These methods return the fewest and most days after this rule's occurrence that another rule's
+     * occurrence can start and still reach it, both are 0 unless one of the rules reaches midnight
+     */
+    private int shiftFrom(RecurringEvent other) {
+        return Event.firstDayOffset(start, end) - Event.lastDayOffset(other.start, other.end);
+    }
+
+    private int shiftTo(RecurringEvent other) {
+        return Event.lastDayOffset(start, end) - Event.firstDayOffset(other.start, other.end);
+    }
+
+    /**
+     * This method finds the next day on or after a day that the Event happens on
+     *
+     * @param from the epoch day to start looking at
+     * @return day the epoch day found, or a day after the last day if there is none
+     */
+    int nextDay(int from) {
+        if(weekDays == 0) {
+            return lastDay + 1;
+        }
+        for(int day = Math.max(from, firstDay); day <= lastDay; day++) {
+            if((weekDays & (1 << ScheduleImporter.weekDay(day))) != 0 && Arrays.binarySearch(exclusions, day) < 0) {
+                return day;
+            }
+        }
+        return lastDay + 1;
+    }
+
+    /**
+     * This method leaves days out of the rule, it is called by the Controller while it adds the rule
+     * and when an occurrence is deleted
+     *
+     * @param days the epoch days to leave out, in any order
+     */
+    void exclude(int[] days) {
+        if(days.length == 0) {
+            return;
+        }
+        int[] merged = Arrays.copyOf(exclusions, exclusions.length + days.length);
+        System.arraycopy(days, 0, merged, exclusions.length, days.length);
+        Arrays.sort(merged);
+        int count = 0;
+        for(int i = 0; i < merged.length; i++) {
+            if(count == 0 || merged[count - 1] != merged[i]) {
+                merged[count++] = merged[i];
+            }
+        }
+        exclusions = Arrays.copyOf(merged, count);
+    }
+
+    /**
+     * This method returns the id the rule was given when it was added, unique within its calendar
+     *
+     * @return id the id of the rule, or 0 if it has never been added
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * This method sets the id the rule is known by in its Controller
+     *
+     * @param id the id of the rule
+     */
+    void setId(long id) {
+        this.id = id;
+    }
+
+    /**
+     * This method returns the Controller the rule was added to
+     *
+     * @return owner the Controller holding the rule, or null if it has not been added
+     */
+    Controller getOwner() {
+        return owner;
+    }
+
+    /**
+     * This method sets the Controller the rule was added to
+     *
+     * @param owner the Controller holding the rule
+     */
+    void setOwner(Controller owner) {
+        this.owner = owner;
+    }
+
+    @Override
+    public String toString() {
+        LocalDate first = LocalDate.ofEpochDay(firstDay);
+        LocalDate last = LocalDate.ofEpochDay(lastDay);
+        StringBuilder days = new StringBuilder();
+        for(int i = 0; i < 7; i++) {
+            if((weekDays & (1 << i)) != 0) {
+                days.append("SMTWHFA".charAt(i));
+            }
+        }
+        return "Recurring Event: " + name + "  " + first.getYear() + "/" + first.getMonthValue() + "/"
+                + first.getDayOfMonth() + " - " + last.getYear() + "/" + last.getMonthValue() + "/"
+                + last.getDayOfMonth() + " " + days + " Time: (" + Event.formatTime(start) + "-"
+                + Event.formatTime(end) + ")";
+    }
+}
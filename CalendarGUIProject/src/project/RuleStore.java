@@ -0,0 +1,218 @@
+package project;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is creates a store of RecurringEvents kept in an interval tree of the days they cover,
+ * so the rules that can happen in a day, week, month or interval are found without checking every rule.
+ *
+ * The tree is ordered by each rule's first day and every node remembers the latest last day under it,
+ * so a lookup only goes down the branches holding a rule that reaches its days, however long other rules run.
+ * Like the EventStore's arrays, a node is never changed once the tree is published: adding a rule copies
+ * the nodes on its path and swaps in the new root, readers take no locks and writes must be made
+ * one at a time by the caller.
+ * The store also remembers how many days before or after its own day any occurrence reaches, so the rules
+ * whose overnight occurrences run into a range are found as well.
+ *
+ * @author Kyle Cook
+ */
+
+public class RuleStore implements Iterable<RecurringEvent> {
+
+    private volatile Node root;
+    private AtomicInteger size;
+    private volatile int reachBefore;
+    private volatile int reachAfter;
+
+    /**
+     * This method constructs an empty RuleStore
+     */
+    public RuleStore() {
+        size = new AtomicInteger();
+    }
+
+    /**
+     * This method adds a rule to the store, after the rules with the same first day
+     *
+     * @param rule the rule to add
+     */
+    public void add(RecurringEvent rule) {
+        int before = -Event.firstDayOffset(rule.getStartMinute(), rule.getEndMinute());
+        int after = Event.lastDayOffset(rule.getStartMinute(), rule.getEndMinute());
+        if(before > reachBefore) {
+            reachBefore = before;
+        }
+        if(after > reachAfter) {
+            reachAfter = after;
+        }
+        root = insert(root, rule);
+        size.incrementAndGet();
+    }
+
+    /**
+     * This method returns the rules that cover any day between two days
+     *
+     * @param fromDay the first epoch day to include
+     * @param toDay the last epoch day to include
+     * @return active the list of rules whose days overlap the range, in order of their first day
+     */
+    public List<RecurringEvent> getActive(int fromDay, int toDay) {
+        Node top = root;
+        if(fromDay > toDay || top == null) {
+            return Collections.emptyList();
+        }
+        ArrayList<RecurringEvent> active = new ArrayList<>();
+        collect(top, fromDay, toDay, active);
+        return active;
+    }
+
+    /**
+     * This method returns the rules with occurrences that could reach any day between two days,
+     * the rules that cover those days and the ones that run into them overnight
+     *
+     * @param fromDay the first epoch day to include
+     * @param toDay the last epoch day to include
+     * @return reaching the list of rules, in order of their first day
+     */
+    public List<RecurringEvent> getReaching(int fromDay, int toDay) {
+        return getActive((int) Math.max((long) fromDay - reachAfter, Integer.MIN_VALUE),
+                (int) Math.min((long) toDay + reachBefore, Integer.MAX_VALUE));
+    }
+
+    /**
+     * This method finds a rule with an occurrence that has a time conflict with an Event
+     * The rules' days are local to their calendar's zone, which is never more than a day from the
+     * Event's UTC days, so the rules reaching a day either side are checked
+     *
+     * @param checkEvent the Event to be checked for time conflicts
+     * @return the conflicting rule, or null if there is none
+     */
+    public RecurringEvent findConflict(Event checkEvent) {
+        int day = checkEvent.getDayKey();
+        int start = checkEvent.getStartMinute();
+        int end = checkEvent.getEndMinute();
+        int fromDay = day + Event.firstDayOffset(start, end) - 1;
+        int toDay = day + Event.lastDayOffset(start, end) + 1;
+        return findConflict(root, (int) Math.max((long) fromDay - reachAfter, Integer.MIN_VALUE),
+                (int) Math.min((long) toDay + reachBefore, Integer.MAX_VALUE), checkEvent);
+    }
+
+    /**
+     * This method returns an iterator over every rule in the store, in order of their first day
+     *
+     * @return the iterator over the stored rules
+     */
+    @Override
+    public Iterator<RecurringEvent> iterator() {
+        ArrayList<RecurringEvent> all = new ArrayList<>(size.get());
+        collect(root, Integer.MIN_VALUE, Integer.MAX_VALUE, all);
+        return all.iterator();
+    }
+
+    /**
+     * This method returns the number of rules in the store
+     *
+     * @return size the number of rules stored
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * This method adds the rules under a node that cover any day between two days, in order of their first day
+     */
+    private static void collect(Node node, int fromDay, int toDay, List<RecurringEvent> found) {
+        while(node != null && node.maxLastDay >= fromDay) {
+            collect(node.left, fromDay, toDay, found);
+            if(node.firstDay > toDay) {
+                return;
+            }
+            if(node.rule.getLastDay() >= fromDay) {
+                found.add(node.rule);
+            }
+            node = node.right;
+        }
+    }
+
+    /**
+     * This method finds a rule under a node that covers any day between two days and has an occurrence
+     * in conflict with an Event, it stops at the first one
+     */
+    private static RecurringEvent findConflict(Node node, int fromDay, int toDay, Event checkEvent) {
+        while(node != null && node.maxLastDay >= fromDay) {
+            RecurringEvent found = findConflict(node.left, fromDay, toDay, checkEvent);
+            if(found != null) {
+                return found;
+            }
+            if(node.firstDay > toDay) {
+                return null;
+            }
+            if(node.rule.getLastDay() >= fromDay && node.rule.checkConflict(checkEvent)) {
+                return node.rule;
+            }
+            node = node.right;
+        }
+        return null;
+    }
+
+    /**
+     * This method returns a copy of the path to where a rule goes, with the rule added and the path balanced,
+     * the nodes of the old tree are left as they were
+     */
+    private static Node insert(Node node, RecurringEvent rule) {
+        if(node == null) {
+            return new Node(rule, null, null);
+        }
+        if(rule.getFirstDay() < node.firstDay) {
+            return balance(node.rule, insert(node.left, rule), node.right);
+        }
+        return balance(node.rule, node.left, insert(node.right, rule));
+    }
+
+    private static Node balance(RecurringEvent rule, Node left, Node right) {
+        int diff = height(left) - height(right);
+        if(diff > 1) {
+            if(height(left.left) < height(left.right)) {
+                left = new Node(left.right.rule, new Node(left.rule, left.left, left.right.left), left.right.right);
+            }
+            return new Node(left.rule, left.left, new Node(rule, left.right, right));
+        }
+        if(diff < -1) {
+            if(height(right.right) < height(right.left)) {
+                right = new Node(right.left.rule, right.left.left, new Node(right.rule, right.left.right, right.right));
+            }
+            return new Node(right.rule, new Node(rule, left, right.left), right.right);
+        }
+        return new Node(rule, left, right);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static class Node {
+        private final RecurringEvent rule;
+        private final int firstDay;
+        private final int maxLastDay;
+        private final int height;
+        private final Node left;
+        private final Node right;
+
+        private Node(RecurringEvent rule, Node left, Node right) {
+            this.rule = rule;
+            this.firstDay = rule.getFirstDay();
+            this.left = left;
+            this.right = right;
+            int max = rule.getLastDay();
+            if(left != null && left.maxLastDay > max) {
+                max = left.maxLastDay;
+            }
+            if(right != null && right.maxLastDay > max) {
+                max = right.maxLastDay;
+            }
+            this.maxLastDay = max;
+            this.height = 1 + Math.max(height(left), height(right));
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package project;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * This class is creates an importer for schedule files in the format
+ * name;year;monthStart;monthEnd;days;hourStart;hourEnd
+ *
+ * The times are whole hours such as 9, or hours and minutes such as 9:30. An end past 24 or 24:00
+ * runs overnight into the next day. The dates and times are local to the time zone of the calendar.
+ * A line with a time outside -24:00 to 48:00 is moved whole days like any RecurringEvent, a line whose
+ * Event runs longer than an Event can is left out and reported as an error of that line.
+ *
+ * The file is streamed through a fixed size buffer and fields are parsed straight from the bytes.
+ * Each line becomes one RecurringEvent instead of an Event for every matching day, and each batch
+ * of lines is committed to the Controller in one call, in the same order the lines appear in the file
+ *
+ * @author Kyle Cook
+ */
+
+public class ScheduleImporter {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int BATCH_LINES = 4096;
+    private static final String WEEK_DAYS = "SMTWHFA";
+
+    private Controller controller;
+    private Charset charset;
+    private HashMap<String, String> names;
+    private ArrayList<RecurringEvent> batch;
+    private ImportResult result;
+    private ProgressListener listener;
+    private volatile boolean cancelled;
+    private long bytesRead;
+    private long totalBytes;
+
+    /**
+     * This method constructs a ScheduleImporter that adds Events to a Controller
+     *
+     * @param controller the Controller the imported Events are added to
+     */
+    public ScheduleImporter(Controller controller) {
+        this.controller = controller;
+        this.charset = Charset.defaultCharset();
+    }
+
+    /**
+     * This method sets the listener told about progress after each batch is committed
+     *
+     * @param listener the listener to tell, or null for none
+     */
+    public void setProgressListener(ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * This method asks a running import to stop after the batch it is working on
+     * Events from batches already committed stay in the Calendar
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * This method returns whether the import was asked to stop
+     *
+     * @return Boolean the value of whether the import was cancelled(true) or not(false)
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * This method imports a schedule file
+     *
+     * @param input the file to be read in
+     * @return result the counts and line errors of the import
+     */
+    public ImportResult importFile(File input) {
+        try(FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+            return importChannel(channel, channel.size());
+        }
+        catch(IOException e) {
+            ImportResult failed = new ImportResult();
+            failed.addError(0, "Could not read file: " + e.getMessage());
+            return failed;
+        }
+    }
+
+    /**
+     * This method imports a schedule read from a stream, such as the body of a request
+     * The stream is read to its end but not closed
+     *
+     * @param input the stream to be read in
+     * @param totalBytes the length of the stream in bytes if it is known, used only for progress, or -1
+     * @return result the counts and line errors of the import
+     */
+    public ImportResult importStream(InputStream input, long totalBytes) {
+        return importChannel(Channels.newChannel(input), totalBytes);
+    }
+
+    /**
+     * This method imports a schedule from a channel, recording how long it took in the Controller's Metrics
+     */
+    private ImportResult importChannel(ReadableByteChannel channel, long size) {
+        Metrics metrics = controller.getMetrics();
+        long started = metrics.start();
+        result = new ImportResult();
+        names = new HashMap<>();
+        batch = new ArrayList<>();
+
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long lineNumber = 0;
+            boolean endOfFile = false;
+            bytesRead = 0;
+            totalBytes = size;
+
+            while(!endOfFile && !cancelled) {
+                int scanFrom = buffer.position();
+                int read = channel.read(buffer);
+                endOfFile = read < 0;
+                bytesRead += Math.max(read, 0);
+                byte[] bytes = buffer.array();
+                int limit = buffer.position();
+                int lineStart = 0;
+
+                for(int i = scanFrom; i < limit && !cancelled; i++) {
+                    if(bytes[i] == '\n') {
+                        readLine(bytes, lineStart, i, ++lineNumber);
+                        lineStart = i + 1;
+                    }
+                }
+                if(endOfFile && lineStart < limit) {
+                    readLine(bytes, lineStart, limit, ++lineNumber);
+                    lineStart = limit;
+                }
+
+                // keep the unfinished line at the front of the buffer
+                int remaining = limit - lineStart;
+                if(lineStart == 0 && remaining == buffer.capacity()) {
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    larger.put(bytes, 0, remaining);
+                    buffer = larger;
+                }
+                else {
+                    System.arraycopy(bytes, lineStart, bytes, 0, remaining);
+                    buffer.position(remaining);
+                }
+            }
+            if(cancelled) {
+                result.markCancelled();
+            }
+            else {
+                commitBatch();
+            }
+        }
+        catch(IOException e) {
+            result.addError(0, "Could not read file: " + e.getMessage());
+        }
+        finally {
+            names = null;
+            batch = null;
+        }
+        if(started != 0) {
+            metrics.count(Metrics.Counter.IMPORT_LINES, result.getLinesRead());
+            metrics.count(Metrics.Counter.IMPORT_BYTES, bytesRead);
+            metrics.count(Metrics.Counter.IMPORT_NANOS, System.nanoTime() - started);
+            metrics.record(Metrics.Operation.IMPORT, started);
+        }
+        return result;
+    }
+
+    /**
+     * This method parses one line of the file and queues its recurring Event
+     */
+    private void readLine(byte[] bytes, int from, int to, long lineNumber) {
+        if(to > from && bytes[to - 1] == '\r') {
+            to--;
+        }
+        if(to == from) {
+            return;
+        }
+        result.lineRead();
+
+        int[] fieldEnds = new int[7];
+        int field = 0;
+        for(int i = from; i < to && field < 7; i++) {
+            if(bytes[i] == ';') {
+                fieldEnds[field++] = i;
+            }
+        }
+        if(field < 7) {
+            if(field < 6) {
+                result.addError(lineNumber, "Expected 7 fields separated by ';' but found " + (field + 1));
+                return;
+            }
+            fieldEnds[6] = to;
+        }
+
+        try {
+            String name = name(bytes, from, fieldEnds[0]);
+            int year = parseInt(bytes, fieldEnds[0] + 1, fieldEnds[1], "year");
+            int monthStart = parseMonth(bytes, fieldEnds[1] + 1, fieldEnds[2], "monthStart");
+            int monthEnd = parseMonth(bytes, fieldEnds[2] + 1, fieldEnds[3], "monthEnd");
+            int weekDays = parseWeekDays(bytes, fieldEnds[3] + 1, fieldEnds[4]);
+            int start = parseTime(bytes, fieldEnds[4] + 1, fieldEnds[5], "hourStart");
+            int end = parseTime(bytes, fieldEnds[5] + 1, fieldEnds[6], "hourEnd");
+            if(weekDays != 0) {
+                batch.add(rule(name, year, monthStart, monthEnd, weekDays, start, end));
+            }
+        }
+        catch(IllegalArgumentException e) {
+            result.addError(lineNumber, e.getMessage());
+            return;
+        }
+        catch(RuntimeException e) {
+            result.addError(lineNumber, "Invalid date: " + e.getMessage());
+            return;
+        }
+
+        if(batch.size() >= BATCH_LINES) {
+            commitBatch();
+        }
+    }
+
+    /**
+     * This method adds the queued recurring Events to the Controller in file order
+     * The occurrences each rule had to leave out because of a time conflict are counted as rejected
+     */
+    private void commitBatch() {
+        if(batch.isEmpty()) {
+            return;
+        }
+        long added = controller.addImported(batch);
+        long rejected = 0;
+        for(RecurringEvent rule: batch) {
+            rejected += rule.getExclusions().length;
+        }
+        result.eventsCommitted(added, rejected);
+        batch.clear();
+
+        if(listener != null) {
+            listener.batchCommitted(Math.min(bytesRead, totalBytes), totalBytes,
+                    result.getLinesRead(), result.getEventsAdded());
+        }
+    }
+
+    /**
+     * This method decodes a name, lines that repeat a name share one String
+     */
+    private String name(byte[] bytes, int from, int to) {
+        String name = new String(bytes, from, to - from, charset);
+        String shared = names.putIfAbsent(name, name);
+        return shared == null ? name : shared;
+    }
+
+    /**
+     * This method parses a whole number the same way Integer.parseInt does, without building a String
+     */
+    private static int parseInt(byte[] bytes, int from, int to, String field) {
+        int i = from;
+        boolean negative = false;
+        if(i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        if(i == to) {
+            throw new IllegalArgumentException("Missing number for " + field);
+        }
+        long value = 0;
+        for(; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if(digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid number for " + field + ": "
+                        + new String(bytes, from, to - from));
+            }
+            value = value * 10 + digit;
+            if(value > (long) Integer.MAX_VALUE + 1) {
+                throw new IllegalArgumentException("Number too large for " + field);
+            }
+        }
+        value = negative ? -value : value;
+        if(value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Number too large for " + field);
+        }
+        return (int) value;
+    }
+
+    private static int parseMonth(byte[] bytes, int from, int to, String field) {
+        int month = parseInt(bytes, from, to, field);
+        if(month < 1 || month > 12) {
+            throw new IllegalArgumentException(field + " must be between 1 and 12: " + month);
+        }
+        return month;
+    }
+
+    /**
+     * This method reads a time of H or H:MM as minutes from the start of the day
+     */
+    private static int parseTime(byte[] bytes, int from, int to, String field) {
+        int colon = from;
+        while(colon < to && bytes[colon] != ':') {
+            colon++;
+        }
+        int hour = parseInt(bytes, from, colon, field);
+        if(hour < Short.MIN_VALUE || hour > Short.MAX_VALUE) {
+            throw new IllegalArgumentException(field + " is out of range: " + hour);
+        }
+        if(colon == to) {
+            return hour * 60;
+        }
+        if(to - colon != 3 || bytes[colon + 1] == '-' || bytes[colon + 1] == '+') {
+            throw new IllegalArgumentException("Invalid minutes for " + field + ": "
+                    + new String(bytes, from, to - from));
+        }
+        int minute = parseInt(bytes, colon + 1, to, field);
+        if(minute > 59) {
+            throw new IllegalArgumentException(field + " minutes must be between 0 and 59: " + minute);
+        }
+        return bytes[from] == '-' ? hour * 60 - minute : hour * 60 + minute;
+    }
+
+    /**
+     * This method turns the S,M,T,W,H,F,A day codes into a mask with Sunday as bit 0
+     */
+    private static int parseWeekDays(byte[] bytes, int from, int to) {
+        int mask = 0;
+        for(int i = from; i < to; i++) {
+            int weekDay = WEEK_DAYS.indexOf(bytes[i]);
+            if(weekDay >= 0) {
+                mask |= 1 << weekDay;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * This method makes the recurring Event of a line, covering the first day of monthStart until
+     * the day before the first day of monthEnd, the same days readFile has always produced
+     * When monthStart and monthEnd are the same month only its first day is covered
+     */
+    private static RecurringEvent rule(String name, int year, int monthStart, int monthEnd, int weekDays,
+            int start, int end) {
+        LocalDate first = LocalDate.of(year, monthStart, 1);
+        LocalDate last;
+        if(monthEnd == monthStart) {
+            last = first.plusDays(1);
+        }
+        else {
+            last = LocalDate.of(year, monthEnd, 1);
+            if(monthEnd < monthStart) {
+                last = last.plusYears(1);
+            }
+        }
+        return RecurringEvent.ofMinutes(name, (int) first.toEpochDay(), (int) last.toEpochDay() - 1, weekDays,
+                start, end);
+    }
+
+    /**
+     * This method returns the day of the week of an epoch day with Sunday as 0, 1970-01-01 was a Thursday
+     */
+    static int weekDay(int day) {
+        return Math.floorMod(day + 4, 7);
+    }
+
+    /**
+     * This interface is told how far an import has got each time a batch of lines is committed
+     */
+    public interface ProgressListener {
+
+        /**
+         * This method is called on the importing thread after a batch is committed
+         *
+         * @param bytesRead the number of bytes of the file read so far
+         * @param totalBytes the size of the file in bytes, or -1 if it is not known
+         * @param linesRead the number of lines read so far
+         * @param eventsAdded the number of Events added so far
+         */
+        void batchCommitted(long bytesRead, long totalBytes, long linesRead, long eventsAdded);
+    }
+
+}
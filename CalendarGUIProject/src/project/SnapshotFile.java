@@ -0,0 +1,298 @@
+package project;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * This class is creates the binary snapshot file the Calendar is saved to and loaded from
+ *
+ * The file holds a header, a table of the distinct Event names and then one column each for the
+ * epoch days, start minutes, end minutes, name numbers and ids of the Events, in date order:
+ *
+ *   int magic, int version, long generation, int zoneLength, UTF-8 zone id,
+ *   int nameCount, nameCount x (int length, UTF-8 bytes),
+ *   int eventCount, int[eventCount] days, int[eventCount] starts, int[eventCount] ends,
+ *   int[eventCount] names (-1 for an Event without a name), long[eventCount] ids,
+ *   int ruleCount, ruleCount x (int name, long id, int firstDay, int lastDay, byte weekDays, int start, int end,
+ *   int exclusionCount, int[exclusionCount] excluded days)
+ *
+ * The generation is a random number picked for each save, the journal names the generation it follows
+ * so records already covered by a snapshot are never replayed twice. Version 1 files have no generation,
+ * version 1 and 2 files have no recurring Events, files before version 4 hold their times as short hours
+ * and files before version 5 have no ids, their Events are given new ids when they are loaded.
+ * Events are in UTC and the recurring Events are local to the calendar's zone, written after the generation.
+ * Files before version 6 have no zone, their Events were saved local to the calendar's zone and are moved
+ * to UTC as they are read.
+ * Files written before times were kept from -24:00 to 48:00 can hold times outside that range. Their Events and
+ * recurring Events are moved whole days as they are read, keeping their instants, and a recurring Event's
+ * excluded days move with it. One that runs longer than an Event can is cut short, see Event.migrated.
+ *
+ * @author Kyle Cook
+ */
+
+public class SnapshotFile {
+
+    private static final int MAGIC = 0x504B4353;
+    private static final int VERSION = 6;
+
+    /**
+     * This method returns the file the Calendar is saved to between runs
+     *
+     * @return the snapshot file in the user's home directory
+     */
+    public static File defaultFile() {
+        return new File(new File(System.getProperty("user.home"), ".park-calendar"), "calendar.snapshot");
+    }
+
+    /**
+     * This method writes the Events of a store and the rules of a rule store to a snapshot file
+     * The file is written next to the target, flushed to disk and then moved over the target,
+     * so a crash leaves either the old snapshot or the new one
+     *
+     * @param file the snapshot file to write
+     * @param store the store holding the Events to write
+     * @param rules the store holding the recurring Events to write
+     * @param zone the time zone of the calendar, the recurring Events are local to it
+     * @param generation the generation number of this snapshot
+     * @throws IOException if the file could not be written
+     */
+    public static void write(File file, EventStore store, RuleStore rules, ZoneId zone, long generation)
+            throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+
+        try {
+            LinkedHashMap<String, Integer> names = new LinkedHashMap<>();
+            for(Event e: store) {
+                if(e.getName() != null && !names.containsKey(e.getName())) {
+                    names.put(e.getName(), names.size());
+                }
+            }
+            for(RecurringEvent rule: rules) {
+                if(rule.getName() != null && !names.containsKey(rule.getName())) {
+                    names.put(rule.getName(), names.size());
+                }
+            }
+
+            try(FileOutputStream fileOut = new FileOutputStream(temp.toFile());
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(generation);
+                byte[] zoneId = zone.getId().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(zoneId.length);
+                out.write(zoneId);
+                out.writeInt(names.size());
+                for(String name: names.keySet()) {
+                    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+
+                out.writeInt(store.size());
+                for(Event e: store) {
+                    out.writeInt(e.getDayKey());
+                }
+                for(Event e: store) {
+                    out.writeInt(e.getStartMinute());
+                }
+                for(Event e: store) {
+                    out.writeInt(e.getEndMinute());
+                }
+                for(Event e: store) {
+                    out.writeInt(e.getName() == null ? -1 : names.get(e.getName()));
+                }
+                for(Event e: store) {
+                    out.writeLong(e.getId());
+                }
+
+                out.writeInt(rules.size());
+                for(RecurringEvent rule: rules) {
+                    out.writeInt(rule.getName() == null ? -1 : names.get(rule.getName()));
+                    out.writeLong(rule.getId());
+                    out.writeInt(rule.getFirstDay());
+                    out.writeInt(rule.getLastDay());
+                    out.writeByte(rule.getWeekDays());
+                    out.writeInt(rule.getStartMinute());
+                    out.writeInt(rule.getEndMinute());
+                    int[] exclusions = rule.getExclusions();
+                    out.writeInt(exclusions.length);
+                    for(int day: exclusions) {
+                        out.writeInt(day);
+                    }
+                }
+                out.flush();
+                fileOut.getFD().sync();
+            }
+
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch(AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * This method reads the Events and recurring Events of a snapshot file through a memory-mapped buffer
+     *
+     * @param file the snapshot file to read
+     * @param legacyZone the zone the Events of a file from before version 6 are local to
+     * @return contents the generation, zone, Events and recurring Events of the file
+     * @throws IOException if the file could not be read or is not a snapshot
+     */
+    public static Contents read(File file, ZoneId legacyZone) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                if(buffer.getInt() != MAGIC) {
+                    throw new IOException("Not a calendar snapshot: " + file);
+                }
+                int version = buffer.getInt();
+                if(version < 1 || version > VERSION) {
+                    throw new IOException("Unsupported snapshot version " + version + ": " + file);
+                }
+                long generation = version >= 2 ? buffer.getLong() : 0;
+                ZoneId zone = legacyZone;
+                if(version >= 6) {
+                    byte[] zoneId = new byte[buffer.getInt()];
+                    buffer.get(zoneId);
+                    zone = ZoneId.of(new String(zoneId, StandardCharsets.UTF_8));
+                }
+
+                String[] names = new String[buffer.getInt()];
+                for(int i = 0; i < names.length; i++) {
+                    byte[] bytes = new byte[buffer.getInt()];
+                    buffer.get(bytes);
+                    names[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+
+                boolean minutes = version >= 4;
+                int timeSize = minutes ? 4 : 2;
+                int count = buffer.getInt();
+                int daysAt = buffer.position();
+                int startsAt = daysAt + count * 4;
+                int endsAt = startsAt + count * timeSize;
+                int namesAt = endsAt + count * timeSize;
+                int idsAt = namesAt + count * 4;
+                int idSize = version >= 5 ? 8 : 0;
+                if(idsAt + (long) count * idSize > buffer.limit()) {
+                    throw new IOException("Snapshot is truncated: " + file);
+                }
+
+                Event[] events = new Event[count];
+                for(int i = 0; i < count; i++) {
+                    int name = buffer.getInt(namesAt + i * 4);
+                    int day = buffer.getInt(daysAt + i * 4);
+                    int start = minutes ? buffer.getInt(startsAt + i * 4) : buffer.getShort(startsAt + i * 2) * 60;
+                    int end = minutes ? buffer.getInt(endsAt + i * 4) : buffer.getShort(endsAt + i * 2) * 60;
+                    if(version >= 6) {
+                        events[i] = Event.readStored(name < 0 ? null : names[name], day, start, end).withZone(zone);
+                    }
+                    else {
+                        Event e = Event.migrated(name < 0 ? null : names[name], day, start, end);
+                        events[i] = Event.inZone(e.getName(), e.getDayKey(), e.getStartMinute(), e.getEndMinute(),
+                                zone);
+                    }
+                    if(idSize > 0) {
+                        events[i].setId(buffer.getLong(idsAt + i * 8));
+                    }
+                }
+                if(version < 6) {
+                    // moving to UTC can split a local day over two UTC days, the store wants them in UTC date order
+                    Arrays.sort(events, Comparator.comparingInt(Event::getDayKey));
+                }
+
+                RecurringEvent[] rules = new RecurringEvent[0];
+                if(version >= 3) {
+                    buffer.position(idsAt + count * idSize);
+                    rules = new RecurringEvent[buffer.getInt()];
+                    for(int i = 0; i < rules.length; i++) {
+                        int name = buffer.getInt();
+                        long id = idSize > 0 ? buffer.getLong() : 0;
+                        int firstDay = buffer.getInt();
+                        int lastDay = buffer.getInt();
+                        byte weekDays = buffer.get();
+                        int start = minutes ? buffer.getInt() : buffer.getShort() * 60;
+                        int end = minutes ? buffer.getInt() : buffer.getShort() * 60;
+                        rules[i] = RecurringEvent.migrated(name < 0 ? null : names[name], firstDay, lastDay, weekDays,
+                                start, end);
+                        int[] exclusions = new int[buffer.getInt()];
+                        for(int j = 0; j < exclusions.length; j++) {
+                            exclusions[j] = buffer.getInt() + rules[i].getMovedDays();
+                        }
+                        rules[i].exclude(exclusions);
+                        rules[i].setId(id);
+                    }
+                }
+                return new Contents(generation, zone, events, rules);
+            }
+            catch(RuntimeException e) {
+                throw new IOException("Snapshot is corrupt: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * This class is creates the contents read back from a snapshot file
+     */
+    public static class Contents {
+        private final long generation;
+        private final ZoneId zone;
+        private final Event[] events;
+        private final RecurringEvent[] rules;
+
+        private Contents(long generation, ZoneId zone, Event[] events, RecurringEvent[] rules) {
+            this.generation = generation;
+            this.zone = zone;
+            this.events = events;
+            this.rules = rules;
+        }
+
+        /**
+         * This method returns the generation number the snapshot was saved with
+         *
+         * @return generation the snapshot's generation
+         */
+        public long getGeneration() {
+            return generation;
+        }
+
+        /**
+         * This method returns the time zone of the calendar that was saved, its recurring Events are local to it
+         *
+         * @return zone the saved zone, or the zone asked for if the file is from before zones were saved
+         */
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        /**
+         * This method returns the Events of the snapshot, in date order
+         *
+         * @return events the saved Events
+         */
+        public Event[] getEvents() {
+            return events;
+        }
+
+        /**
+         * This method returns the recurring Events of the snapshot, in order of their first day
+         *
+         * @return rules the saved recurring Events
+         */
+        public RecurringEvent[] getRules() {
+            return rules;
+        }
+    }
+}
@@ -1,17 +1,106 @@
 package project;
 
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.Arrays;
 
 /**
  * This class is a tester method for our Calendar GUI
+ * Started with --server [port] it runs the headless CalendarServer instead of the GUI
+ * With -Dcalendar.metrics=true latencies are recorded and shown through JMX, and with
+ * -Dcalendar.metrics.csv=file (or - for standard output) they are also written every
+ * calendar.metrics.period seconds, 60 by default
  * 
  * @author Kyle Cook
  */
 
 public class Tester {
 	
-	public static void main(String [] args) {
+	public static void main(String [] args) throws IOException {
 		
+		if(args.length > 0 && args[0].equals("--server")) {
+			CalendarServer.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+
+		Controller controller = Controller.getInstance();
+		openSavedEvents(controller);
+		startMetricsReporter();
+
 		Viewer tester = new Viewer();
+		tester.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				saveEvents(controller);
+			}
+		});
 		tester.setVisible(true);
 	}
+
+	/**
+	 * This method loads the saved snapshot into a Controller and opens its journal
+	 * 
+	 * @param controller the Controller to load the saved Events into
+	 */
+	static void openSavedEvents(Controller controller) {
+		File snapshot = SnapshotFile.defaultFile();
+		File journal = new File(snapshot.getParentFile(), "calendar.journal");
+		if(snapshot.exists()) {
+			try {
+				controller.loadSnapshot(snapshot);
+			}
+			catch(IOException e) {
+				System.err.println("Could not load saved events: " + e.getMessage());
+			}
+		}
+		try {
+			EventJournal.Durability durability = EventJournal.Durability.valueOf(
+					System.getProperty("calendar.durability", EventJournal.Durability.BATCHED.name()));
+			controller.openJournal(journal, durability);
+		}
+		catch(IOException e) {
+			System.err.println("Could not open the event journal, changes will only be saved on exit: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * This method starts writing the Metrics of every calendar as CSV, if the calendar.metrics.csv property is set
+	 * 
+	 * @return reporter the running reporter, or null if there is none
+	 */
+	static MetricsReporter startMetricsReporter() {
+		String target = System.getProperty("calendar.metrics.csv");
+		if(target == null) {
+			return null;
+		}
+		long periodMillis = Long.getLong("calendar.metrics.period", 60) * 1000;
+		try {
+			if(target.equals("-")) {
+				return new MetricsReporter(new OutputStreamWriter(System.out), true, periodMillis);
+			}
+			return new MetricsReporter(new File(target), periodMillis);
+		}
+		catch(IOException e) {
+			System.err.println("Could not open the metrics file, metrics will not be written: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * This method saves a Controller's Events to the snapshot and closes its journal
+	 * 
+	 * @param controller the Controller whose Events are saved
+	 */
+	static void saveEvents(Controller controller) {
+		try {
+			controller.saveSnapshot(SnapshotFile.defaultFile());
+			controller.closeJournal();
+		}
+		catch(IOException ex) {
+			System.err.println("Could not save events: " + ex.getMessage());
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,237 @@
+package project;
+
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * This class is creates a bounded cache of view query results, keyed by the view, the days it covers and
+ * the time zone they are local to
+ *
+ * The least recently used result is dropped once the cache is full. Every change to the Calendar
+ * drops the results whose days include a day that changed, results for other days are kept. Changes are
+ * given as the UTC days the store keeps, each result remembers the UTC days its local days reach.
+ * A result worked out while a change was being made is not cached, since it may have missed the change.
+ * The cache keeps its own copy of each result, the occurrences of recurring Events in it are made
+ * again for every caller so changing one does not change the cache.
+ *
+ * @author Kyle Cook
+ */
+
+public class ViewCache {
+
+    /**
+     * This enum lists the views whose results are cached
+     */
+    public enum View {
+        DAY, WEEK, MONTH, INTERVAL
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Key, ArrayList<Event>> results;
+    private long changes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * This method constructs an empty ViewCache
+     *
+     * @param capacity the most results to keep
+     */
+    public ViewCache(int capacity) {
+        this.capacity = capacity;
+        this.results = new LinkedHashMap<Key, ArrayList<Event>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ArrayList<Event>> eldest) {
+                if(size() > ViewCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * This method returns a copy of a cached result
+     *
+     * @param view the view asked for
+     * @param fromDay the first local epoch day of the view
+     * @param toDay the last local epoch day of the view
+     * @param zone the time zone of the view's days
+     * @return events a copy of the cached result, or null if it is not cached
+     */
+    public ArrayList<Event> get(View view, int fromDay, int toDay, ZoneId zone) {
+        ArrayList<Event> events;
+        synchronized(this) {
+            events = results.get(new Key(view, fromDay, toDay, zone, 0, 0));
+            if(events == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        return copy(events);
+    }
+
+    /**
+     * This method returns a number that changes every time the Calendar changes, it is read before
+     * a result is worked out and handed back to put
+     *
+     * @return changes the number of changes made so far
+     */
+    public synchronized long stamp() {
+        return changes;
+    }
+
+    /**
+     * This method caches a result, unless the Calendar changed while it was being worked out
+     *
+     * @param view the view of the result
+     * @param days the local days of the view and their time zone
+     * @param events the result to cache
+     * @param stamp the value stamp returned before the result was worked out
+     */
+    public void put(View view, ZoneDays days, ArrayList<Event> events, long stamp) {
+        ArrayList<Event> copy = copy(events);
+        synchronized(this) {
+            if(stamp == changes) {
+                results.put(new Key(view, days.getFirstDay(), days.getLastDay(), days.getZone(),
+                        days.getFirstUtcDay(), days.getLastUtcDay()), copy);
+            }
+        }
+    }
+
+    /**
+     * This method copies a result, Events that belong to no Controller are occurrences and are made again
+     */
+    private static ArrayList<Event> copy(ArrayList<Event> events) {
+        ArrayList<Event> copy = new ArrayList<>(events.size());
+        for(Event e: events) {
+            copy.add(e.getOwner() == null ? e.copy() : e);
+        }
+        return copy;
+    }
+
+    /**
+     * This method drops every cached result that covers any day between two days, it is called after a change
+     *
+     * @param fromDay the first UTC epoch day that changed
+     * @param toDay the last UTC epoch day that changed
+     */
+    public synchronized void invalidate(int fromDay, int toDay) {
+        changes++;
+        if(results.isEmpty()) {
+            return;
+        }
+        Iterator<Key> keys = results.keySet().iterator();
+        while(keys.hasNext()) {
+            Key key = keys.next();
+            if(key.firstUtcDay <= toDay && key.lastUtcDay >= fromDay) {
+                keys.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * This method drops every cached result
+     */
+    public synchronized void clear() {
+        changes++;
+        invalidations += results.size();
+        results.clear();
+    }
+
+    /**
+     * This method returns how many lookups found a cached result
+     *
+     * @return hits the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * This method returns how many lookups did not find a cached result
+     *
+     * @return misses the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * This method returns how many results were dropped to make room for newer ones
+     *
+     * @return evictions the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * This method returns how many results were dropped because their days changed
+     *
+     * @return invalidations the number of invalidated results
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * This method returns the number of results cached
+     *
+     * @return size the number of results
+     */
+    public synchronized int size() {
+        return results.size();
+    }
+
+    /**
+     * This method returns the most results the cache keeps
+     *
+     * @return capacity the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * This class is creates the key of a cached result, the UTC days are only used to invalidate it
+     */
+    private static class Key {
+        private final View view;
+        private final int fromDay;
+        private final int toDay;
+        private final ZoneId zone;
+        private final int firstUtcDay;
+        private final int lastUtcDay;
+
+        private Key(View view, int fromDay, int toDay, ZoneId zone, int firstUtcDay, int lastUtcDay) {
+            this.view = view;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.zone = zone;
+            this.firstUtcDay = firstUtcDay;
+            this.lastUtcDay = lastUtcDay;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return view == key.view && fromDay == key.fromDay && toDay == key.toDay && zone.equals(key.zone);
+        }
+
+        @Override
+        public int hashCode() {
+            return ((view.ordinal() * 31 + fromDay) * 31 + toDay) * 31 + zone.hashCode();
+        }
+    }
+}
@@ -7,6 +7,11 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -22,25 +27,44 @@ public class Viewer extends JFrame implements ActionListener
 {
 
 	private static final long serialVersionUID = 1L;
+	private static final Color[] HEAT = heatColors();
 	private int currentDaySelected;
     private Controller controller;
+    private Supplier<ArrayList<Event>> currentView;
 
     private final String[] monthArray = new String[] {  "January", "Feburary", "March", "April", "May", "June", "July",
             "August", "September", "October", "November", "December"};
 
     private JPanel content;
     private JButton[][] dateNum;
+    private int[][] shownDays;
+    private JButton selectedB;
+    private int[] pendingMonth;
+    private Calendar pendingFirst;
+    private boolean renderPending;
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "calendar-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<Calendar> prefetchNext = new AtomicReference<>();
+    private volatile MonthTotals[] prefetched = new MonthTotals[0];
     private JButton todayB;
     private JButton monthBackB;
     private JButton monthForwardB;
-    private JTextArea eventData;
+    private JList<Event> eventData;
+    private EventListModel eventRows;
     private JButton dayViewerB;
     private JButton weekViewerB;
     private JButton monthViewerB;
     private JButton agendaViewerB;
     private JButton fileB;
+    private JTextField searchField;
+    private JButton searchB;
     private JLabel dateTitle;
     private JButton createB;
+    private JButton editB;
+    private JButton deleteB;
     private JButton dayBackB;
     private JButton dayForwardB;
 
@@ -80,66 +104,223 @@ public class Viewer extends JFrame implements ActionListener
         setDayColor();
         b.setForeground(Color.WHITE);
         b.setBackground(Color.DARK_GRAY);
+        selectedB = b;
         this.currentDaySelected = Integer.parseInt(b.getText());
         controller.setDay(currentDaySelected);
     }
 
     /**
-     * This method sets the days on the Calendar to black
+     * This method sets the highlighted day on the Calendar back to black
      * 
      */
     private void setDayColor()
     {
-        for(int i = 0; i < dateNum.length; i++)
+        if(selectedB != null)
         {
-            for(JButton button: dateNum[i])
-            {
-                button.setForeground(Color.DARK_GRAY);
-
-                button.setBackground(Color.WHITE);
-            }
+            Color heat = (Color) selectedB.getClientProperty("heat");
+            selectedB.setForeground(Color.DARK_GRAY);
+            selectedB.setBackground(heat == null ? Color.WHITE : heat);
+            selectedB = null;
         }
     }
 
     /**
      * This method displays the month
+     * The layout is worked out now and the grid is drawn once the current events are handled,
+     * so several clicks in a row only draw the grid for the last one
      * 
      */
     public void monthDisplay() {
         Calendar cal = controller.getCalendar();
+        Calendar first = (Calendar) cal.clone();
+        first.set(Calendar.DAY_OF_MONTH, 1);
 
-        for (int i = 0; i < 6; i++) {
-            for (int j = 0; j < 7; j++) {
-                dateNum[i][j].setVisible(false);
+        pendingFirst = first;
+        pendingMonth = new int[] {cal.get(Calendar.MONTH), cal.get(Calendar.YEAR),
+                first.get(Calendar.DAY_OF_WEEK) - 1, cal.getActualMaximum(Calendar.DAY_OF_MONTH)};
+        cal.set(Calendar.DAY_OF_MONTH, this.currentDaySelected);
+        redrawMonth();
+        prefetch(cal);
+    }
+
+    /**
+     * This method asks the prefetch worker to get the periods around a day ready
+     * Only the last day asked for is prefetched, days asked for while the worker is busy are skipped
+     *
+     * @param cal a Calendar set to the day being looked at
+     */
+    private void prefetch(Calendar cal) {
+        if(prefetchNext.getAndSet((Calendar) cal.clone()) == null) {
+            prefetcher.execute(this::prefetchLatest);
+        }
+    }
+
+    /**
+     * This method runs on the prefetch worker, it works out the day, week and month views around the last
+     * day asked for so the Controller caches them, and the grid totals of the months before and after it
+     */
+    private void prefetchLatest() {
+        Calendar cal;
+        while((cal = prefetchNext.getAndSet(null)) != null) {
+            MonthTotals[] totals = new MonthTotals[2];
+            for(int step = -1; step <= 1; step++) {
+                Calendar month = (Calendar) cal.clone();
+                month.add(Calendar.MONTH, step);
+                controller.getMonthEvents(month);
+                Calendar week = (Calendar) cal.clone();
+                week.add(Calendar.DAY_OF_MONTH, 7 * step);
+                controller.getWeekEvents(week);
+                Calendar day = (Calendar) cal.clone();
+                day.add(Calendar.DAY_OF_MONTH, step);
+                controller.getDayEvents(day);
+                if(step != 0) {
+                    totals[(step + 1) / 2] = new MonthTotals(month);
+                }
             }
+            prefetched = totals;
+        }
+    }
+
+    /**
+     * This class holds the per-day totals of a month worked out by the prefetch worker, they are only
+     * used while the Calendar has not changed since they were read
+     */
+    private class MonthTotals {
+        private final long stamp;
+        private final int firstDay;
+        private final int[] counts;
+        private final int[] hours;
+
+        private MonthTotals(Calendar month) {
+            Calendar first = (Calendar) month.clone();
+            first.set(Calendar.DAY_OF_MONTH, 1);
+            int total = first.getActualMaximum(Calendar.DAY_OF_MONTH);
+            stamp = controller.getViewCache().stamp();
+            firstDay = Event.dayKey(first);
+            counts = controller.getDayCounts(first, total);
+            hours = controller.getDayHours(first, total);
+        }
+    }
+
+    /**
+     * This method draws the month again once the current events are handled, used when Events change
+     * 
+     */
+    private void redrawMonth() {
+        if(pendingMonth != null && !renderPending) {
+            renderPending = true;
+            SwingUtilities.invokeLater(this::renderMonth);
         }
+    }
 
-        dateTitle.setText(monthArray[cal.get(Calendar.MONTH)]+ " " +cal.get(Calendar.YEAR));
-        int total = cal.getActualMaximum(Calendar.DAY_OF_MONTH);
-        cal.set(Calendar.DAY_OF_MONTH, 1);
+    /**
+     * This method draws the last month asked for by monthDisplay
+     * Only the buttons whose day, visibility, highlight or heat differ from what is on screen are changed
+     * Each day is shaded by the hours it has booked, read from the Controller's per-day totals
+     * or from the totals the prefetch worker read if nothing has changed since
+     * 
+     */
+    private void renderMonth() {
+        renderPending = false;
+        int month = pendingMonth[0];
+        int year = pendingMonth[1];
+        int column = pendingMonth[2];
+        int total = pendingMonth[3];
+        // read when drawn, a day clicked since monthDisplay stays highlighted when Events change
+        int selected = this.currentDaySelected;
+
+        String title = monthArray[month]+ " " +year;
+        if(!title.equals(dateTitle.getText())) {
+            dateTitle.setText(title);
+        }
 
-        int row = 0;
-        int column = cal.get(Calendar.DAY_OF_WEEK) - 1;
-        int day = 1;
+        int[] counts = null;
+        int[] hours = null;
+        int firstDay = Event.dayKey(pendingFirst);
+        long stamp = controller.getViewCache().stamp();
+        for(MonthTotals totals: prefetched) {
+            if(totals.firstDay == firstDay && totals.stamp == stamp && totals.counts.length == total) {
+                counts = totals.counts;
+                hours = totals.hours;
+            }
+        }
+        if(counts == null) {
+            counts = controller.getDayCounts(pendingFirst, total);
+            hours = controller.getDayHours(pendingFirst, total);
+        }
 
-        for(int i = 0; i < total; i++) {
-            if(this.currentDaySelected == day) {
-                dateNum[row][column].setForeground(Color.WHITE);
-                dateNum[row][column].setBackground(Color.DARK_GRAY);
+        JButton highlight = null;
+        for (int i = 0; i < 6; i++) {
+            for (int j = 0; j < 7; j++) {
+                int day = i * 7 + j - column + 1;
+                if(day < 1 || day > total) {
+                    day = 0;
+                }
+
+                JButton b = dateNum[i][j];
+                if(day != shownDays[i][j]) {
+                    if(day != 0) {
+                        b.setText(day + "");
+                    }
+                    if((day != 0) != (shownDays[i][j] != 0)) {
+                        b.setVisible(day != 0);
+                    }
+                    shownDays[i][j] = day;
+                }
+                if(day != 0) {
+                    showHeat(b, counts[day - 1], Integer.bitCount(hours[day - 1]));
+                }
+                if(day != 0 && day == selected) {
+                    highlight = b;
+                }
             }
+        }
 
-            dateNum[row][column].setText(day + "");
-            dateNum[row][column].setVisible(true);
-            cal.set(Calendar.DAY_OF_MONTH, day);
-           
-            day++;
-            column++;
-            if(column >= 7) {
-                column = 0;
-                row++;
+        if(highlight != selectedB) {
+            setDayColor();
+            if(highlight != null) {
+                highlight.setForeground(Color.WHITE);
+                highlight.setBackground(Color.DARK_GRAY);
+                selectedB = highlight;
             }
         }
-        cal.set(Calendar.DAY_OF_MONTH, this.currentDaySelected);
+    }
+
+    /**
+     * This method shades a day button by how busy the day is and sets its tooltip
+     *
+     * @param b the day button
+     * @param count the number of Events on the day
+     * @param booked the number of hours booked on the day
+     */
+    private void showHeat(JButton b, int count, int booked) {
+        Color heat = count == 0 ? Color.WHITE : HEAT[booked];
+        if(heat != b.getClientProperty("heat")) {
+            b.putClientProperty("heat", heat);
+            if(b != selectedB) {
+                b.setBackground(heat);
+            }
+        }
+
+        String tip = count == 0 ? null : count + (count == 1 ? " event, " : " events, ") + booked
+                + (booked == 1 ? " hour booked" : " hours booked");
+        if(tip == null ? b.getToolTipText() != null : !tip.equals(b.getToolTipText())) {
+            b.setToolTipText(tip);
+        }
+    }
+
+    /**
+     * This method makes the shades used for days with 0 to 24 booked hours, from a light tint to orange
+     *
+     * @return colors the shade for each number of booked hours
+     */
+    private static Color[] heatColors() {
+        Color[] colors = new Color[25];
+        for(int h = 0; h <= 24; h++) {
+            double f = 0.15 + 0.85 * h / 24;
+            colors[h] = new Color(255 - (int) (15 * f), 255 - (int) (115 * f), 255 - (int) (195 * f));
+        }
+        return colors;
     }
 
     /**
@@ -149,7 +330,6 @@ public class Viewer extends JFrame implements ActionListener
     {
         // todays date
         todayB.addActionListener(action -> { 
-            setDayColor();
             controller.setTodayCalendar();
             this.currentDaySelected = controller.getCalendar().get(Calendar.DAY_OF_MONTH);
             monthDisplay();
@@ -157,7 +337,6 @@ public class Viewer extends JFrame implements ActionListener
 
         // month back 1
         monthBackB.addActionListener(action -> {
-            setDayColor();
             if(controller.getCalendar().get(Calendar.DAY_OF_MONTH) == 6) {
             	controller.updateDay(-1);
             }
@@ -168,14 +347,12 @@ public class Viewer extends JFrame implements ActionListener
 
         // month forward 1
         monthForwardB.addActionListener(action -> {
-            setDayColor();
             controller.updateMonth(1);
             monthDisplay();
         });
 
         // day back 1
         dayBackB.addActionListener(action -> {
-            setDayColor();
             controller.updateDay(-1);
             this.currentDaySelected = controller.getCalendar().get(Calendar.DAY_OF_MONTH);
             monthDisplay();
@@ -183,7 +360,6 @@ public class Viewer extends JFrame implements ActionListener
 
         // day forward 1 
         dayForwardB.addActionListener(action -> {
-            setDayColor();
             controller.updateDay(1);
             this.currentDaySelected = controller.getCalendar().get(Calendar.DAY_OF_MONTH);
             monthDisplay();
@@ -195,6 +371,12 @@ public class Viewer extends JFrame implements ActionListener
             addNewEvent();
         });
 
+        // edit the selected event
+        editB.addActionListener(action -> editSelectedEvent());
+
+        // delete the selected event
+        deleteB.addActionListener(action -> deleteSelectedEvent());
+
         // agenda
         agendaViewerB.addActionListener(action -> {
             agendaDetails();
@@ -202,17 +384,25 @@ public class Viewer extends JFrame implements ActionListener
 
         // day view
         dayViewerB.addActionListener(action -> {
-            displayEventData(controller.getDayEvents());
+            showView(controller::getDayEvents);
         });
 
         // month view
         monthViewerB.addActionListener(action -> {
-            displayEventData(controller.getMonthEvents());
+            showView(controller::getMonthEvents);
         });
 
         // week view
         weekViewerB.addActionListener(action -> {
-            displayEventData(controller.getWeekEvents());
+            showView(controller::getWeekEvents);
+        });
+
+        // search, the button or enter in the field
+        searchB.addActionListener(action -> {
+            searchQuarter(searchField.getText());
+        });
+        searchField.addActionListener(action -> {
+            searchQuarter(searchField.getText());
         });
 
         // file
@@ -221,14 +411,7 @@ public class Viewer extends JFrame implements ActionListener
             int result = c.showOpenDialog(null);
 
             if(result == JFileChooser.APPROVE_OPTION) {
-                File file = c.getSelectedFile();
-                boolean success = controller.readFile(file);
-                if(success) {
-                    JOptionPane.showMessageDialog(null, "File was uploaded successfully.");
-                }
-                else {
-                    JOptionPane.showMessageDialog(null, "File failed to upload.");
-                }
+                importInBackground(c.getSelectedFile());
             }
             else {
                 JOptionPane.showMessageDialog(null, "File not selected.");
@@ -236,18 +419,135 @@ public class Viewer extends JFrame implements ActionListener
         });
     }
 
+    /**
+     * This method imports a schedule file on a worker thread while a progress dialog shows how fast it is going
+     * Each committed batch refreshes the current view, so imported Events show up while the file loads
+     *
+     * @param file the schedule file to import
+     */
+    private void importInBackground(File file) {
+        ScheduleImporter importer = new ScheduleImporter(controller);
+        long startTime = System.nanoTime();
+
+        JDialog dialog = new JDialog(this, "Importing " + file.getName(), false);
+        dialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        JPanel panel = new JPanel();
+        panel.setLayout(null);
+        dialog.setContentPane(panel);
+
+        JProgressBar progressBar = new JProgressBar(0, 1000);
+        progressBar.setStringPainted(true);
+        progressBar.setBounds(20, 20, 400, 25);
+        panel.add(progressBar);
+
+        JLabel rateLabel = new JLabel("Starting...");
+        rateLabel.setBounds(20, 55, 400, 25);
+        panel.add(rateLabel);
+
+        JButton cancelB = new JButton("Cancel");
+        cancelB.setBounds(330, 90, 90, 30);
+        panel.add(cancelB);
+
+        SwingWorker<ImportResult, long[]> worker = new SwingWorker<ImportResult, long[]>() {
+            @Override
+            protected ImportResult doInBackground() {
+                importer.setProgressListener((bytesRead, totalBytes, linesRead, eventsAdded) ->
+                        publish(new long[] {bytesRead, totalBytes, linesRead, eventsAdded}));
+                return importer.importFile(file);
+            }
+
+            @Override
+            protected void process(List<long[]> chunks) {
+                long[] latest = chunks.get(chunks.size() - 1);
+                double seconds = Math.max((System.nanoTime() - startTime) / 1e9, 0.001);
+                progressBar.setValue(latest[1] == 0 ? 1000 : (int) (latest[0] * 1000 / latest[1]));
+                if(!importer.isCancelled()) {
+                    rateLabel.setText(String.format("%,d lines, %,d events (%,.0f lines/s, %,.0f events/s)",
+                            latest[2], latest[3], latest[2] / seconds, latest[3] / seconds));
+                }
+                refreshView();
+            }
+
+            @Override
+            protected void done() {
+                dialog.dispose();
+                fileB.setEnabled(true);
+                refreshView();
+                try {
+                    showImportResult(get());
+                }
+                catch(Exception e) {
+                    JOptionPane.showMessageDialog(null, "File failed to upload.");
+                }
+            }
+        };
+
+        cancelB.addActionListener(action -> {
+            importer.cancel();
+            cancelB.setEnabled(false);
+            rateLabel.setText("Cancelling...");
+        });
+
+        fileB.setEnabled(false);
+        dialog.setSize(450, 170);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+        worker.execute();
+    }
+
+    /**
+     * This method tells the user how an import went, listing the first few line errors
+     *
+     * @param result the result of the import
+     */
+    private void showImportResult(ImportResult result) {
+        if(result.isCancelled()) {
+            JOptionPane.showMessageDialog(null, "File upload was cancelled.\n" + result);
+        }
+        else if(result.isSuccessful()) {
+            JOptionPane.showMessageDialog(null, "File was uploaded successfully.\n" + result);
+        }
+        else if(result.getLinesRead() == 0) {
+            JOptionPane.showMessageDialog(null, "File failed to upload.");
+        }
+        else {
+            String message = "File was uploaded with errors.\n" + result;
+            List<ImportResult.LineError> errors = result.getErrors();
+            for(int i = 0; i < errors.size() && i < 10; i++) {
+                message += "\n" + errors.get(i);
+            }
+            JOptionPane.showMessageDialog(null, message);
+        }
+    }
+
+    /**
+     * This method displays a view and remembers it so it can be refreshed when Events change
+     *
+     * @param view the query that returns the Events for the view
+     */
+    private void showView(Supplier<ArrayList<Event>> view) {
+        this.currentView = view;
+        displayEventData(view.get());
+    }
+
+    /**
+     * This method displays the current view again, if one is showing, and redraws the month
+     */
+    private void refreshView() {
+        if(currentView != null) {
+            displayEventData(currentView.get());
+        }
+        redrawMonth();
+    }
+
     /**
      * This method displays the Event data of Events within an arrayList
+     * The list only formats the rows that are on screen
      *
      * @param events the arrayList of Events to be displayed
      */
     private void displayEventData(ArrayList<Event> events) {
-        
-    	String event = "";
-        for(Event e: events) {
-            event += e + "\n";
-        }
-        eventData.setText(event);
+        eventRows.setEvents(events);
     }
 
     /**
@@ -311,63 +611,66 @@ public class Viewer extends JFrame implements ActionListener
         }
         while(endDate.after(Calendar.getInstance()));
 
-        displayEventData(controller.getIntervalEvents(startDate, endDate));
+        showView(() -> controller.getIntervalEvents(startDate, endDate));
+    }
+
+    /**
+     * This method shows the Events with a name matching a query in the quarter of the selected day
+     *
+     * @param query the words to look for, each one matches the start of a word in the name
+     */
+    private void searchQuarter(String query) {
+        if(query.trim().isEmpty()) {
+            return;
+        }
+        Calendar startDate = (Calendar) controller.getCalendar().clone();
+        startDate.set(Calendar.DAY_OF_MONTH, 1);
+        startDate.set(Calendar.MONTH, startDate.get(Calendar.MONTH) / 3 * 3);
+        Calendar endDate = (Calendar) startDate.clone();
+        endDate.add(Calendar.MONTH, 3);
+        endDate.add(Calendar.DAY_OF_MONTH, -1);
+        showView(() -> controller.searchEvents(query, startDate, endDate));
     }
 
     /**
      * This method creates a new Event
+     * Times are entered as H or H:MM, an end time before the start time runs overnight into the next day
+     * Cancelling any of the dialogs creates no Event
+     * A time the clocks skip when they go forward is moved past the gap and the message says so
      * 
      * @precondition event will be checked for time conflicts, if there is one event will not be created
      * 
      */
     private void addNewEvent() {
         String newEvent = JOptionPane.showInputDialog("Please Enter the Event's Name: ");
-        int newStart, newEnd;
-
-        do {
-            try {
-                newStart = Integer.parseInt(JOptionPane.showInputDialog("Please Enter the Event's Start Hour (0-23) "));
-                if(newStart < 0 || newStart > 23)
-                {
-                    JOptionPane.showMessageDialog(null, "Please choose a valid hour (0 - 23) ");
-                }
-                else
-                {
-                    break;
-                }
-            }
-            catch(Exception e) {
-                JOptionPane.showMessageDialog(null, "\"Please choose a valid hour (0 - 23) \"");
-            }
+        if(newEvent == null) {
+            return;
         }
-        while(true);
-
-        do {
-            try {
-                newEnd = Integer.parseInt(JOptionPane.showInputDialog("Please Enter the Event's End Hour (0-23) "));
-                if (newEnd < 0 || newEnd > 23 || newEnd < newStart) {
-                    JOptionPane.showMessageDialog(null, "Please choose a valid hour (0 - 23) that is after your Start Hour ");
-                }
-                else{
-                    break;
-                }
-            }
-            catch(Exception e){
-                JOptionPane.showMessageDialog(null, "Please choose a valid hour (0 - 23)");
-            }
+        int newStart = askStart(null);
+        if(newStart < 0) {
+            return;
+        }
+        int newEnd = askEnd(null);
+        if(newEnd < 0) {
+            return;
+        }
+        if(newEnd < newStart) {
+            newEnd += Event.MINUTES_PER_DAY;
         }
-        while(true);
 
         Calendar eventCalendar = Calendar.getInstance();
         eventCalendar.set(Calendar.YEAR, this.controller.getCalendar().get(Calendar.YEAR));
         eventCalendar.set(Calendar.MONTH, this.controller.getCalendar().get(Calendar.MONTH));
         eventCalendar.set(Calendar.DAY_OF_MONTH, this.currentDaySelected);
-        Event event = new Event(newEvent, eventCalendar, newStart, newEnd);
+        int day = Event.dayKey(eventCalendar);
+        ZoneDays local = ZoneDays.of(eventCalendar.getTimeZone().toZoneId(), day, day);
+        Event event = local.toEvent(newEvent, day, newStart, newEnd);
         boolean result = controller.addEvent(event);
 
         if(result) {
+            redrawMonth();
             JOptionPane.showMessageDialog(null, "Event " + "''" + newEvent  + "''" +
-                    " was added to Calendar successfully.");
+                    " was added to Calendar successfully." + movedTimes(local, event, newStart, newEnd));
         }
         else {
             JOptionPane.showMessageDialog(null, "Event " + "''" + newEvent  + "''" +
@@ -375,6 +678,168 @@ public class Viewer extends JFrame implements ActionListener
         }
     }
 
+    /**
+     * This method changes the name and times of the Event selected in the list
+     * The new times are checked for time conflicts, if there is one the Event is left as it was
+     * Cancelling any of the dialogs leaves the Event as it was
+     * A time the clocks skip when they go forward is moved past the gap and the message says so
+     */
+    private void editSelectedEvent() {
+        Event event = eventData.getSelectedValue();
+        if(event == null) {
+            JOptionPane.showMessageDialog(null, "Please select an Event to edit.");
+            return;
+        }
+        if(event.getRecurringEvent() != null) {
+            JOptionPane.showMessageDialog(null, "Event " + "''" + event.getName() + "''" +
+                    " is one day of a recurring Event, it can be deleted but not edited.");
+            return;
+        }
+        String newName = JOptionPane.showInputDialog("Please Enter the Event's Name: ", event.getName());
+        if(newName == null) {
+            return;
+        }
+        // the times are asked for on the Event's day as the viewer sees it
+        ZoneDays local = eventRows.getLocalDays(event);
+        int end = local.endOf(event);
+        int newStart = askStart(Event.formatTime(local.startOf(event)));
+        if(newStart < 0) {
+            return;
+        }
+        int newEnd = askEnd(Event.formatTime(end > Event.MINUTES_PER_DAY ? end - Event.MINUTES_PER_DAY : end));
+        if(newEnd < 0) {
+            return;
+        }
+        if(newEnd < newStart) {
+            newEnd += Event.MINUTES_PER_DAY;
+        }
+
+        Event changed = local.toEvent(null, local.dayOf(event), newStart, newEnd);
+        if(controller.updateEvent(event, newName, changed.getDayKey(), changed.getStartMinute(),
+                changed.getEndMinute())) {
+            refreshView();
+            JOptionPane.showMessageDialog(null, "Event " + "''" + newName + "''" + " was changed successfully."
+                    + movedTimes(local, changed, newStart, newEnd));
+        }
+        else {
+            refreshView();
+            JOptionPane.showMessageDialog(null, "Event " + "''" + event.getName() + "''" +
+                    " was not changed due to time conflict with another event with the Calendar.");
+        }
+    }
+
+    /**
+     * This method tells the user when the times an Event was given are not the times it is kept at
+     * That happens when a time falls in the hour skipped when the clocks go forward, it is moved past the gap
+     * so a 0:00 to 2:00 Event on the night the clocks go from 2:00 to 3:00 is kept from 0:00 to 3:00
+     *
+     * @param local the day boundaries the times were given in
+     * @param event the Event made from the times
+     * @param start the start time given, in minutes from local midnight
+     * @param end the end time given, past 1440 when it runs overnight
+     * @return note a sentence to add to the message, empty when the times were kept as given
+     */
+    private static String movedTimes(ZoneDays local, Event event, int start, int end) {
+        int keptStart = local.startOf(event);
+        int keptEnd = local.endOf(event);
+        if(keptStart == start && keptEnd == end) {
+            return "";
+        }
+        keptEnd = keptEnd > Event.MINUTES_PER_DAY ? keptEnd - Event.MINUTES_PER_DAY : keptEnd;
+        return String.format("%nThe clocks skip a time it was given, so it runs from %d:%02d to %d:%02d by the clock.",
+                keptStart / 60, keptStart % 60, keptEnd / 60, keptEnd % 60);
+    }
+
+    /**
+     * This method deletes the Event selected in the list, for a recurring Event only the selected day is deleted
+     */
+    private void deleteSelectedEvent() {
+        Event event = eventData.getSelectedValue();
+        if(event == null) {
+            JOptionPane.showMessageDialog(null, "Please select an Event to delete.");
+            return;
+        }
+        boolean occurrence = event.getRecurringEvent() != null;
+        int answer = JOptionPane.showConfirmDialog(null, "Delete " + (occurrence ? "this day of the recurring " : "")
+                + "Event " + "''" + event.getName() + "''" + "?", "Delete Event", JOptionPane.YES_NO_OPTION);
+        if(answer != JOptionPane.YES_OPTION) {
+            return;
+        }
+        boolean removed = occurrence ? controller.removeOccurrence(event) : controller.removeEvent(event);
+        refreshView();
+        if(!removed) {
+            JOptionPane.showMessageDialog(null, "Event " + "''" + event.getName() + "''" +
+                    " is no longer in the Calendar.");
+        }
+    }
+
+    /**
+     * This method asks for an Event's start time until a valid one is entered or the dialog is cancelled
+     *
+     * @param initial the time shown in the field to begin with, or null for an empty field
+     * @return start the start time in minutes from midnight, or -1 if the dialog was cancelled
+     */
+    private static int askStart(String initial) {
+        while(true) {
+            String text = JOptionPane.showInputDialog("Please Enter the Event's Start Time (0:00 - 23:59) ", initial);
+            if(text == null) {
+                return -1;
+            }
+            int start = parseTime(text);
+            if(start >= 0 && start < Event.MINUTES_PER_DAY) {
+                return start;
+            }
+            JOptionPane.showMessageDialog(null, "Please choose a valid time (0:00 - 23:59) ");
+        }
+    }
+
+    /**
+     * This method asks for an Event's end time until a valid one is entered or the dialog is cancelled
+     *
+     * @param initial the time shown in the field to begin with, or null for an empty field
+     * @return end the end time in minutes from midnight, the caller moves a time before the start to the next day,
+     * or -1 if the dialog was cancelled
+     */
+    private static int askEnd(String initial) {
+        while(true) {
+            String text = JOptionPane.showInputDialog("Please Enter the Event's End Time (0:00 - 24:00), "
+                    + "a time before the start ends the next day ", initial);
+            if(text == null) {
+                return -1;
+            }
+            int end = parseTime(text);
+            if(end >= 0 && end <= Event.MINUTES_PER_DAY) {
+                return end;
+            }
+            JOptionPane.showMessageDialog(null, "Please choose a valid time (0:00 - 24:00) ");
+        }
+    }
+
+    /**
+     * This method reads a time entered as H or H:MM
+     *
+     * @param text the time entered, may be null
+     * @return minutes the minutes from the start of the day, or -1 if the text is not a time
+     */
+    private static int parseTime(String text) {
+        if(text == null) {
+            return -1;
+        }
+        String[] parts = text.trim().split(":", -1);
+        try {
+            int hour = Integer.parseInt(parts[0]);
+            int minute = parts.length == 2 && parts[1].length() == 2 ? Integer.parseInt(parts[1]) : 0;
+            if(parts.length > 2 || parts.length == 2 && parts[1].length() != 2 || hour < 0 || minute < 0
+                    || minute > 59) {
+                return -1;
+            }
+            return hour * 60 + minute;
+        }
+        catch(NumberFormatException e) {
+            return -1;
+        }
+    }
+
     /**
      * This method adds all GUI buttons to frame and initializes them
      * 
@@ -412,6 +877,17 @@ public class Viewer extends JFrame implements ActionListener
         monthForwardB.setBounds(373, 70, 45, 38);
         content.add(monthForwardB);
 
+        // search
+        searchField = new JTextField();
+        searchField.setToolTipText("Find Events by name in the quarter of the selected day");
+        searchField.setBounds(440, 16, 170, 37);
+        content.add(searchField);
+
+        searchB = new JButton("Search");
+        searchB.setBackground(Color.YELLOW);
+        searchB.setBounds(620, 16, 80, 37);
+        content.add(searchB);
+
         // file
         fileB = new JButton("From File");
         fileB.setBackground(Color.MAGENTA);
@@ -446,9 +922,20 @@ public class Viewer extends JFrame implements ActionListener
         // create
         createB = new JButton("Create Event");
         createB.setForeground(Color.BLUE);
-        createB.setBounds(20, 440, 398, 38);
+        createB.setBounds(20, 440, 126, 38);
         content.add(createB);
 
+        // edit
+        editB = new JButton("Edit Event");
+        editB.setBounds(156, 440, 126, 38);
+        content.add(editB);
+
+        // delete
+        deleteB = new JButton("Delete Event");
+        deleteB.setForeground(Color.RED);
+        deleteB.setBounds(292, 440, 126, 38);
+        content.add(deleteB);
+
         // date title
         dateTitle = new JLabel("July 2020");
         dateTitle.setHorizontalAlignment(SwingConstants.CENTER);
@@ -457,9 +944,22 @@ public class Viewer extends JFrame implements ActionListener
         content.add(dateTitle);
 
         //display area for Event data
-        eventData = new JTextArea();
+        // fixed cell sizes keep the list from measuring every row
+        eventRows = new EventListModel();
+        eventData = new JList<>(eventRows);
         eventData.setBorder(new LineBorder(new Color(0, 0, 0)));
-        eventData.setBounds(440, 120, 232, 363);
+        eventData.setFixedCellHeight(18);
+        eventData.setFixedCellWidth(380);
+        eventData.setCellRenderer(new DefaultListCellRenderer() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean selected,
+                    boolean focused) {
+                return super.getListCellRendererComponent(list, eventRows.format((Event) value), index, selected,
+                        focused);
+            }
+        });
         JScrollPane pane = new JScrollPane(eventData);
         pane.setBounds(440, 120, 400, 363);
         content.add(pane);
@@ -482,6 +982,7 @@ public class Viewer extends JFrame implements ActionListener
         labels[6].setBackground(Color.lightGray);
 
         dateNum = new JButton[6][7];
+        shownDays = new int[6][7];
         x = 30;
         int y = 175;
         int count = 1;
@@ -490,6 +991,7 @@ public class Viewer extends JFrame implements ActionListener
             for(int j = 0; j < dateNum[0].length; j++)
             {
                 dateNum[i][j] = new JButton(count+ "");
+                shownDays[i][j] = count;
                 count++;
                 dateNum[i][j].setBounds(x, y, 50, 40);
                 dateNum[i][j].setBackground(Color.WHITE);
@@ -0,0 +1,422 @@
+package project;
+
+import java.time.*;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.*;
+
+/**
+ * This class is creates the day boundaries of a time zone for a run of local days, used to show stored
+ * Events in the zone of whoever is looking at them
+ *
+ * Events are stored in UTC. The offsets of the zone and the instants where they change are looked up once
+ * for the whole run, so placing an Event on its local day is an add and, when the zone changes its offset
+ * inside the run, a binary search, without building a Calendar for each Event. A zone that is UTC for the
+ * whole run is aligned, its local days are the stored days and the stores can be read as they are.
+ *
+ * @author Kyle Cook
+ */
+
+public class ZoneDays {
+
+    private static final int MINUTES_PER_DAY = Event.MINUTES_PER_DAY;
+    private static final long[] NO_CHANGES = new long[0];
+
+    private final ZoneId zone;
+    private final ZoneRules rules;
+    private final boolean fixed;
+    private final int firstDay;
+    private final int lastDay;
+    private final long coveredFrom;
+    private final long coveredTo;
+    private final long[] changes;
+    private final int[] offsets;
+    private final long windowStart;
+    private final long windowEnd;
+
+    /**
+     * This method constructs the day boundaries of a zone, the offsets are looked up for a few days either side
+     * of the run so Events that run into it overnight are placed without another lookup
+     */
+    private ZoneDays(ZoneId zone, int firstDay, int lastDay) {
+        this.zone = zone;
+        this.rules = zone.getRules();
+        this.fixed = rules.isFixedOffset();
+        this.firstDay = firstDay;
+        this.lastDay = lastDay;
+        this.coveredFrom = (firstDay - 3L) * MINUTES_PER_DAY;
+        this.coveredTo = (lastDay + 4L) * MINUTES_PER_DAY;
+
+        Instant from = Instant.ofEpochSecond(coveredFrom * 60);
+        if(fixed) {
+            changes = NO_CHANGES;
+            offsets = new int[] {minutes(rules.getOffset(from))};
+        }
+        else {
+            ArrayList<ZoneOffsetTransition> found = new ArrayList<>();
+            for(ZoneOffsetTransition t = rules.nextTransition(from); t != null && t.toEpochSecond() < coveredTo * 60;
+                    t = rules.nextTransition(t.getInstant())) {
+                found.add(t);
+            }
+            changes = new long[found.size()];
+            offsets = new int[found.size() + 1];
+            offsets[0] = minutes(rules.getOffset(from));
+            for(int i = 0; i < changes.length; i++) {
+                changes[i] = Math.floorDiv(found.get(i).toEpochSecond(), 60);
+                offsets[i + 1] = minutes(found.get(i).getOffsetAfter());
+            }
+        }
+        windowStart = midnight(firstDay);
+        windowEnd = midnight(lastDay + 1L);
+    }
+
+    /**
+     * This method finds the day boundaries of a zone for a run of local days
+     *
+     * @param zone the time zone the days are in
+     * @param firstDay the first local day, counted in days since 1970-01-01
+     * @param lastDay the last local day
+     * @return days the day boundaries of the run
+     */
+    public static ZoneDays of(ZoneId zone, int firstDay, int lastDay) {
+        if(lastDay < firstDay) {
+            throw new IllegalArgumentException("Last day is before the first day");
+        }
+        return new ZoneDays(zone, firstDay, lastDay);
+    }
+
+    /**
+     * This method returns the zone the days are in
+     *
+     * @return zone the time zone
+     */
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * This method returns the first local day of the run
+     *
+     * @return firstDay the epoch day of the first day
+     */
+    public int getFirstDay() {
+        return firstDay;
+    }
+
+    /**
+     * This method returns the last local day of the run
+     *
+     * @return lastDay the epoch day of the last day
+     */
+    public int getLastDay() {
+        return lastDay;
+    }
+
+    /**
+     * This method checks whether the zone is UTC for the whole run, so its local days are the stored days
+     *
+     * @return Boolean the value of whether the days are aligned with UTC(true) or not(false)
+     */
+    public boolean isAligned() {
+        return changes.length == 0 && offsets[0] == 0;
+    }
+
+    /**
+     * This method returns the instant the run starts, local midnight of its first day
+     *
+     * @return minute the instant in minutes since 1970-01-01 UTC
+     */
+    public long getStart() {
+        return windowStart;
+    }
+
+    /**
+     * This method returns the instant the run ends, local midnight after its last day
+     *
+     * @return minute the instant in minutes since 1970-01-01 UTC
+     */
+    public long getEnd() {
+        return windowEnd;
+    }
+
+    /**
+     * This method returns the first UTC day with an instant inside the run
+     *
+     * @return day the epoch day in UTC
+     */
+    public int getFirstUtcDay() {
+        return (int) Math.floorDiv(windowStart, MINUTES_PER_DAY);
+    }
+
+    /**
+     * This method returns the last UTC day with an instant inside the run
+     *
+     * @return day the epoch day in UTC
+     */
+    public int getLastUtcDay() {
+        return (int) Math.floorDiv(windowEnd - 1, MINUTES_PER_DAY);
+    }
+
+    /**
+     * This method returns the instant a local day starts, the first instant after a gap if midnight is skipped
+     *
+     * @param day the local epoch day
+     * @return minute the instant in minutes since 1970-01-01 UTC
+     */
+    public long midnight(long day) {
+        long local = day * MINUTES_PER_DAY;
+        if(!covers(local)) {
+            return Math.floorDiv(LocalDate.ofEpochDay(day).atStartOfDay(zone).toEpochSecond(), 60);
+        }
+        int segment = segmentOf(local);
+        // midnight in a gap starts the day at the instant the clocks jump
+        return local >= localStart(segment) ? local - offsets[segment] : changes[segment - 1];
+    }
+
+    /**
+     * This method returns the offset of the zone from UTC at an instant
+     *
+     * @param minute the instant in minutes since 1970-01-01 UTC
+     * @return offset the offset in minutes
+     */
+    public int offsetAt(long minute) {
+        if(fixed) {
+            return offsets[0];
+        }
+        if(minute < coveredFrom || minute >= coveredTo) {
+            return offsetAt(rules, minute);
+        }
+        if(changes.length == 0) {
+            return offsets[0];
+        }
+        int found = Arrays.binarySearch(changes, minute);
+        return offsets[found >= 0 ? found + 1 : -found - 1];
+    }
+
+    /**
+     * This method returns the local day an instant falls on
+     *
+     * @param minute the instant in minutes since 1970-01-01 UTC
+     * @return day the local epoch day
+     */
+    public int localDay(long minute) {
+        return (int) Math.floorDiv(minute + offsetAt(minute), MINUTES_PER_DAY);
+    }
+
+    /**
+     * This method returns the local day an Event is shown on, the day it starts
+     * An Event whose times reach outside its own day is placed by the part of its times inside it,
+     * the same as the store places it
+     *
+     * @param event the stored Event
+     * @return day the local epoch day
+     */
+    public int dayOf(Event event) {
+        return localDay(anchor(event));
+    }
+
+    /**
+     * This method returns the last local day an Event runs into
+     *
+     * @param event the stored Event
+     * @return day the local epoch day it ends on, its own day unless it runs past local midnight
+     */
+    public int lastDayOf(Event event) {
+        int day = dayOf(event);
+        long start = event.getStartEpochMinute();
+        long end = event.getEndEpochMinute();
+        return end > start ? Math.max(day, localDay(end - 1)) : day;
+    }
+
+    /**
+     * This method returns the local start time of an Event
+     *
+     * @param event the stored Event
+     * @return start the minutes from local midnight of the day the Event is shown on
+     */
+    public int startOf(Event event) {
+        return wallMinute(event.getStartEpochMinute(), dayOf(event));
+    }
+
+    /**
+     * This method returns the local end time of an Event
+     *
+     * @param event the stored Event
+     * @return end the minutes from local midnight of the day the Event is shown on, past 1440 when it runs overnight
+     */
+    public int endOf(Event event) {
+        return wallMinute(event.getEndEpochMinute(), dayOf(event));
+    }
+
+    /**
+     * This method checks whether an Event is shown on any day of the run
+     *
+     * @param event the stored Event
+     * @return Boolean the value of whether the Event is in the run(true) or not(false)
+     */
+    public boolean shows(Event event) {
+        // nothing that ends before the run starts or starts after it ends needs a lookup
+        long start = event.getStartEpochMinute();
+        long end = event.getEndEpochMinute();
+        if(Math.max(start, end) < windowStart - MINUTES_PER_DAY
+                || Math.min(start, end) >= windowEnd + MINUTES_PER_DAY) {
+            return false;
+        }
+        return dayOf(event) <= lastDay && lastDayOf(event) >= firstDay;
+    }
+
+    /**
+     * This method turns a local date and time into an instant
+     * A time skipped by a gap is moved forward by the length of the gap and a time that happens twice
+     * is taken the first time, the same as ZonedDateTime does
+     *
+     * @param day the local epoch day
+     * @param minute the minutes from local midnight of that day
+     * @return instant the instant in minutes since 1970-01-01 UTC
+     */
+    public long toUtc(int day, int minute) {
+        long local = (long) day * MINUTES_PER_DAY + minute;
+        if(!covers(local)) {
+            return toUtc(zone, day, minute);
+        }
+        int segment = segmentOf(local);
+        return local >= localStart(segment) ? local - offsets[segment] : local - offsets[segment - 1];
+    }
+
+    /**
+     * This method makes a stored Event from a local date and times
+     *
+     * @param name the name of the Event
+     * @param day the local epoch day the Event starts on
+     * @param startMinute the start in minutes from local midnight
+     * @param endMinute the end in minutes from local midnight, past 1440 to run overnight
+     * @return event the new Event, in UTC
+     */
+    public Event toEvent(String name, int day, int startMinute, int endMinute) {
+        return Event.ofInstants(name, toUtc(day, clamp(startMinute)), toUtc(day, startMinute), toUtc(day, endMinute))
+                .withZone(zone);
+    }
+
+    /**
+     * This method writes an Event the way Event.toString does, with its local date and times
+     *
+     * @param event the stored Event
+     * @return text the Event as it is seen in this zone
+     */
+    public String format(Event event) {
+        return Event.format(event.getName(), dayOf(event), startOf(event), endOf(event));
+    }
+
+    /**
+     * This method returns the days of a time zone that the starts of two Events fall on, in either order,
+     * for reading the local dates and times of Events that are not from a view of known days
+     */
+    static ZoneDays around(ZoneId zone, Event first, Event last) {
+        int from = (int) Math.floorDiv(toLocal(zone, first.getStartEpochMinute()), MINUTES_PER_DAY);
+        int to = (int) Math.floorDiv(toLocal(zone, last.getStartEpochMinute()), MINUTES_PER_DAY);
+        return of(zone, Math.min(from, to), Math.max(from, to));
+    }
+
+    /**
+     * This method returns the minutes from local midnight of a day to an instant
+     */
+    private int wallMinute(long minute, int day) {
+        return (int) (minute + offsetAt(minute) - (long) day * MINUTES_PER_DAY);
+    }
+
+    /**
+     * This method checks whether a local time is inside the days the offsets were looked up for
+     */
+    private boolean covers(long local) {
+        return fixed || local >= coveredFrom + MINUTES_PER_DAY && local < coveredTo - MINUTES_PER_DAY;
+    }
+
+    /**
+     * This method returns the first stretch of one offset whose local times reach past a local time,
+     * the local times of stretches overlap when the clocks go back so the earliest one is taken
+     */
+    private int segmentOf(long local) {
+        int segment = 0;
+        while(segment < changes.length && local >= changes[segment] + offsets[segment]) {
+            segment++;
+        }
+        return segment;
+    }
+
+    /**
+     * This method returns the first local time of a stretch of one offset
+     */
+    private long localStart(int segment) {
+        return segment == 0 ? Long.MIN_VALUE : changes[segment - 1] + offsets[segment];
+    }
+
+    /**
+     * This method returns the instant that places an Event on its day, its start kept inside its own stored day
+     */
+    private static long anchor(Event event) {
+        return (long) event.getDayKey() * MINUTES_PER_DAY + clamp(event.getStartMinute());
+    }
+
+    private static int clamp(int minute) {
+        return Math.max(0, Math.min(minute, MINUTES_PER_DAY - 1));
+    }
+
+    /**
+     * This method returns the offset of a zone from UTC at an instant, without precomputed boundaries
+     *
+     * @param rules the rules of the zone
+     * @param minute the instant in minutes since 1970-01-01 UTC
+     * @return offset the offset in minutes
+     */
+    static int offsetAt(ZoneRules rules, long minute) {
+        return minutes(rules.getOffset(Instant.ofEpochSecond(minute * 60)));
+    }
+
+    /**
+     * This method turns a local date and time into an instant, without precomputed boundaries
+     *
+     * @param zone the time zone of the date and time
+     * @param day the local epoch day
+     * @param minute the minutes from local midnight of that day
+     * @return instant the instant in minutes since 1970-01-01 UTC
+     */
+    static long toUtc(ZoneId zone, int day, int minute) {
+        long local = (long) day * MINUTES_PER_DAY + minute;
+        ZoneRules rules = zone.getRules();
+        if(rules.isFixedOffset()) {
+            return local - minutes(rules.getOffset(Instant.EPOCH));
+        }
+        LocalDateTime time = LocalDate.ofEpochDay(day).atStartOfDay().plusMinutes(minute);
+        return Math.floorDiv(time.atZone(zone).toEpochSecond(), 60);
+    }
+
+    /**
+     * This method makes a stored Event from a local date and times in a zone, without precomputed boundaries
+     *
+     * @param name the name of the Event
+     * @param zone the time zone of the date and times
+     * @param day the local epoch day the Event starts on
+     * @param startMinute the start in minutes from local midnight
+     * @param endMinute the end in minutes from local midnight
+     * @return event the new Event, in UTC
+     */
+    static Event toEvent(String name, ZoneId zone, int day, int startMinute, int endMinute) {
+        return Event.ofInstants(name, toUtc(zone, day, clamp(startMinute)), toUtc(zone, day, startMinute),
+                toUtc(zone, day, endMinute)).withZone(zone);
+    }
+
+    /**
+     * This method returns the local date and time of an instant in a zone, without precomputed boundaries
+     *
+     * @param zone the time zone
+     * @param minute the instant in minutes since 1970-01-01 UTC
+     * @return local the minutes since 1970-01-01 on the zone's clocks
+     */
+    static long toLocal(ZoneId zone, long minute) {
+        return minute + offsetAt(zone.getRules(), minute);
+    }
+
+    private static int minutes(ZoneOffset offset) {
+        return Math.floorDiv(offset.getTotalSeconds(), 60);
+    }
+}
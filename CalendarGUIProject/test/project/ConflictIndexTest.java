@@ -0,0 +1,88 @@
+package project;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import org.junit.Test;
+
+/**
+ * This class is creates the tests of the ConflictIndex, checked against comparing every pair of Events
+ *
+ * @author Kyle Cook
+ */
+
+public class ConflictIndexTest {
+
+    private static final int DAY = 19800;
+
+    @Test
+    public void findsOverlapOnTheSameDay() {
+        ConflictIndex index = new ConflictIndex();
+        Event added = Event.ofMinutes("A", DAY, 600, 660);
+        index.add(added);
+
+        assertSame(added, index.findConflict(Event.ofMinutes("B", DAY, 630, 700)));
+        assertSame(added, index.findConflict(Event.ofMinutes("B", DAY, 540, 720)));
+        assertNull(index.findConflict(Event.ofMinutes("B", DAY, 660, 700)));
+        assertNull(index.findConflict(Event.ofMinutes("B", DAY, 540, 600)));
+        assertNull(index.findConflict(Event.ofMinutes("B", DAY + 1, 600, 660)));
+    }
+
+    @Test
+    public void findsOvernightEventOnTheNextDay() {
+        ConflictIndex index = new ConflictIndex();
+        Event overnight = Event.ofMinutes("Night", DAY, 22 * 60, 26 * 60);
+        index.add(overnight);
+
+        assertEquals(2, index.dayCount());
+        assertSame(overnight, index.findConflict(Event.ofMinutes("Early", DAY + 1, 60, 120)));
+        assertNull(index.findConflict(Event.ofMinutes("Later", DAY + 1, 120, 180)));
+        assertSame(overnight, index.findConflict(Event.ofMinutes("Before", DAY + 2, -23 * 60, -22 * 60 - 30)));
+    }
+
+    @Test
+    public void removeEmptiesTheDaysOfAnEvent() {
+        ConflictIndex index = new ConflictIndex();
+        Event overnight = Event.ofMinutes("Night", DAY, 22 * 60, 26 * 60);
+        Event other = Event.ofMinutes("Other", DAY, 600, 660);
+        index.add(overnight);
+        index.add(other);
+
+        index.remove(overnight, DAY, 22 * 60, 26 * 60);
+        assertEquals(1, index.dayCount());
+        assertNull(index.findConflict(Event.ofMinutes("Early", DAY + 1, 60, 120)));
+        assertSame(other, index.findConflict(Event.ofMinutes("B", DAY, 630, 640)));
+
+        index.remove(other, DAY, 600, 660);
+        assertEquals(0, index.dayCount());
+    }
+
+    @Test
+    public void addSortedMatchesEveryPairChecked() {
+        Random random = new Random(1);
+        ArrayList<Event> events = new ArrayList<>();
+        for(int i = 0; i < 400; i++) {
+            int start = random.nextInt(Event.MINUTES_PER_DAY);
+            events.add(Event.ofMinutes("E" + i, DAY + random.nextInt(20), start, start + 1 + random.nextInt(600)));
+        }
+        Event[] sorted = events.toArray(new Event[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(Event::getDayKey));
+        ConflictIndex bulk = new ConflictIndex();
+        bulk.addSorted(sorted.clone());
+        ConflictIndex single = new ConflictIndex();
+        for(Event e: events) {
+            single.add(e);
+        }
+
+        for(int i = 0; i < 2000; i++) {
+            int start = random.nextInt(Event.MINUTES_PER_DAY);
+            Event check = Event.ofMinutes("C", DAY - 1 + random.nextInt(22), start, start + 1 + random.nextInt(300));
+            boolean expected = false;
+            for(Event e: events) {
+                expected |= e.checkConflict(check);
+            }
+            assertEquals(check.toString(), expected, bulk.findConflict(check) != null);
+            assertEquals(check.toString(), expected, single.findConflict(check) != null);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package project;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This class is creates the tests of the EventJournal
+ * Records from before minutes, ids, UTC times and moved recurring Events are written byte for byte as the
+ * EventJournal comment lays them out, so a change that stops old journals replaying fails here
+ *
+ * @author Kyle Cook
+ */
+
+public class EventJournalTest {
+
+    // 2024-03-04, a Monday
+    private static final int MONDAY = 19786;
+    private static final int MONDAYS = 1 << 1;
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    private static final int MAGIC = 0x504B434A;
+    private static final int MINUTES = 0x10;
+    private static final int IDS = 0x20;
+    private static final int UTC = 0x40;
+    private static final int MOVED = 0x08;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysTheChangesMadeToACalendar() throws IOException {
+        File file = new File(folder.getRoot(), "calendar.journal");
+        Controller written = new Controller();
+        written.setZone(ZoneOffset.UTC);
+        written.openJournal(file, EventJournal.Durability.SYNC);
+        Event removed = Event.ofMinutes("Removed", MONDAY, 600, 660);
+        Event changed = Event.ofMinutes("Changed", MONDAY, 700, 760);
+        assertTrue(written.addEvent(removed));
+        assertTrue(written.addEvent(changed));
+        changed.setEndMinute(800);
+        assertTrue(written.removeEvent(removed));
+        RecurringEvent rule = RecurringEvent.ofMinutes("Class", MONDAY, MONDAY + 27, MONDAYS, 900, 960);
+        assertEquals(4, written.addRecurringEvent(rule));
+        assertTrue(written.removeOccurrence(rule.occurrence(MONDAY + 7)));
+        written.closeJournal();
+
+        Controller replayed = new Controller();
+        replayed.setZone(ZoneOffset.UTC);
+        assertEquals(6, replayed.openJournal(file, EventJournal.Durability.BUFFERED));
+        replayed.closeJournal();
+        assertNull(replayed.getEvent(removed.getId()));
+        assertEquals(1, replayed.getEventCount());
+        Event kept = replayed.getEvent(changed.getId());
+        assertEquals("Changed", kept.getName());
+        assertEquals(700, kept.getStartMinute());
+        assertEquals(800, kept.getEndMinute());
+        RecurringEvent replayedRule = replayed.getRecurringEvent(rule.getId());
+        assertTrue(replayedRule.occursOn(MONDAY));
+        assertFalse(replayedRule.occursOn(MONDAY + 7));
+    }
+
+    @Test
+    public void skipsAJournalOfAnotherSnapshot() throws IOException {
+        File file = journal(5, record(eventBody(MINUTES | IDS | UTC, 1, MONDAY, 600, 660, "A")));
+
+        assertEquals(0, EventJournal.replay(file, 6, ZoneOffset.UTC, new Recorder()));
+        Recorder recorder = new Recorder();
+        assertEquals(1, EventJournal.replay(file, 5, ZoneOffset.UTC, recorder));
+        assertEquals(1, recorder.events.get(0).getId());
+        assertEquals(0, EventJournal.replay(new File(folder.getRoot(), "missing.journal"), 5, ZoneOffset.UTC,
+                recorder));
+    }
+
+    @Test
+    public void stopsAtARecordCutShortOrDamaged() throws IOException {
+        byte[] first = record(eventBody(MINUTES | IDS | UTC, 1, MONDAY, 600, 660, "A"));
+        byte[] second = record(eventBody(MINUTES | IDS | UTC, 2, MONDAY, 700, 760, "B"));
+        byte[] third = record(eventBody(MINUTES | IDS | UTC, 3, MONDAY, 800, 860, "C"));
+        File file = journal(5, first, second, Arrays.copyOf(third, third.length - 3));
+        assertEquals(2, EventJournal.replay(file, 5, ZoneOffset.UTC, new Recorder()));
+
+        second[second.length - 1] ^= 1;
+        file = journal(5, first, second, third);
+        assertEquals(1, EventJournal.replay(file, 5, ZoneOffset.UTC, new Recorder()));
+
+        // opening the journal to append drops everything after the last good record
+        new EventJournal(file, 5, EventJournal.Durability.BUFFERED, 10).close();
+        assertEquals(12 + first.length, file.length());
+    }
+
+    @Test
+    public void readsRecordsFromBeforeMinutesIdsAndUtc() throws IOException {
+        ByteBuffer hours = ByteBuffer.allocate(64).put((byte) EventJournal.ADD).putInt(MONDAY)
+                .putShort((short) 12).putShort((short) 13);
+        putName(hours, "Hours");
+        ByteBuffer local = ByteBuffer.allocate(64).put((byte) (EventJournal.ADD | MINUTES | IDS)).putLong(4)
+                .putInt(MONDAY).putInt(22 * 60).putInt(26 * 60);
+        putName(local, null);
+        byte[] modify = eventBody(MINUTES | IDS | UTC, 5, MONDAY, 600, 660, "Before");
+        modify[0] = (byte) (EventJournal.MODIFY | MINUTES | IDS | UTC);
+        ByteBuffer modified = ByteBuffer.allocate(64).put(modify).putInt(MONDAY + 1).putInt(60).putInt(120);
+        putName(modified, "After");
+        File file = journal(0, record(body(hours)), record(body(local)), record(body(modified)));
+
+        Recorder recorder = new Recorder();
+        assertEquals(3, EventJournal.replay(file, 0, NEW_YORK, recorder));
+        Event fromHours = recorder.events.get(0);
+        assertEquals("Hours", fromHours.getName());
+        assertEquals(0, fromHours.getId());
+        // New York is 5 hours behind UTC in early March
+        assertEquals(17 * 60, fromHours.getStartMinute());
+        assertEquals(12, fromHours.getStart());
+        Event fromLocal = recorder.events.get(1);
+        assertEquals(4, fromLocal.getId());
+        assertEquals(MONDAY + 1, fromLocal.getDayKey());
+        assertEquals(3 * 60, fromLocal.getStartMinute());
+        assertEquals(EventJournal.MODIFY, recorder.types.get(2).byteValue());
+        assertEquals("Before", recorder.events.get(2).getName());
+        assertEquals("After", recorder.afters.get(2).getName());
+        assertEquals(MONDAY + 1, recorder.afters.get(2).getDayKey());
+        assertEquals(60, recorder.afters.get(2).getStartMinute());
+    }
+
+    @Test
+    public void movesTheExcludedDaysOfRecurringEventsFromBeforeTimesWereKeptInRange() throws IOException {
+        ByteBuffer rule = ByteBuffer.allocate(64).put((byte) (EventJournal.RULE | MINUTES | IDS)).putLong(9)
+                .putInt(MONDAY).putInt(MONDAY + 27).put((byte) MONDAYS).putInt(100 * 60).putInt(101 * 60);
+        putName(rule, "Class");
+        // the unmoved rule's second Monday, written before the rule was moved, and a day of the moved rule
+        ByteBuffer legacy = ByteBuffer.allocate(13).put((byte) (EventJournal.EXCLUDE | IDS)).putLong(9)
+                .putInt(MONDAY + 7);
+        ByteBuffer moved = ByteBuffer.allocate(13).put((byte) (EventJournal.EXCLUDE | IDS | MOVED)).putLong(9)
+                .putInt(MONDAY + 18);
+        File file = journal(0, record(body(rule)), record(body(legacy)), record(body(moved)));
+
+        Controller controller = new Controller();
+        controller.setZone(ZoneOffset.UTC);
+        assertEquals(3, controller.openJournal(file, EventJournal.Durability.BUFFERED));
+        controller.closeJournal();
+        RecurringEvent replayed = controller.getRecurringEvent(9);
+        assertEquals(MONDAY + 4, replayed.getFirstDay());
+        assertEquals(4 * 60, replayed.getStartMinute());
+        assertTrue(Arrays.equals(new int[] {MONDAY + 11, MONDAY + 18}, replayed.getExclusions()));
+        assertTrue(replayed.occursOn(MONDAY + 4));
+        assertTrue(replayed.occursOn(MONDAY + 25));
+    }
+
+    /**
+     * This class is creates a Replayer that keeps every record it is handed
+     */
+    private static class Recorder implements EventJournal.Replayer {
+        private final ArrayList<Byte> types = new ArrayList<>();
+        private final ArrayList<Event> events = new ArrayList<>();
+        private final ArrayList<Event> afters = new ArrayList<>();
+
+        @Override
+        public void replay(byte type, Event event, Event after) {
+            types.add(type);
+            events.add(event);
+            afters.add(after);
+        }
+
+        @Override
+        public void replayRule(RecurringEvent rule) {
+            fail("no rules were written");
+        }
+
+        @Override
+        public void replayExclusion(long ruleId, int day, boolean moved) {
+            fail("no exclusions were written");
+        }
+    }
+
+    /**
+     * This method makes the body of an Event record with int minutes
+     */
+    private static byte[] eventBody(int flags, long id, int day, int start, int end, String name) {
+        ByteBuffer body = ByteBuffer.allocate(64).put((byte) (EventJournal.ADD | flags)).putLong(id)
+                .putInt(day).putInt(start).putInt(end);
+        putName(body, name);
+        return body(body);
+    }
+
+    private static void putName(ByteBuffer body, String name) {
+        if(name == null) {
+            body.putInt(-1);
+        }
+        else {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            body.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static byte[] body(ByteBuffer body) {
+        return Arrays.copyOf(body.array(), body.position());
+    }
+
+    /**
+     * This method puts the length and checksum in front of a record's body
+     */
+    private static byte[] record(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return ByteBuffer.allocate(8 + body.length).putInt(body.length).putInt((int) crc.getValue()).put(body)
+                .array();
+    }
+
+    private File journal(long generation, byte[]... records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeLong(generation);
+        for(byte[] record: records) {
+            out.write(record);
+        }
+        File file = folder.newFile();
+        Files.write(file.toPath(), bytes.toByteArray());
+        return file;
+    }
+}
@@ -0,0 +1,71 @@
+package project;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import org.junit.Test;
+
+/**
+ * This class is creates the tests of the IntervalTree, checked against comparing every pair of Events
+ *
+ * @author Kyle Cook
+ */
+
+public class IntervalTreeTest {
+
+    private static final int DAY = 19800;
+
+    @Test
+    public void insertedAndBuiltTreesFindTheSameConflicts() {
+        Random random = new Random(2);
+        Event[] events = new Event[300];
+        IntervalTree inserted = new IntervalTree();
+        for(int i = 0; i < events.length; i++) {
+            int start = random.nextInt(Event.MINUTES_PER_DAY);
+            events[i] = Event.ofMinutes("E" + i, DAY, start, start + 1 + random.nextInt(120));
+            inserted.insert(events[i]);
+        }
+        IntervalTree built = IntervalTree.build(events.clone());
+        assertEquals(events.length, inserted.size());
+        assertEquals(events.length, built.size());
+
+        for(int i = 0; i < 2000; i++) {
+            int start = random.nextInt(Event.MINUTES_PER_DAY);
+            Event check = Event.ofMinutes("C", DAY, start, start + 1 + random.nextInt(60));
+            boolean expected = false;
+            for(Event e: events) {
+                expected |= e.checkConflict(check);
+            }
+            Event found = inserted.findConflict(check);
+            assertEquals(check.toString(), expected, found != null);
+            assertTrue(found == null || found.checkConflict(check));
+            assertEquals(check.toString(), expected, built.findConflict(check) != null);
+        }
+    }
+
+    @Test
+    public void findsAnEventMovedFromTheDayBefore() {
+        IntervalTree tree = new IntervalTree();
+        Event overnight = Event.ofMinutes("Night", DAY - 1, 23 * 60, 25 * 60);
+        tree.insert(overnight, -60, 60);
+
+        assertSame(overnight, tree.findConflict(Event.ofMinutes("Early", DAY, 30, 90), 30, 90));
+        assertNull(tree.findConflict(Event.ofMinutes("Later", DAY, 60, 90), 60, 90));
+    }
+
+    @Test
+    public void removeTakesOutOnlyThatEvent() {
+        IntervalTree tree = new IntervalTree();
+        Event first = Event.ofMinutes("First", DAY, 600, 660);
+        Event second = Event.ofMinutes("Second", DAY, 600, 660);
+        tree.insert(first);
+        tree.insert(second);
+
+        assertTrue(tree.remove(first, 600, 660));
+        assertFalse(tree.remove(first, 600, 660));
+        assertEquals(1, tree.size());
+        assertSame(second, tree.findConflict(Event.ofMinutes("C", DAY, 610, 620)));
+        assertTrue(tree.remove(second, 600, 660));
+        assertNull(tree.findConflict(Event.ofMinutes("C", DAY, 610, 620)));
+    }
+}
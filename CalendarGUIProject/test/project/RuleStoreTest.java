@@ -0,0 +1,79 @@
+package project;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import org.junit.Test;
+
+/**
+ * This class is creates the tests of the RuleStore and the conflicts of the RecurringEvents in it
+ *
+ * @author Kyle Cook
+ */
+
+public class RuleStoreTest {
+
+    // 2024-03-04, a Monday
+    private static final int MONDAY = 19786;
+    private static final int MONDAYS = 1 << 1;
+
+    @Test
+    public void findsTheRulesCoveringARange() {
+        RuleStore store = new RuleStore();
+        RecurringEvent january = RecurringEvent.ofMinutes("A", MONDAY, MONDAY + 30, MONDAYS, 600, 660);
+        RecurringEvent february = RecurringEvent.ofMinutes("B", MONDAY + 31, MONDAY + 60, MONDAYS, 600, 660);
+        RecurringEvent year = RecurringEvent.ofMinutes("C", MONDAY - 100, MONDAY + 265, MONDAYS, 700, 760);
+        store.add(february);
+        store.add(january);
+        store.add(year);
+
+        assertEquals(3, store.size());
+        assertEquals(Arrays.asList(year, january), store.getActive(MONDAY, MONDAY + 30));
+        assertEquals(Arrays.asList(year, january, february), store.getActive(MONDAY + 30, MONDAY + 31));
+        assertEquals(Collections.singletonList(year), store.getActive(MONDAY + 100, MONDAY + 200));
+        assertEquals(Collections.emptyList(), store.getActive(MONDAY + 300, MONDAY + 400));
+
+        ArrayList<RecurringEvent> all = new ArrayList<>();
+        for(RecurringEvent rule: store) {
+            all.add(rule);
+        }
+        assertEquals(Arrays.asList(year, january, february), all);
+    }
+
+    @Test
+    public void reachingIncludesOvernightRulesFromTheDayBefore() {
+        RuleStore store = new RuleStore();
+        RecurringEvent overnight = RecurringEvent.ofMinutes("Night", MONDAY, MONDAY, MONDAYS, 23 * 60, 26 * 60);
+        store.add(overnight);
+
+        assertEquals(Collections.emptyList(), store.getActive(MONDAY + 1, MONDAY + 1));
+        assertEquals(Collections.singletonList(overnight), store.getReaching(MONDAY + 1, MONDAY + 1));
+    }
+
+    @Test
+    public void findsConflictsOnlyOnOccurringDays() {
+        RuleStore store = new RuleStore();
+        RecurringEvent rule = RecurringEvent.ofMinutes("Class", MONDAY, MONDAY + 27, MONDAYS, 600, 660);
+        rule.exclude(new int[] {MONDAY + 7});
+        store.add(rule);
+
+        assertSame(rule, store.findConflict(Event.ofMinutes("E", MONDAY, 630, 700)));
+        assertSame(rule, store.findConflict(Event.ofMinutes("E", MONDAY + 21, 540, 601)));
+        assertNull(store.findConflict(Event.ofMinutes("E", MONDAY + 1, 630, 700)));
+        assertNull(store.findConflict(Event.ofMinutes("E", MONDAY + 7, 630, 700)));
+        assertNull(store.findConflict(Event.ofMinutes("E", MONDAY + 28, 630, 700)));
+        assertNull(store.findConflict(Event.ofMinutes("E", MONDAY, 660, 700)));
+        assertEquals(3, rule.countOccurrences());
+    }
+
+    @Test
+    public void findsAnOvernightOccurrenceFromTheDayBefore() {
+        RuleStore store = new RuleStore();
+        RecurringEvent rule = RecurringEvent.ofMinutes("Night", MONDAY, MONDAY + 27, MONDAYS, 23 * 60, 25 * 60);
+        store.add(rule);
+
+        assertSame(rule, store.findConflict(Event.ofMinutes("Tuesday", MONDAY + 1, 30, 90)));
+        assertNull(store.findConflict(Event.ofMinutes("Tuesday", MONDAY + 1, 60, 90)));
+        assertNull(store.findConflict(Event.ofMinutes("Monday", MONDAY, 30, 90)));
+    }
+}
@@ -0,0 +1,109 @@
+package project;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * This class is creates the tests of the ScheduleImporter
+ *
+ * @author Kyle Cook
+ */
+
+public class ScheduleImporterTest {
+
+    @Test
+    public void importsGoodLinesAndReportsBadOnes() {
+        String schedule = "Lab;2024;1;3;MWF;9;10:30\n"
+                + "\n"
+                + "Bad;2024;1\n"
+                + "Month;2024;13;3;M;9;10\n"
+                + "Huge;2024;1;3;M;40000;40001\n"
+                + "Long;2024;1;3;M;0;100\n"
+                + "Late;2024;1;3;M;100;101\r\n"
+                + "Clash;2024;1;3;W;10;11";
+        Controller controller = controller();
+        ImportResult result = importText(new ScheduleImporter(controller), schedule);
+
+        assertFalse(result.isCancelled());
+        assertEquals(7, result.getLinesRead());
+        assertEquals(4, result.getErrorCount());
+        List<ImportResult.LineError> errors = result.getErrors();
+        assertEquals(3, errors.get(0).getLineNumber());
+        assertTrue(errors.get(0).getMessage(), errors.get(0).getMessage().contains("found 3"));
+        assertEquals(4, errors.get(1).getLineNumber());
+        assertTrue(errors.get(1).getMessage(), errors.get(1).getMessage().contains("monthStart"));
+        assertEquals(5, errors.get(2).getLineNumber());
+        assertTrue(errors.get(2).getMessage(), errors.get(2).getMessage().contains("40000"));
+        assertEquals(6, errors.get(3).getLineNumber());
+        assertTrue(errors.get(3).getMessage(), errors.get(3).getMessage().contains("too long"));
+
+        // Lab has 26 days in January and February 2024, Late's Mondays at hour 100 are 9 Fridays at 4:00
+        // and all 9 of Clash's Wednesdays run into Lab
+        assertEquals(26 + 9, result.getEventsAdded());
+        assertEquals(9, result.getEventsRejected());
+    }
+
+    @Test
+    public void commitsInBatchesInFileOrder() {
+        Controller controller = controller();
+        ScheduleImporter importer = new ScheduleImporter(controller);
+        ArrayList<long[]> batches = new ArrayList<>();
+        importer.setProgressListener((bytesRead, totalBytes, linesRead, eventsAdded) ->
+                batches.add(new long[] {bytesRead, totalBytes, linesRead, eventsAdded}));
+        byte[] schedule = oneDayLines(10000);
+        ImportResult result = importer.importStream(new ByteArrayInputStream(schedule), schedule.length);
+
+        assertEquals(10000, result.getLinesRead());
+        assertEquals(10000, result.getEventsAdded());
+        assertEquals(10000, controller.getRecurringEventCount());
+        assertEquals(3, batches.size());
+        assertEquals(4096, batches.get(0)[2]);
+        assertEquals(4096, batches.get(0)[3]);
+        assertEquals(8192, batches.get(1)[3]);
+        assertEquals(10000, batches.get(2)[3]);
+        assertEquals(schedule.length, batches.get(2)[0]);
+        assertEquals(schedule.length, batches.get(2)[1]);
+    }
+
+    @Test
+    public void cancelKeepsTheBatchesAlreadyCommitted() {
+        Controller controller = controller();
+        ScheduleImporter importer = new ScheduleImporter(controller);
+        importer.setProgressListener((bytesRead, totalBytes, linesRead, eventsAdded) -> importer.cancel());
+        byte[] schedule = oneDayLines(10000);
+        ImportResult result = importer.importStream(new ByteArrayInputStream(schedule), schedule.length);
+
+        assertTrue(importer.isCancelled());
+        assertTrue(result.isCancelled());
+        assertEquals(4096, result.getEventsAdded());
+        assertEquals(4096, controller.getRecurringEventCount());
+    }
+
+    private static Controller controller() {
+        Controller controller = new Controller();
+        controller.setZone(ZoneOffset.UTC);
+        return controller;
+    }
+
+    private static ImportResult importText(ScheduleImporter importer, String schedule) {
+        byte[] bytes = schedule.getBytes(StandardCharsets.UTF_8);
+        return importer.importStream(new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    /**
+     * This method makes lines that each cover only January 1st of their own year, so none of them conflict
+     */
+    private static byte[] oneDayLines(int count) {
+        StringBuilder schedule = new StringBuilder();
+        for(int i = 0; i < count; i++) {
+            schedule.append("Line ").append(i).append(';').append(1000 + i).append(";1;1;SMTWHFA;9;10\n");
+        }
+        return schedule.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,237 @@
+package project;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This class is creates the tests of the SnapshotFile
+ * Files of every version are written byte for byte as the SnapshotFile comment lays them out, so a change to
+ * the reader that stops it reading files already on disk fails here
+ *
+ * @author Kyle Cook
+ */
+
+public class SnapshotFileTest {
+
+    // 2024-03-04, a Monday
+    private static final int MONDAY = 19786;
+    private static final int MONDAYS = 1 << 1;
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsBackWhatWasSaved() throws IOException {
+        Controller saved = new Controller();
+        saved.setZone(NEW_YORK);
+        assertTrue(saved.addEvent(Event.inZone("Lunch", MONDAY, 12 * 60, 13 * 60 + 30, NEW_YORK)));
+        assertTrue(saved.addEvent(Event.inZone(null, MONDAY + 1, 22 * 60, 26 * 60, NEW_YORK)));
+        assertEquals(4, saved.addRecurringEvent(RecurringEvent.ofMinutes("Class", MONDAY, MONDAY + 27, MONDAYS,
+                9 * 60, 10 * 60)));
+        File file = folder.newFile("saved.snapshot");
+        saved.saveSnapshot(file);
+
+        SnapshotFile.Contents contents = SnapshotFile.read(file, ZoneOffset.UTC);
+        assertEquals(NEW_YORK, contents.getZone());
+        Event[] events = contents.getEvents();
+        assertEquals(2, events.length);
+        assertEquals("Event: Lunch  2024/3/4 Time: (12-13:30)", events[0].toString());
+        assertNull(events[1].getName());
+        assertEquals(NEW_YORK, events[1].getZone());
+        assertEquals(22, events[1].getStart());
+        assertEquals(26, events[1].getEnd());
+        assertNotNull(saved.getEvent(events[0].getId()));
+        assertEquals(1, contents.getRules().length);
+        assertEquals(9 * 60, contents.getRules()[0].getStartMinute());
+
+        Controller loaded = new Controller();
+        assertEquals(2, loaded.loadSnapshot(file));
+        assertEquals(NEW_YORK, loaded.getZone());
+        assertEquals(1, loaded.getRecurringEventCount());
+        assertFalse(loaded.addEvent(Event.inZone("Clash", MONDAY + 7, 9 * 60 + 30, 11 * 60, NEW_YORK)));
+    }
+
+    @Test
+    public void readsEveryVersion() throws IOException {
+        for(int version = 1; version <= 6; version++) {
+            String what = "version " + version;
+            SnapshotFile.Contents contents = SnapshotFile.read(snapshot(version, 12 * 60, 13 * 60, 9 * 60, 10 * 60),
+                    ZoneOffset.UTC);
+            assertEquals(what, version >= 2 ? 77 : 0, contents.getGeneration());
+            assertEquals(what, ZoneOffset.UTC, contents.getZone());
+
+            Event[] events = contents.getEvents();
+            assertEquals(what, 2, events.length);
+            assertEquals(what, "Lunch", events[0].getName());
+            assertEquals(what, MONDAY, events[0].getDayKey());
+            assertEquals(what, 12 * 60, events[0].getStartMinute());
+            assertEquals(what, 13 * 60, events[0].getEndMinute());
+            assertNull(what, events[1].getName());
+            assertEquals(what, MONDAY + 1, events[1].getDayKey());
+            assertEquals(what, 26 * 60, events[1].getEndMinute());
+            assertEquals(what, version >= 5 ? 7 : 0, events[0].getId());
+            assertEquals(what, version >= 5 ? 8 : 0, events[1].getId());
+
+            RecurringEvent[] rules = contents.getRules();
+            assertEquals(what, version >= 3 ? 1 : 0, rules.length);
+            if(version >= 3) {
+                assertEquals(what, "Lunch", rules[0].getName());
+                assertEquals(what, version >= 5 ? 9 : 0, rules[0].getId());
+                assertEquals(what, MONDAY, rules[0].getFirstDay());
+                assertEquals(what, MONDAYS, rules[0].getWeekDays());
+                assertEquals(what, 9 * 60, rules[0].getStartMinute());
+                assertTrue(what, rules[0].occursOn(MONDAY));
+                assertFalse(what, rules[0].occursOn(MONDAY + 7));
+            }
+        }
+    }
+
+    @Test
+    public void movesEventsOfOldFilesFromTheirZoneToUtc() throws IOException {
+        SnapshotFile.Contents contents = SnapshotFile.read(snapshot(5, 12 * 60, 13 * 60, 9 * 60, 10 * 60), NEW_YORK);
+        assertEquals(NEW_YORK, contents.getZone());
+        Event lunch = contents.getEvents()[0];
+        // New York is 5 hours behind UTC in early March
+        assertEquals(17 * 60, lunch.getStartMinute());
+        assertEquals(12, lunch.getStart());
+        // 22:00 to 2:00 local is 3:00 to 7:00 UTC the next day, which now comes first in date order
+        assertEquals(MONDAY + 2, contents.getEvents()[1].getDayKey());
+        assertEquals(3 * 60, contents.getEvents()[1].getStartMinute());
+        assertEquals(9 * 60, contents.getRules()[0].getStartMinute());
+
+        SnapshotFile.Contents current = SnapshotFile.read(snapshot(6, 12 * 60, 13 * 60, 9 * 60, 10 * 60), NEW_YORK);
+        assertEquals(ZoneOffset.UTC, current.getZone());
+        assertEquals(12 * 60, current.getEvents()[0].getStartMinute());
+    }
+
+    @Test
+    public void movesTimesOutOfRangeWholeDays() throws IOException {
+        for(int version = 4; version <= 6; version++) {
+            String what = "version " + version;
+            SnapshotFile.Contents contents = SnapshotFile.read(snapshot(version, 100 * 60, 101 * 60, 100 * 60,
+                    101 * 60), ZoneOffset.UTC);
+            // in version 4 and 5 files the Events are sorted again after being moved, so it comes second
+            Event moved = contents.getEvents()[version < 6 ? 1 : 0];
+            assertEquals(what, "Lunch", moved.getName());
+            assertEquals(what, MONDAY + 4, moved.getDayKey());
+            assertEquals(what, 4 * 60, moved.getStartMinute());
+            assertEquals(what, 5 * 60, moved.getEndMinute());
+
+            RecurringEvent rule = contents.getRules()[0];
+            assertEquals(what, MONDAY + 4, rule.getFirstDay());
+            assertEquals(what, 1 << 5, rule.getWeekDays());
+            assertEquals(what, 4 * 60, rule.getStartMinute());
+            assertTrue(what, Arrays.equals(new int[] {MONDAY + 11}, rule.getExclusions()));
+            assertFalse(what, rule.occursOn(MONDAY + 11));
+            assertTrue(what, rule.occursOn(MONDAY + 18));
+        }
+    }
+
+    @Test
+    public void cutsEventsTooLongToKeep() throws IOException {
+        SnapshotFile.Contents contents = SnapshotFile.read(snapshot(6, 0, 100 * 60, 0, 100 * 60), ZoneOffset.UTC);
+        Event cut = contents.getEvents()[0];
+        assertEquals(MONDAY, cut.getDayKey());
+        assertEquals(0, cut.getStartMinute());
+        assertEquals(Event.MAX_MINUTE, cut.getEndMinute());
+        assertEquals(Event.MAX_MINUTE, contents.getRules()[0].getEndMinute());
+    }
+
+    @Test
+    public void refusesFilesThatAreNotSnapshots() throws IOException {
+        File file = snapshot(6, 12 * 60, 13 * 60, 9 * 60, 10 * 60);
+        byte[] bytes = java.nio.file.Files.readAllBytes(file.toPath());
+
+        assertRefused(Arrays.copyOf(bytes, bytes.length / 2), "truncated");
+        bytes[7] = 7;
+        assertRefused(bytes, "version 7");
+        bytes[0] = 0;
+        assertRefused(bytes, "bad magic");
+    }
+
+    private void assertRefused(byte[] bytes, String what) throws IOException {
+        File file = folder.newFile();
+        java.nio.file.Files.write(file.toPath(), bytes);
+        try {
+            SnapshotFile.read(file, ZoneOffset.UTC);
+            fail(what + " was read");
+        }
+        catch(IOException expected) {
+            // refused as it should be
+        }
+    }
+
+    /**
+     * This method writes a snapshot of a version with the Lunch Event and an overnight Event without a name,
+     * and for version 3 on a Monday rule with its second Monday excluded
+     */
+    private File snapshot(int version, int lunchStart, int lunchEnd, int ruleStart, int ruleEnd) throws IOException {
+        File file = folder.newFile("v" + version + "-" + lunchStart + "-" + lunchEnd + ".snapshot");
+        boolean minutes = version >= 4;
+        boolean ids = version >= 5;
+        try(DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x504B4353);
+            out.writeInt(version);
+            if(version >= 2) {
+                out.writeLong(77);
+            }
+            if(version >= 6) {
+                byte[] zone = "Z".getBytes(StandardCharsets.UTF_8);
+                out.writeInt(zone.length);
+                out.write(zone);
+            }
+            byte[] name = "Lunch".getBytes(StandardCharsets.UTF_8);
+            out.writeInt(1);
+            out.writeInt(name.length);
+            out.write(name);
+
+            out.writeInt(2);
+            out.writeInt(MONDAY);
+            out.writeInt(MONDAY + 1);
+            writeTime(out, minutes, lunchStart);
+            writeTime(out, minutes, 22 * 60);
+            writeTime(out, minutes, lunchEnd);
+            writeTime(out, minutes, 26 * 60);
+            out.writeInt(0);
+            out.writeInt(-1);
+            if(ids) {
+                out.writeLong(7);
+                out.writeLong(8);
+            }
+
+            if(version >= 3) {
+                out.writeInt(1);
+                out.writeInt(0);
+                if(ids) {
+                    out.writeLong(9);
+                }
+                out.writeInt(MONDAY);
+                out.writeInt(MONDAY + 27);
+                out.writeByte(MONDAYS);
+                writeTime(out, minutes, ruleStart);
+                writeTime(out, minutes, ruleEnd);
+                out.writeInt(1);
+                out.writeInt(MONDAY + 7);
+            }
+        }
+        return file;
+    }
+
+    private static void writeTime(DataOutputStream out, boolean minutes, int minute) throws IOException {
+        if(minutes) {
+            out.writeInt(minute);
+        }
+        else {
+            out.writeShort(minute / 60);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package project;
+
+import static org.junit.Assert.*;
+
+import java.time.*;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * This class is creates the tests of ZoneDays and of Events made in and shown in other time zones
+ * The conversions are checked against java.time, and the daylight saving gap and overlap are pinned
+ * to the behaviour the Event class comment describes
+ *
+ * @author Kyle Cook
+ */
+
+public class ZoneDaysTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final int SPRING_FORWARD = (int) LocalDate.of(2024, 3, 10).toEpochDay();
+    private static final int FALL_BACK = (int) LocalDate.of(2024, 11, 3).toEpochDay();
+
+    @Test
+    public void matchesJavaTime() {
+        // Sao Paulo once skipped midnight, Lord Howe moves by half an hour and Kolkata and Chatham are off the hour
+        String[] zones = {"UTC", "America/New_York", "America/Sao_Paulo", "Australia/Lord_Howe", "Asia/Kolkata",
+                "Pacific/Chatham", "Europe/London"};
+        int firstDay = (int) LocalDate.of(2018, 1, 1).toEpochDay();
+        Random random = new Random(3);
+        for(String id: zones) {
+            ZoneId zone = ZoneId.of(id);
+            ZoneDays days = ZoneDays.of(zone, firstDay, firstDay + 3 * 365);
+            for(int i = 0; i < 5000; i++) {
+                int day = firstDay + random.nextInt(3 * 365);
+                int minute = random.nextInt(Event.MINUTES_PER_DAY);
+                String what = id + " " + LocalDate.ofEpochDay(day) + " " + minute;
+
+                ZonedDateTime local = LocalDate.ofEpochDay(day).atStartOfDay().plusMinutes(minute).atZone(zone);
+                long instant = local.toEpochSecond() / 60;
+                assertEquals(what, instant, days.toUtc(day, minute));
+                assertEquals(what, instant, ZoneDays.toUtc(zone, day, minute));
+                assertEquals(what, local.getOffset().getTotalSeconds() / 60, days.offsetAt(instant));
+                assertEquals(what, local.toLocalDate().toEpochDay(), days.localDay(instant));
+                assertEquals(what, LocalDate.ofEpochDay(day).atStartOfDay(zone).toEpochSecond() / 60,
+                        days.midnight(day));
+            }
+        }
+    }
+
+    @Test
+    public void onlyUtcIsAligned() {
+        assertTrue(ZoneDays.of(ZoneOffset.UTC, SPRING_FORWARD, SPRING_FORWARD + 30).isAligned());
+        assertFalse(ZoneDays.of(ZoneOffset.ofHours(1), SPRING_FORWARD, SPRING_FORWARD + 30).isAligned());
+        assertFalse(ZoneDays.of(NEW_YORK, SPRING_FORWARD, SPRING_FORWARD + 30).isAligned());
+    }
+
+    @Test
+    public void showsAnEventInAnotherZone() {
+        Event meeting = Event.inZone("Meeting", SPRING_FORWARD + 1, 9 * 60, 10 * 60, NEW_YORK);
+        assertEquals(13 * 60, meeting.getStartMinute());
+        assertEquals("Event: Meeting  2024/3/11 Time: (9-10)", meeting.toString());
+
+        ZoneDays tokyo = ZoneDays.of(ZoneId.of("Asia/Tokyo"), SPRING_FORWARD, SPRING_FORWARD + 7);
+        assertEquals(SPRING_FORWARD + 1, tokyo.dayOf(meeting));
+        assertEquals(22 * 60, tokyo.startOf(meeting));
+        assertEquals(23 * 60, tokyo.endOf(meeting));
+        assertTrue(tokyo.shows(meeting));
+        assertFalse(ZoneDays.of(ZoneId.of("Asia/Tokyo"), SPRING_FORWARD + 2, SPRING_FORWARD + 7).shows(meeting));
+    }
+
+    @Test
+    public void movesTimesInTheSpringGapPastIt() {
+        // the clocks go from 2:00 to 3:00, so 2:00 is the instant 3:00 is and the Event is still two hours long
+        Event early = Event.inZone("E0", SPRING_FORWARD, 0, 2 * 60, NEW_YORK);
+        assertEquals("Event: E0  2024/3/10 Time: (0-3)", early.toString());
+        assertEquals(0, early.getStart());
+        assertEquals(3, early.getEnd());
+        assertEquals(2 * 60, early.getEndEpochMinute() - early.getStartEpochMinute());
+
+        Event inGap = Event.inZone("E1", SPRING_FORWARD, 2 * 60 + 30, 4 * 60, NEW_YORK);
+        ZoneDays days = ZoneDays.of(NEW_YORK, SPRING_FORWARD, SPRING_FORWARD);
+        assertEquals(3 * 60 + 30, days.startOf(inGap));
+        assertEquals(4 * 60, days.endOf(inGap));
+        assertEquals(30, inGap.getEndEpochMinute() - inGap.getStartEpochMinute());
+
+        Event same = days.toEvent("E1", SPRING_FORWARD, 2 * 60 + 30, 4 * 60);
+        assertEquals(inGap.getStartEpochMinute(), same.getStartEpochMinute());
+        assertEquals(inGap.getEndEpochMinute(), same.getEndEpochMinute());
+    }
+
+    @Test
+    public void takesTimesInTheAutumnOverlapTheFirstTime() {
+        // the clocks go from 2:00 back to 1:00, so 1:30 happens at 5:30 UTC and again at 6:30 UTC
+        Event twice = Event.inZone("E2", FALL_BACK, 60 + 30, 2 * 60, NEW_YORK);
+        assertEquals(5 * 60 + 30, twice.getStartMinute());
+        assertEquals(7 * 60, twice.getEndMinute());
+        assertEquals("Event: E2  2024/11/3 Time: (1:30-2)", twice.toString());
+
+        Event night = Event.inZone("E3", FALL_BACK, 0, 2 * 60, NEW_YORK);
+        assertEquals(3 * 60, night.getEndEpochMinute() - night.getStartEpochMinute());
+        ZoneDays days = ZoneDays.of(NEW_YORK, FALL_BACK, FALL_BACK);
+        assertEquals(0, days.startOf(night));
+        assertEquals(2 * 60, days.endOf(night));
+        assertEquals(days.toUtc(FALL_BACK, 60 + 30), twice.getStartEpochMinute());
+    }
+}